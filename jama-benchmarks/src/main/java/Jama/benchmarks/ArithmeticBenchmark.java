@@ -0,0 +1,46 @@
+package Jama.benchmarks;
+
+import Jama.Matrix;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+   /** Benchmarks of the Matrix arithmetic: A*A', A+B and A'.
+   */
+
+@State(Scope.Benchmark)
+public class ArithmeticBenchmark extends AbstractBenchmark {
+
+   @Param({"4", "16", "64", "256", "1024", "4096"})
+   public int size;
+
+   @Param({"SQUARE", "TALL", "WIDE"})
+   public Shape shape;
+
+   private Matrix A, B, At;
+
+   @Setup
+   public void setUp () {
+      A = shape.create(size);
+      B = shape.create(size).times(0.5);
+      At = A.transpose();
+   }
+
+   @Benchmark
+   public Matrix times () {
+      return A.times(At);
+   }
+
+   @Benchmark
+   public Matrix plus () {
+      return A.plus(B);
+   }
+
+   @Benchmark
+   public Matrix transpose () {
+      return A.transpose();
+   }
+}
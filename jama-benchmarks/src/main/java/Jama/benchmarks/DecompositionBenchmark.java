@@ -0,0 +1,62 @@
+package Jama.benchmarks;
+
+import Jama.LUDecomposition;
+import Jama.Matrix;
+import Jama.QRDecomposition;
+import Jama.SingularValueDecomposition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+   /** Benchmarks of the general decompositions and of the solvers built
+       on them.  Tall matrices are solved in the least squares sense.
+   */
+
+@State(Scope.Benchmark)
+public class DecompositionBenchmark extends AbstractBenchmark {
+
+   @Param({"4", "16", "64", "256", "1024", "4096"})
+   public int size;
+
+   @Param({"SQUARE", "TALL"})
+   public Shape shape;
+
+   private Matrix A, b;
+
+   @Setup
+   public void setUp () {
+      A = shape.create(size);
+      int m = A.getRowDimension();
+      b = Shape.random(m,1,new Random(m));
+   }
+
+   @Benchmark
+   public LUDecomposition lu () {
+      return A.lu();
+   }
+
+   @Benchmark
+   public QRDecomposition qr () {
+      return A.qr();
+   }
+
+   @Benchmark
+   public SingularValueDecomposition svd () {
+      return A.svd();
+   }
+
+   @Benchmark
+   public Matrix solve () {
+      return A.solve(b);
+   }
+
+   @Benchmark
+   public Matrix inverse () {
+      return A.inverse();
+   }
+}
@@ -0,0 +1,48 @@
+package Jama.benchmarks;
+
+import Jama.Matrix;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+   /** Benchmarks of Matrix.print and Matrix.read on square matrices.
+   */
+
+@State(Scope.Benchmark)
+public class IOBenchmark extends AbstractBenchmark {
+
+   @Param({"4", "16", "64", "256", "1024"})
+   public int size;
+
+   private Matrix A;
+   private String text;
+
+   @Setup
+   public void setUp () {
+      A = Shape.SQUARE.create(size);
+      text = print();
+   }
+
+   @Benchmark
+   public String print () {
+      StringWriter out = new StringWriter();
+      PrintWriter writer = new PrintWriter(out);
+      A.print(writer,10,4);
+      writer.flush();
+      return out.toString();
+   }
+
+   @Benchmark
+   public Matrix read () throws IOException {
+      return Matrix.read(new BufferedReader(new StringReader(text)));
+   }
+}
@@ -0,0 +1,23 @@
+package Jama.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+   /** Run the benchmarks with the GC profiler, so allocation rates are
+       reported next to throughput.  Takes the usual JMH command line
+       options, e.g. a benchmark pattern and -p size=64,256.
+   */
+
+public class Main {
+
+   public static void main (String[] args) throws Exception {
+      Options options = new OptionsBuilder()
+         .parent(new CommandLineOptions(args))
+         .addProfiler(GCProfiler.class)
+         .build();
+      new Runner(options).run();
+   }
+}
@@ -0,0 +1,71 @@
+package Jama.benchmarks;
+
+import Jama.Matrix;
+
+import java.util.Random;
+
+   /** Shapes of the matrices used in the benchmarks.  A matrix of size n
+       is n-by-n, except that a tall matrix is 2n-by-n and a wide matrix
+       is n-by-2n.  Elements are drawn from a fixed seed, so every run
+       measures the same matrices.
+   */
+
+public enum Shape {
+
+   /** Square matrix with uniformly distributed elements. */
+   SQUARE,
+
+   /** 2n-by-n matrix with uniformly distributed elements. */
+   TALL,
+
+   /** n-by-2n matrix with uniformly distributed elements. */
+   WIDE,
+
+   /** Symmetric matrix, A + A'. */
+   SYMMETRIC,
+
+   /** Symmetric positive definite matrix, A'*A + n*I. */
+   SPD;
+
+   /** Generate a matrix of this shape.
+   @param n    Size of the matrix.
+   @return     A matrix of this shape.
+   */
+
+   public Matrix create (int n) {
+      Random random = new Random(n);
+      switch (this) {
+         case TALL:
+            return random(2*n,n,random);
+         case WIDE:
+            return random(n,2*n,random);
+         case SYMMETRIC: {
+            Matrix A = random(n,n,random);
+            return A.plus(A.transpose());
+         }
+         case SPD: {
+            Matrix A = random(n,n,random);
+            return A.transpose().times(A).plus(Matrix.identity(n,n).times(n));
+         }
+         default:
+            return random(n,n,random);
+      }
+   }
+
+   /** Generate an m-by-n matrix with uniformly distributed elements.
+   @param m       Number of rows.
+   @param n       Number of colums.
+   @param random  Generator of the elements.
+   @return        An m-by-n random matrix.
+   */
+
+   static Matrix random (int m, int n, Random random) {
+      Matrix A = new Matrix(m,n);
+      for (int i = 0; i < m; i++) {
+         for (int j = 0; j < n; j++) {
+            A.set(i,j,random.nextDouble());
+         }
+      }
+      return A;
+   }
+}
@@ -0,0 +1,57 @@
+package Jama.benchmarks;
+
+import Jama.CholeskyDecomposition;
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+   /** Benchmarks of the decompositions of square matrices: eig of general
+       and symmetric matrices, and chol of symmetric positive definite ones.
+   */
+
+public class SquareDecompositionBenchmark extends AbstractBenchmark {
+
+   @State(Scope.Benchmark)
+   public static class Eigen {
+      @Param({"4", "16", "64", "256", "1024", "4096"})
+      public int size;
+
+      @Param({"SQUARE", "SYMMETRIC"})
+      public Shape shape;
+
+      Matrix A;
+
+      @Setup
+      public void setUp () {
+         A = shape.create(size);
+      }
+   }
+
+   @State(Scope.Benchmark)
+   public static class Cholesky {
+      @Param({"4", "16", "64", "256", "1024", "4096"})
+      public int size;
+
+      Matrix A;
+
+      @Setup
+      public void setUp () {
+         A = Shape.SPD.create(size);
+      }
+   }
+
+   @Benchmark
+   public EigenvalueDecomposition eig (Eigen state) {
+      return state.A.eig();
+   }
+
+   @Benchmark
+   public CholeskyDecomposition chol (Cholesky state) {
+      return state.A.chol();
+   }
+}
@@ -0,0 +1,135 @@
+package Jama;
+
+   /** Biconjugate Gradient Stabilized Solver.
+   <P>
+   For a general square operator A, BiCGSTAB combines the biconjugate
+   gradient recurrences, which need no products with A', with a local
+   residual minimization at each iteration that smooths their erratic
+   convergence.  An iteration costs two matrix-vector products and the
+   storage is eight vectors, independent of the number of iterations, but
+   the residual norm is not monotone and the iteration may break down,
+   in which case it stops without converging.
+   <P>
+   A preconditioner M is applied on the right, to solve A*(M\y) = b for
+   y with x = M\y, so the residual norms are those of the original system.
+   */
+
+public class BiCGSTABSolver extends KrylovSolver {
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Solve A*x = b from a zero initial guess, to a relative tolerance
+       of 1e-10 within 2n iterations.
+   @param A    Square operator.
+   @param b    Right hand side.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public BiCGSTABSolver (LinearOperator A, double[] b) {
+      this(A,b,null,null,1e-10,2*A.getRowDimension());
+   }
+
+   /** Solve A*x = b with a preconditioner, from a zero initial guess, to
+       a relative tolerance of 1e-10 within 2n iterations.
+   @param A    Square operator.
+   @param b    Right hand side.
+   @param M    Preconditioner.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public BiCGSTABSolver (LinearOperator A, double[] b, Preconditioner M) {
+      this(A,b,null,M,1e-10,2*A.getRowDimension());
+   }
+
+   /** Solve A*x = b.
+   @param A         Square operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public BiCGSTABSolver (LinearOperator A, double[] b, double[] x0,
+                          double tol, int maxIter) {
+      this(A,b,x0,null,tol,maxIter);
+   }
+
+   /** Solve A*x = b with a preconditioner.
+   @param A         Square operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param M         Preconditioner, or null for none.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public BiCGSTABSolver (LinearOperator A, double[] b, double[] x0,
+                          Preconditioner M, double tol, int maxIter) {
+      double[] r = initialize(A,b,x0,maxIter);
+      double bound = tol*norm(b);
+
+      // The shadow residual rhat is the initial residual.
+      double[] rhat = new double[n];
+      double[] p = new double[n];
+      double[] v = new double[n];
+      double[] s = new double[n];
+      double[] t = new double[n];
+      double[] z = new double[n];
+      System.arraycopy(r,0,rhat,0,n);
+      double rho = 1.0, alpha = 1.0, omega = 1.0;
+      double rnorm = norm(r);
+      record(rnorm);
+      while (!(converged = rnorm <= bound) && iterations() < maxIter) {
+         double rho1 = dot(rhat,r);
+         if (rho1 == 0.0) {
+            break;
+         }
+         double beta = (rho1/rho)*(alpha/omega);
+         rho = rho1;
+         for (int i = 0; i < n; i++) {
+            p[i] = r[i]+beta*(p[i]-omega*v[i]);
+         }
+         precondition(M,p,z);
+         A.apply(z,v);
+         double rv = dot(rhat,v);
+         if (rv == 0.0) {
+            break;
+         }
+         alpha = rho/rv;
+         for (int i = 0; i < n; i++) {
+            x[i] += alpha*z[i];
+            s[i] = r[i]-alpha*v[i];
+         }
+         if (norm(s) <= bound) {
+            // Converged half way through the iteration.
+            System.arraycopy(s,0,r,0,n);
+            rnorm = norm(r);
+            record(rnorm);
+            continue;
+         }
+         precondition(M,s,z);
+         A.apply(z,t);
+         double tt = dot(t,t);
+         omega = (tt == 0.0 ? 0.0 : dot(t,s)/tt);
+         for (int i = 0; i < n; i++) {
+            x[i] += omega*z[i];
+            r[i] = s[i]-omega*t[i];
+         }
+         rnorm = norm(r);
+         record(rnorm);
+         if (omega == 0.0) {
+            break;
+         }
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
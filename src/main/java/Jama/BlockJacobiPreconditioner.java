@@ -0,0 +1,117 @@
+package Jama;
+
+   /** Block Jacobi Preconditioner.
+   <P>
+   The block Jacobi preconditioner is the block diagonal part of A, with
+   square diagonal blocks of a given size, the last one possibly smaller.
+   The blocks are inverted once, so applying the preconditioner costs
+   one small matrix-vector product per block.  It captures the coupling
+   of the unknowns within a block, which is effective when the unknowns
+   are numbered so that strongly coupled ones are close together, as for
+   several unknowns per node of a mesh.
+   */
+
+public class BlockJacobiPreconditioner implements Preconditioner, java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Arrays for internal storage of the inverse diagonal blocks.
+   @serial inverse diagonal blocks.
+   */
+   private double[][][] B;
+
+   /** Dimension and block size.
+   @serial dimension.
+   @serial block size.
+   */
+   private int n, nb;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Block Jacobi preconditioner of a square matrix.
+   @param Arg         Square matrix with nonsingular diagonal blocks.
+   @param blockSize   Size of the diagonal blocks.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  IllegalArgumentException  Block size must be positive.
+   @exception  RuntimeException  Matrix is singular.
+   */
+
+   public BlockJacobiPreconditioner (Matrix Arg, int blockSize) {
+      n = Arg.getRowDimension();
+      if (Arg.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      if (blockSize < 1) {
+         throw new IllegalArgumentException("Block size must be positive.");
+      }
+      nb = blockSize;
+      B = new double[(n+nb-1)/nb][][];
+      for (int b = 0; b < B.length; b++) {
+         int i0 = b*nb, i1 = Math.min(i0+nb,n)-1;
+         B[b] = Arg.getMatrix(i0,i1,i0,i1).inverse().getArray();
+      }
+   }
+
+   /** Block Jacobi preconditioner of a sparse matrix.
+   @param Arg         Square sparse matrix with nonsingular diagonal blocks.
+   @param blockSize   Size of the diagonal blocks.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  IllegalArgumentException  Block size must be positive.
+   @exception  RuntimeException  Matrix is singular.
+   */
+
+   public BlockJacobiPreconditioner (SparseMatrix Arg, int blockSize) {
+      n = Arg.getRowDimension();
+      if (Arg.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      if (blockSize < 1) {
+         throw new IllegalArgumentException("Block size must be positive.");
+      }
+      nb = blockSize;
+      B = new double[(n+nb-1)/nb][][];
+      for (int b = 0; b < B.length; b++) {
+         int i0 = b*nb, i1 = Math.min(i0+nb,n);
+         double[][] X = new double[i1-i0][i1-i0];
+         for (int i = i0; i < i1; i++) {
+            for (int p = Arg.ptr[i]; p < Arg.ptr[i+1]; p++) {
+               int j = Arg.col[p];
+               if (j >= i0 && j < i1) {
+                  X[i-i0][j-i0] = Arg.val[p];
+               }
+            }
+         }
+         B[b] = new Matrix(X,i1-i0,i1-i0).inverse().getArray();
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Multiply by the inverse diagonal blocks, z = M\r
+   @param r    vector of length n
+   @param z    vector of length n, overwritten with M\r
+   */
+
+   public void solve (double[] r, double[] z) {
+      for (int b = 0; b < B.length; b++) {
+         double[][] Bb = B[b];
+         int i0 = b*nb;
+         for (int i = 0; i < Bb.length; i++) {
+            double[] Brow = Bb[i];
+            double s = 0.0;
+            for (int j = 0; j < Bb.length; j++) {
+               s += Brow[j]*r[i0+j];
+            }
+            z[i0+i] = s;
+         }
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -1,4 +1,7 @@
 package Jama;
+import Jama.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
    /** Cholesky Decomposition.
    <P>
@@ -31,40 +34,71 @@ public class CholeskyDecomposition implements java.io.Serializable {
    */
    private boolean isspd;
 
+   /** Number of columns in a block of the blocked factorization. */
+   private static final int NB = 64;
+
+   /** Matrices with fewer multiply-adds than this are factored serially. */
+   private static final long PARALLEL = 1L << 24;
+
 /* ------------------------
    Constructor
  * ------------------------ */
 
    /** Cholesky algorithm for symmetric and positive definite matrix.
-       Structure to access L and isspd flag.
+       Structure to access L and isspd flag.  Large matrices are factored
+       in parallel on the default pool of Matrix.
    @param  Arg   Square, symmetric matrix.
    */
 
    public CholeskyDecomposition (Matrix Arg) {
+      this(Arg,Matrix.getDefaultPool());
+   }
+
+   /** Cholesky algorithm for symmetric and positive definite matrix,
+       with the updates for each block spread over a pool.
+   @param  Arg   Square, symmetric matrix.
+   @param  pool  Pool that runs the updates, or null to factor serially.
+   */
 
+   public CholeskyDecomposition (Matrix Arg, ForkJoinPool pool) {
 
-     // Initialize.
+     // Initialize.  L starts as a copy of the lower triangle of A and is
+     // factored in place.
       double[][] A = Arg.getArray();
       n = Arg.getRowDimension();
       L = new double[n][n];
       isspd = (Arg.getColumnDimension() == n);
-      // Main loop.
       for (int j = 0; j < n; j++) {
-         double[] Lrowj = L[j];
-         double d = 0.0;
-         for (int k = 0; k < j; k++) {
-            double[] Lrowk = L[k];
-            double s = 0.0;
-            for (int i = 0; i < k; i++) {
-               s += Lrowk[i]*Lrowj[i];
+         for (int k = 0; k <= j && isspd; k++) {
+            isspd = (A[k][j] == A[j][k]);
+         }
+      }
+      for (int j = 0; j < n; j++) {
+         System.arraycopy(A[j],0,L[j],0,Math.min(j+1,A[j].length));
+      }
+      Matrix X = new Matrix(L,n,n);
+      boolean parallel = (pool != null && pool.getParallelism() > 1
+                          && (long) n*n*n/3 >= PARALLEL);
+
+      // Main loop over blocks of NB columns.  The diagonal block is
+      // factored, the block column below it is solved with it, and the
+      // trailing submatrix is updated with matrix products.
+      for (int j0 = 0; j0 < n; j0 += NB) {
+         int j1 = Math.min(j0+NB,n);
+         factorBlock(j0,j1);
+         if (j1 < n) {
+            Rows solve = new Rows(X,j0,j1,j1,n,false,parallel);
+            Rows update = new Rows(X,j0,j1,j1,n,true,parallel);
+            if (parallel) {
+               pool.invoke(solve);
+               pool.invoke(update);
+            } else {
+               solve.compute();
+               update.compute();
             }
-            Lrowj[k] = s = (A[j][k] - s)/L[k][k];
-            d = d + s*s;
-            isspd = isspd & (A[k][j] == A[j][k]); 
          }
-         d = A[j][j] - d;
-         isspd = isspd & (d > 0.0);
-         L[j][j] = Math.sqrt(Math.max(d,0.0));
+      }
+      for (int j = 0; j < n; j++) {
          for (int k = j+1; k < n; k++) {
             L[j][k] = 0.0;
          }
@@ -195,6 +229,189 @@ public class CholeskyDecomposition implements java.io.Serializable {
       
       return new Matrix(X,n,nx);
    }
+   /** Rank-k update: change L in place into the factor of A + X*X'.
+       Each column of X is applied by n rotations, in O(n^2) work.
+   @param  X   A Matrix with as many rows as A and any number of columns.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public void update (Matrix X) {
+      checkUpdate(X);
+      double[] c = new double[n];
+      double[] s = new double[n];
+      for (int j = 0; j < X.getColumnDimension(); j++) {
+
+         // Rotate [L x] into [L' 0], one row of L at a time.
+         for (int i = 0; i < n; i++) {
+            double[] Lrowi = L[i];
+            double w = X.get(i,j);
+            for (int k = 0; k < i; k++) {
+               double l = (Lrowi[k] + s[k]*w)/c[k];
+               w = c[k]*w - s[k]*l;
+               Lrowi[k] = l;
+            }
+            double r = Maths.hypot(Lrowi[i],w);
+            c[i] = r/Lrowi[i];
+            s[i] = w/Lrowi[i];
+            Lrowi[i] = r;
+         }
+      }
+   }
+
+   /** Rank-k downdate: change L in place into the factor of A - X*X'.
+       Each column of X is applied by n rotations, in O(n^2) work, after
+       checking that the result stays positive definite.
+   @param  X   A Matrix with as many rows as A and any number of columns.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite,
+               or would not be after the downdate.  The columns of X
+               before the failing one have been applied.
+   */
+
+   public void downdate (Matrix X) {
+      checkUpdate(X);
+      double[] p = new double[n];
+      double[] c = new double[n];
+      double[] s = new double[n];
+      for (int j = 0; j < X.getColumnDimension(); j++) {
+
+         // Solve L*p = x; A - x*x' is positive definite if |p| < 1.
+         double norm = 0.0;
+         for (int i = 0; i < n; i++) {
+            double[] Lrowi = L[i];
+            double t = X.get(i,j);
+            for (int k = 0; k < i; k++) {
+               t -= Lrowi[k]*p[k];
+            }
+            p[i] = t/Lrowi[i];
+            norm = Maths.hypot(norm,p[i]);
+         }
+         if (!(norm < 1.0)) {
+            throw new RuntimeException("Downdated matrix is not positive definite.");
+         }
+
+         // Rotations that reduce [p; alpha] to a multiple of the last
+         // unit vector, as in LINPACK's dchdd.
+         double alpha = Math.sqrt((1.0-norm)*(1.0+norm));
+         for (int i = n-1; i >= 0; i--) {
+            double scale = alpha + Math.abs(p[i]);
+            double a = alpha/scale;
+            double b = p[i]/scale;
+            double r = Maths.hypot(a,b);
+            c[i] = a/r;
+            s[i] = b/r;
+            alpha = scale*r;
+         }
+
+         // Apply them to L', one row of L at a time.
+         for (int i = 0; i < n; i++) {
+            double[] Lrowi = L[i];
+            double w = 0.0;
+            for (int k = i; k >= 0; k--) {
+               double t = c[k]*w + s[k]*Lrowi[k];
+               Lrowi[k] = c[k]*Lrowi[k] - s[k]*w;
+               w = t;
+            }
+         }
+      }
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Check the argument of update and downdate. **/
+
+   private void checkUpdate (Matrix X) {
+      if (X.getRowDimension() != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!isspd) {
+         throw new RuntimeException("Matrix is not symmetric positive definite.");
+      }
+   }
+
+   /** Factor the diagonal block L(j0:j1-1,j0:j1-1), which has already been
+       updated with the columns to its left, by the dot-product algorithm.
+   @param j0   First column of the block.
+   @param j1   Column after the last column of the block.
+   */
+
+   private void factorBlock (int j0, int j1) {
+      for (int j = j0; j < j1; j++) {
+         double[] Lrowj = L[j];
+         double d = 0.0;
+         for (int k = j0; k < j; k++) {
+            double[] Lrowk = L[k];
+            double s = 0.0;
+            for (int i = j0; i < k; i++) {
+               s += Lrowk[i]*Lrowj[i];
+            }
+            Lrowj[k] = s = (Lrowj[k] - s)/Lrowk[k];
+            d = d + s*s;
+         }
+         d = Lrowj[j] - d;
+         isspd = isspd & (d > 0.0);
+         Lrowj[j] = Math.sqrt(Math.max(d,0.0));
+      }
+   }
+
+   /** Work on the rows i0:i1-1 below a factored diagonal block j0:j1-1,
+       split into blocks of rows done in parallel if parallel is set.  The
+       block column is either solved with the diagonal block, or subtracted
+       from the lower triangle of the trailing submatrix.
+   */
+
+   private final class Rows extends RecursiveAction {
+      private final Matrix X;
+      private final int j0, j1, i0, i1;
+      private final boolean update, parallel;
+
+      Rows (Matrix X, int j0, int j1, int i0, int i1, boolean update, boolean parallel) {
+         this.X = X; this.j0 = j0; this.j1 = j1; this.i0 = i0; this.i1 = i1;
+         this.update = update; this.parallel = parallel;
+      }
+
+      protected void compute () {
+         if (i1-i0 > NB) {
+            int mid = i0 + Math.max((i1-i0)/2/NB,1)*NB;
+            Rows top = new Rows(X,j0,j1,i0,mid,update,parallel);
+            Rows bottom = new Rows(X,j0,j1,mid,i1,update,parallel);
+            if (parallel) {
+               invokeAll(top,bottom);
+            } else {
+               top.compute();
+               bottom.compute();
+            }
+            return;
+         }
+         if (!update) {
+
+            // L(i0:i1-1,j0:j1-1) = A(i0:i1-1,j0:j1-1)*inverse(L11')
+            for (int i = i0; i < i1; i++) {
+               double[] Lrowi = L[i];
+               for (int k = j0; k < j1; k++) {
+                  double[] Lrowk = L[k];
+                  double s = Lrowi[k];
+                  for (int c = j0; c < k; c++) {
+                     s -= Lrowi[c]*Lrowk[c];
+                  }
+                  Lrowi[k] = s/Lrowk[k];
+               }
+            }
+         } else {
+
+            // A(i0:i1-1,j1:i1-1) -= L(i0:i1-1,j0:j1-1)*L(j1:i1-1,j0:j1-1)'
+            Matrix.gemm(-1.0,X.getView(i0,i1-1,j0,j1-1),false,
+                        X.getView(j1,i1-1,j0,j1-1),true,
+                        1.0,X.getView(i0,i1-1,j1,i1-1));
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
   private static final long serialVersionUID = 1;
 
 }
@@ -0,0 +1,108 @@
+package Jama;
+
+   /** Conjugate Gradient Solver.
+   <P>
+   For a symmetric positive definite operator A, the conjugate gradient
+   method minimizes the A-norm of the error over the Krylov subspace, with
+   one matrix-vector product per iteration and four vectors of storage.
+   The error decreases at least by a factor (sqrt(c)-1)/(sqrt(c)+1) per
+   iteration, where c is the condition number of A, or of M\A with a
+   preconditioner M.  If A is not symmetric positive definite, the
+   iteration may stagnate or break down.
+   */
+
+public class ConjugateGradientSolver extends KrylovSolver {
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Solve A*x = b from a zero initial guess, to a relative tolerance
+       of 1e-10 within 2n iterations.
+   @param A    Square, symmetric positive definite operator.
+   @param b    Right hand side.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public ConjugateGradientSolver (LinearOperator A, double[] b) {
+      this(A,b,null,null,1e-10,2*A.getRowDimension());
+   }
+
+   /** Solve A*x = b with a preconditioner, from a zero initial guess, to
+       a relative tolerance of 1e-10 within 2n iterations.
+   @param A    Square, symmetric positive definite operator.
+   @param b    Right hand side.
+   @param M    Symmetric positive definite preconditioner.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public ConjugateGradientSolver (LinearOperator A, double[] b, Preconditioner M) {
+      this(A,b,null,M,1e-10,2*A.getRowDimension());
+   }
+
+   /** Solve A*x = b.
+   @param A         Square, symmetric positive definite operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public ConjugateGradientSolver (LinearOperator A, double[] b, double[] x0,
+                                   double tol, int maxIter) {
+      this(A,b,x0,null,tol,maxIter);
+   }
+
+   /** Solve A*x = b with a preconditioner.
+   @param A         Square, symmetric positive definite operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param M         Symmetric positive definite preconditioner, or null for none.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public ConjugateGradientSolver (LinearOperator A, double[] b, double[] x0,
+                                   Preconditioner M, double tol, int maxIter) {
+      double[] r = initialize(A,b,x0,maxIter);
+      double bound = tol*norm(b);
+      double[] p = new double[n];
+      double[] q = new double[n];
+      double[] z = new double[n];
+      precondition(M,r,z);
+      double rho = dot(r,z);
+      double rnorm = norm(r);
+      record(rnorm);
+      System.arraycopy(z,0,p,0,n);
+      while (!(converged = rnorm <= bound) && iterations() < maxIter) {
+         A.apply(p,q);
+         double pq = dot(p,q);
+         if (pq <= 0.0) {
+            // A is not positive definite along p.
+            break;
+         }
+         double alpha = rho/pq;
+         for (int i = 0; i < n; i++) {
+            x[i] += alpha*p[i];
+            r[i] -= alpha*q[i];
+         }
+         precondition(M,r,z);
+         double rho1 = dot(r,z);
+         double beta = rho1/rho;
+         rho = rho1;
+         for (int i = 0; i < n; i++) {
+            p[i] = z[i]+beta*p[i];
+         }
+         rnorm = norm(r);
+         record(rnorm);
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
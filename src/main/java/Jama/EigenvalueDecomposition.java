@@ -1,5 +1,8 @@
 package Jama;
 import Jama.util.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /** Eigenvalues and eigenvectors of a real matrix. 
 <P>
@@ -38,7 +41,7 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    */
    private double[] d, e;
 
-   /** Array for internal storage of eigenvectors.
+   /** Array for internal storage of eigenvectors, null if not computed.
    @serial internal storage of eigenvectors.
    */
    private double[][] V;
@@ -53,13 +56,32 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    */
    private double[] ort;
 
+   /** Tridiagonal problems up to this size are solved by tql2 in the
+       divide and conquer algorithm, and whole symmetric problems up to
+       twice this size are solved by tql2 directly. */
+   private static final int LEAF = 32;
+
+   /** Tridiagonal problems at least this large have their halves solved
+       in parallel. */
+   private static final int PARALLEL = 256;
+
+   /** Number of columns in a panel of the blocked Hessenberg reduction,
+       which is used for nonsymmetric matrices larger than 4*NB. */
+   private static final int NB = 32;
+
+   /** Nonsymmetric matrices larger than this have their eigenvectors
+       computed from the real Schur form found by the multishift QR
+       algorithm, and smaller ones, or those without eigenvectors, by hqr2. */
+   private static final int NMIN = 75;
+
 /* ------------------------
    Private Methods
  * ------------------------ */
 
    // Symmetric Householder reduction to tridiagonal form.
+   // The transformations are accumulated in V only if wantv.
 
-   private void tred2 () {
+   private void tred2 (boolean wantv) {
 
    //  This is derived from the Algol procedures tred2 by
    //  Bowdler, Martin, Reinsch, and Wilkinson, Handbook for
@@ -141,24 +163,39 @@ public class EigenvalueDecomposition implements java.io.Serializable {
          }
          d[i] = h;
       }
+
+      if (!wantv) {
+         for (int j = 0; j < n; j++) {
+            d[j] = V[j][j];
+         }
+         e[0] = 0.0;
+         return;
+      }
    
-      // Accumulate transformations.
+      // Accumulate transformations, by rows of V.
    
+      double[] g = new double[n];
       for (int i = 0; i < n-1; i++) {
          V[n-1][i] = V[i][i];
          V[i][i] = 1.0;
          double h = d[i+1];
          if (h != 0.0) {
-            for (int k = 0; k <= i; k++) {
-               d[k] = V[k][i+1] / h;
-            }
             for (int j = 0; j <= i; j++) {
-               double g = 0.0;
-               for (int k = 0; k <= i; k++) {
-                  g += V[k][i+1] * V[k][j];
+               g[j] = 0.0;
+            }
+            for (int k = 0; k <= i; k++) {
+               double[] Vk = V[k];
+               double v = Vk[i+1];
+               d[k] = v / h;
+               for (int j = 0; j <= i; j++) {
+                  g[j] += v * Vk[j];
                }
-               for (int k = 0; k <= i; k++) {
-                  V[k][j] -= g * d[k];
+            }
+            for (int k = 0; k <= i; k++) {
+               double[] Vk = V[k];
+               double dk = d[k];
+               for (int j = 0; j <= i; j++) {
+                  Vk[j] -= g[j] * dk;
                }
             }
          }
@@ -175,8 +212,9 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    } 
 
    // Symmetric tridiagonal QL algorithm.
+   // The eigenvectors are accumulated in V only if wantv.
    
-   private void tql2 () {
+   private static void tql2 (int n, double[] d, double[] e, double[][] V, boolean wantv) {
 
    //  This is derived from the Algol procedures tql2, by
    //  Bowdler, Martin, Reinsch, and Wilkinson, Handbook for
@@ -253,7 +291,7 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    
                   // Accumulate transformation.
    
-                  for (int k = 0; k < n; k++) {
+                  for (int k = 0; wantv && k < n; k++) {
                      h = V[k][i+1];
                      V[k][i+1] = s * V[k][i] + c * h;
                      V[k][i] = c * V[k][i] - s * h;
@@ -285,7 +323,7 @@ public class EigenvalueDecomposition implements java.io.Serializable {
          if (k != i) {
             d[k] = d[i];
             d[i] = p;
-            for (int j = 0; j < n; j++) {
+            for (int j = 0; wantv && j < n; j++) {
                p = V[j][i];
                V[j][i] = V[j][k];
                V[j][k] = p;
@@ -295,8 +333,9 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    }
 
    // Nonsymmetric reduction to Hessenberg form.
+   // The transformations are accumulated in V only if wantv.
 
-   private void orthes () {
+   private void orthes (boolean wantv) {
    
       //  This is derived from the Algol procedures orthes and ortran,
       //  by Martin and Wilkinson, Handbook for Auto. Comp.,
@@ -359,6 +398,10 @@ public class EigenvalueDecomposition implements java.io.Serializable {
          }
       }
    
+      if (!wantv) {
+         return;
+      }
+
       // Accumulate transformations (Algol's ortran).
 
       for (int i = 0; i < n; i++) {
@@ -387,6 +430,129 @@ public class EigenvalueDecomposition implements java.io.Serializable {
       }
    }
 
+   // Blocked nonsymmetric reduction to Hessenberg form (LAPACK's dgehrd
+   // and dlahr2).  The reflectors of a panel of NB columns are gathered
+   // into I - V*T*V', and the rest of H is updated with matrix products.
+   // The transformations are accumulated in V only if wantv.
+
+   private void blockedOrthes (boolean wantv, ForkJoinPool pool) {
+      Matrix Hm = new Matrix(H,n,n);
+      java.util.List<Matrix[]> blocks = new java.util.ArrayList<Matrix[]>();
+      for (int k = 0; k < n-2; k += NB) {
+         int nb = Math.min(NB,n-2-k), r0 = k+1, mr = n-r0;
+         double[][] Vt = new double[nb][mr];
+         double[][] T = new double[nb][nb];
+         double[][] Y = new double[n][nb];
+         double[] w = new double[nb];
+         for (int i = 0; i < nb; i++) {
+            int c = k+i;
+            if (i > 0) {
+               // Apply the reflectors of the panel so far to column c:
+               // from the right, H - Y*V', then from the left, I - V*T'*V'.
+               for (int r = r0; r < n; r++) {
+                  double s = 0.0;
+                  for (int j = 0; j < i; j++) {
+                     s += Y[r][j]*Vt[j][c-r0];
+                  }
+                  H[r][c] -= s;
+               }
+               for (int j = 0; j < i; j++) {
+                  double s = 0.0;
+                  double[] Vj = Vt[j];
+                  for (int r = r0; r < n; r++) {
+                     s += Vj[r-r0]*H[r][c];
+                  }
+                  w[j] = s;
+               }
+               for (int j = i-1; j >= 0; j--) {
+                  double s = 0.0;
+                  for (int l = 0; l <= j; l++) {
+                     s += T[l][j]*w[l];
+                  }
+                  w[j] = s;
+               }
+               for (int r = r0; r < n; r++) {
+                  double s = 0.0;
+                  for (int j = 0; j < i; j++) {
+                     s += Vt[j][r-r0]*w[j];
+                  }
+                  H[r][c] -= s;
+               }
+            }
+
+            // Generate the reflector that annihilates H(c+2:n-1,c).
+            double[] v = Vt[i];
+            for (int r = c+1; r < n; r++) {
+               v[r-r0] = H[r][c];
+               H[r][c] = 0.0;
+            }
+            double tau = householder(v,c+1-r0,n-c-1);
+            H[c+1][c] = v[c+1-r0];
+            v[c+1-r0] = 1.0;
+
+            // Y(r0:n-1,i) = tau*(H(r0:n-1,:)*v - Y(r0:n-1,0:i-1)*V'*v),
+            // and T(0:i,i) = [-tau*T*V'*v; tau].
+            for (int j = 0; j < i; j++) {
+               double s = 0.0;
+               double[] Vj = Vt[j];
+               for (int r = c+1; r < n; r++) {
+                  s += Vj[r-r0]*v[r-r0];
+               }
+               w[j] = s;
+            }
+            for (int r = r0; r < n; r++) {
+               double[] Hr = H[r];
+               double s = 0.0;
+               for (int j = c+1; j < n; j++) {
+                  s += Hr[j]*v[j-r0];
+               }
+               for (int j = 0; j < i; j++) {
+                  s -= Y[r][j]*w[j];
+               }
+               Y[r][i] = tau*s;
+            }
+            for (int l = 0; l < i; l++) {
+               double s = 0.0;
+               for (int j = l; j < i; j++) {
+                  s += T[l][j]*w[j];
+               }
+               T[l][i] = -tau*s;
+            }
+            T[i][i] = tau;
+         }
+
+         // Y(0:k,:) = H(0:k,r0:n-1)*V*T, from rows of H the panel left alone.
+         Matrix Vm = new Matrix(Vt,nb,mr), Tm = new Matrix(T,nb,nb), Ym = new Matrix(Y,n,nb);
+         Matrix Y0 = Matrix.gemm(1.0,Hm.getView(0,k,r0,n-1),false,Vm,true,0.0,new Matrix(k+1,nb),pool);
+         Matrix.gemm(1.0,Y0,false,Tm,false,0.0,Ym.getView(0,k,0,nb-1),pool);
+
+         // H = (I - V*T'*V')*(H - Y*V') for the columns right of the panel,
+         // and the rows above the reflectors of the columns of the panel.
+         Matrix.gemm(-1.0,Ym,false,Vm.getView(0,nb-1,nb-1,mr-1),false,1.0,Hm.getView(0,n-1,k+nb,n-1),pool);
+         if (nb > 1) {
+            Matrix.gemm(-1.0,Ym.getView(0,k,0,nb-1),false,Vm.getView(0,nb-1,0,nb-2),false,
+                        1.0,Hm.getView(0,k,r0,k+nb-1),pool);
+         }
+         QRDecomposition.applyBlock(Vm,Tm,true,Hm.getView(r0,n-1,k+nb,n-1),pool);
+         blocks.add(new Matrix[] {Vm,Tm});
+      }
+
+      if (!wantv) {
+         return;
+      }
+
+      // Accumulate transformations, V = Q(0)*Q(1)*..., last block first.
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < n; j++) {
+            V[i][j] = (i == j ? 1.0 : 0.0);
+         }
+      }
+      Matrix Vm = new Matrix(V,n,n);
+      for (int b = blocks.size()-1; b >= 0; b--) {
+         int r0 = b*NB+1;
+         QRDecomposition.applyBlock(blocks.get(b)[0],blocks.get(b)[1],false,Vm.getView(r0,n-1,r0,n-1),pool);
+      }
+   }
 
    // Complex scalar division.
 
@@ -408,8 +574,10 @@ public class EigenvalueDecomposition implements java.io.Serializable {
 
 
    // Nonsymmetric reduction from Hessenberg to real Schur form.
+   // Without wantv, only the active block of H is transformed, as in
+   // EISPACK's hqr, and the eigenvectors are not computed.
 
-   private void hqr2 () {
+   private void hqr2 (boolean wantv) {
    
       //  This is derived from the Algol procedure hqr2,
       //  by Martin and Wilkinson, Handbook for Auto. Comp.,
@@ -494,6 +662,11 @@ public class EigenvalueDecomposition implements java.io.Serializable {
                }
                e[n-1] = 0.0;
                e[n] = 0.0;
+               if (!wantv) {
+                  n = n - 2;
+                  iter = 0;
+                  continue;
+               }
                x = H[n][n-1];
                s = Math.abs(x) + Math.abs(z);
                p = x / s;
@@ -653,7 +826,7 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    
                   // Row modification
    
-                  for (int j = k; j < nn; j++) {
+                  for (int j = k; j <= (wantv ? nn-1 : n); j++) {
                      p = H[k][j] + q * H[k+1][j];
                      if (notlast) {
                         p = p + r * H[k+2][j];
@@ -665,7 +838,7 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    
                   // Column modification
    
-                  for (int i = 0; i <= Math.min(n,k+3); i++) {
+                  for (int i = (wantv ? 0 : l); i <= Math.min(n,k+3); i++) {
                      p = x * H[i][k] + y * H[i][k+1];
                      if (notlast) {
                         p = p + z * H[i][k+2];
@@ -677,7 +850,7 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    
                   // Accumulate transformations
    
-                  for (int i = low; i <= high; i++) {
+                  for (int i = low; wantv && i <= high; i++) {
                      p = x * V[i][k] + y * V[i][k+1];
                      if (notlast) {
                         p = p + z * V[i][k+2];
@@ -690,14 +863,29 @@ public class EigenvalueDecomposition implements java.io.Serializable {
             }  // k loop
          }  // check convergence
       }  // while (n >= low)
-      
+
+      if (wantv) {
+         backsubstitute(norm);
+      }
+   }
+
+   // Eigenvectors of the real Schur form in H, transformed back by V.
+   // The norm is that of the Hessenberg matrix.
+
+   private void backsubstitute (double norm) {
+      int nn = this.n;
+      int low = 0;
+      int high = nn-1;
+      double eps = Math.pow(2.0,-52.0);
+      double p,q,r=0,s=0,z=0,t,w,x,y;
+
       // Backsubstitute to find vectors of upper triangular form
 
       if (norm == 0.0) {
          return;
       }
    
-      for (n = nn-1; n >= 0; n--) {
+      for (int n = nn-1; n >= 0; n--) {
          p = d[n];
          q = e[n];
    
@@ -836,19 +1024,1619 @@ public class EigenvalueDecomposition implements java.io.Serializable {
          }
       }
    
-      // Back transformation to get eigenvectors of original matrix
-   
-      for (int j = nn-1; j >= low; j--) {
-         for (int i = low; i <= high; i++) {
-            z = 0.0;
-            for (int k = low; k <= Math.min(j,high); k++) {
-               z = z + V[i][k] * H[k][j];
+      // Back transformation to get eigenvectors of original matrix,
+      // a row of V at a time so that H is read by rows.
+   
+      double[] Vrow = new double[nn];
+      for (int i = low; i <= high; i++) {
+         double[] Vi = V[i];
+         Arrays.fill(Vrow,0.0);
+         for (int k = low; k <= high; k++) {
+            double[] Hk = H[k];
+            z = Vi[k];
+            for (int j = k; j < nn; j++) {
+               Vrow[j] = Vrow[j] + z * Hk[j];
+            }
+         }
+         System.arraycopy(Vrow,low,Vi,low,nn-low);
+      }
+   }
+
+   // Nonsymmetric reduction from Hessenberg to real Schur form by the
+   // multishift QR algorithm with aggressive early deflation (LAPACK's
+   // dlaqr0, after Braman, Byers and Mathias).  Each sweep chases a chain
+   // of small bulges down the diagonal together, and before each sweep a
+   // window at the bottom of the active block is reduced to Schur form, so
+   // that its converged eigenvalues deflate early and the others serve as
+   // shifts.  The eigenvectors are then found as in hqr2, and the
+   // eigenvalues and eigenvectors are put in the order of hqr2.
+
+   private void multishiftQR (boolean wantv, ForkJoinPool pool) {
+      double[][] G = new double[n][];
+      for (int i = 0; i < n; i++) {
+         G[i] = H[i].clone();
+      }
+      double norm = 0.0;
+      for (int i = 0; i < n; i++) {
+         for (int j = Math.max(i-1,0); j < n; j++) {
+            norm = norm + Math.abs(H[i][j]);
+         }
+      }
+
+      // Numbers of shifts and deflation window sizes, as in LAPACK's iparmq.
+      int nsr = (n < 150 ? 10 : n < 590 ? Math.max(10,n/(int)Math.round(Math.log(n)/Math.log(2.0))) :
+                 n < 3000 ? 64 : n < 6000 ? 128 : 256);
+      int nwr = (n <= 500 ? nsr : 3*nsr/2);
+      nwr = Math.min((n-1)/3,Math.max(2,nwr));
+      nsr = Math.min(nsr,(n+6)/9);
+      nsr = Math.max(2,nsr-nsr%2);
+      int nwmax = (n-1)/3;
+      int nsmax = (n+6)/9;
+      nsmax -= nsmax%2;
+
+      // Main loop; ndfl counts the iterations since the last deflation.
+      int nw = nwmax, ndec = -1, ndfl = 1;
+      int kbot = n-1;
+      for (int it = 0; kbot >= 0 && it < 30*Math.max(10,n); it++) {
+
+         // Locate the active block H(ktop:kbot,ktop:kbot).
+         int ktop = kbot;
+         while (ktop > 0 && H[ktop][ktop-1] != 0.0) {
+            ktop--;
+         }
+
+         // Deflation window: the whole active block if it is small, or
+         // else nwr rows, grown and then shrunk while nothing deflates.
+         int nh = kbot-ktop+1;
+         int nwupbd = Math.min(nh,nwmax);
+         nw = (ndfl < 5 ? Math.min(nwupbd,nwr) : Math.min(nwupbd,2*nw));
+         if (nw < nwmax) {
+            if (nw >= nh-1) {
+               nw = nh;
+            } else if (Math.abs(H[kbot-nw+1][kbot-nw]) > Math.abs(H[kbot-nw][kbot-nw-1])) {
+               nw++;
+            }
+         }
+         if (ndfl < 5) {
+            ndec = -1;
+         } else if (ndec >= 0 || nw >= nwupbd) {
+            ndec++;
+            if (nw-ndec < 2) {
+               ndec = 0;
+            }
+            nw -= ndec;
+         }
+
+         // Aggressive early deflation leaves the ls undeflated eigenvalues
+         // of the window in d(ks:kbot) and e(ks:kbot).
+         int[] deflated = deflate(wantv,ktop,kbot,nw,pool);
+         int ls = deflated[0], ld = deflated[1];
+         kbot -= ld;
+         int ks = kbot-ls+1;
+
+         // Skip the sweep if many eigenvalues just deflated.
+         if (ld == 0 || (100*ld <= 14*nw && kbot-ktop+1 > Math.min(NMIN,nwmax))) {
+            int ns = Math.min(Math.min(nsmax,nsr),Math.max(2,kbot-ktop));
+            ns -= ns%2;
+            if (ndfl % 6 == 0) {
+
+               // Exceptional shifts, as in hqr2.
+               ks = kbot-ns+1;
+               for (int i = kbot; i >= Math.max(ks+1,ktop+2); i -= 2) {
+                  double ss = Math.abs(H[i][i-1]) + Math.abs(H[i-1][i-2]);
+                  double aa = 0.75*ss + H[i][i];
+                  eigenvalues(aa,ss,-0.4375*ss,aa,d,e,i-1);
+               }
+               if (ks == ktop) {
+                  d[ks+1] = H[ks+1][ks+1];
+                  e[ks+1] = 0.0;
+                  d[ks] = d[ks+1];
+                  e[ks] = e[ks+1];
+               }
+            } else {
+
+               // With too few shifts from the window, use the eigenvalues
+               // of the trailing ns-by-ns submatrix.
+               if (kbot-ks+1 <= ns/2) {
+                  ks = kbot-ns+1;
+                  double[][] B = new double[ns][ns];
+                  for (int i = 0; i < ns; i++) {
+                     for (int j = Math.max(i-1,0); j < ns; j++) {
+                        B[i][j] = H[ks+i][ks+j];
+                     }
+                  }
+                  double[] wr = new double[ns], wi = new double[ns];
+                  int inf = smallQR(false,ns,0,ns-1,B,wr,wi,null,0);
+                  System.arraycopy(wr,inf,d,ks+inf,ns-inf);
+                  System.arraycopy(wi,inf,e,ks+inf,ns-inf);
+                  ks += inf;
+                  if (ks >= kbot) {
+                     eigenvalues(H[kbot-1][kbot-1],H[kbot-1][kbot],H[kbot][kbot-1],H[kbot][kbot],d,e,kbot-1);
+                     ks = kbot-1;
+                  }
+               }
+
+               // Sort the shifts by decreasing magnitude, so the smallest
+               // are used; the bubble sort keeps conjugate pairs together.
+               if (kbot-ks+1 > ns) {
+                  boolean sorted = false;
+                  for (int k = kbot; k > ks && !sorted; k--) {
+                     sorted = true;
+                     for (int i = ks; i < k; i++) {
+                        if (Math.abs(d[i]) + Math.abs(e[i]) < Math.abs(d[i+1]) + Math.abs(e[i+1])) {
+                           sorted = false;
+                           double t = d[i]; d[i] = d[i+1]; d[i+1] = t;
+                           t = e[i]; e[i] = e[i+1]; e[i+1] = t;
+                        }
+                     }
+                  }
+               }
+
+               // Shuffle the shifts into pairs of real shifts and complex
+               // conjugate pairs.
+               for (int i = kbot; i >= ks+2; i -= 2) {
+                  if (e[i] != -e[i-1]) {
+                     double t = d[i]; d[i] = d[i-1]; d[i-1] = d[i-2]; d[i-2] = t;
+                     t = e[i]; e[i] = e[i-1]; e[i-1] = e[i-2]; e[i-2] = t;
+                  }
+               }
+            }
+
+            // Of two real shifts, use the one nearer H(kbot,kbot) twice.
+            if (kbot-ks+1 == 2 && e[kbot] == 0.0) {
+               if (Math.abs(d[kbot]-H[kbot][kbot]) < Math.abs(d[kbot-1]-H[kbot][kbot])) {
+                  d[kbot-1] = d[kbot];
+               } else {
+                  d[kbot] = d[kbot-1];
+               }
+            }
+
+            ns = Math.min(ns,kbot-ks+1);
+            ns -= ns%2;
+            sweep(wantv,ktop,kbot,ns,kbot-ns+1,pool);
+         }
+         ndfl = (ld > 0 ? 1 : ndfl+1);
+      }
+
+      // In the unlikely event of no convergence, finish with double shifts.
+      if (kbot >= 0) {
+         smallQR(true,n,0,kbot,H,d,e,V,wantv ? n : 0);
+      }
+
+      // Standardize the 2-by-2 blocks, and read off the eigenvalues.
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < i-1; j++) {
+            H[i][j] = 0.0;
+         }
+      }
+      for (int i = 0; i < n; i++) {
+         if (i < n-1 && H[i+1][i] != 0.0) {
+            standardize(H,i,0,n-1,V,wantv ? n : 0);
+            eigenvalues(H[i][i],H[i][i+1],H[i+1][i],H[i+1][i+1],d,e,i);
+            i++;
+         } else {
+            d[i] = H[i][i];
+            e[i] = 0.0;
+         }
+      }
+      if (wantv) {
+         backsubstitute(norm);
+      }
+      hqr2Order(G,wantv);
+   }
+
+   // Put the eigenvalues found by multishiftQR, and the eigenvectors if
+   // wantv, in the order in which hqr2 finds them from the Hessenberg
+   // matrix G.  The two algorithms deflate the eigenvalues in different
+   // orders, so hqr2 is run on G without eigenvectors, each eigenvalue is
+   // matched to the nearest unmatched one of hqr2, and the real eigenvalues
+   // and complex conjugate pairs are sorted by their matches, carrying the
+   // columns of V along.  G is overwritten.
+
+   private void hqr2Order (double[][] G, boolean wantv) {
+      double[] dm = d, em = e;
+      double[][] T = H;
+      d = new double[n];
+      e = new double[n];
+      H = G;
+      hqr2(false);
+      double[] dh = d, eh = e;
+      H = T;
+
+      int[] match = new int[n];
+      boolean[] used = new boolean[n];
+      for (int j = 0; j < n; j++) {
+         int best = -1;
+         double dist = Double.POSITIVE_INFINITY;
+         for (int i = 0; i < n; i++) {
+            double x = dh[i]-dm[j], y = eh[i]-em[j];
+            if (!used[i] && x*x+y*y < dist) {
+               best = i;
+               dist = x*x+y*y;
+            }
+         }
+         used[best] = true;
+         match[j] = best;
+      }
+
+      // Each block is a real eigenvalue or a conjugate pair, positive
+      // imaginary part first, and goes where the first of its matches is.
+      Integer[] p = new Integer[n];
+      int nb = 0;
+      for (int j = 0; j < n; j++) {
+         p[nb++] = j;
+         if (em[j] != 0.0) {
+            match[j] = Math.min(match[j],match[j+1]);
+            j++;
+         }
+      }
+      Arrays.sort(p,0,nb,(a,b) -> Integer.compare(match[a],match[b]));
+      int[] col = new int[n];
+      for (int b = 0, k = 0; b < nb; b++) {
+         col[k++] = p[b];
+         if (em[p[b]] != 0.0) {
+            col[k++] = p[b]+1;
+         }
+      }
+      d = new double[n];
+      e = new double[n];
+      for (int k = 0; k < n; k++) {
+         d[k] = dm[col[k]];
+         e[k] = em[col[k]];
+      }
+      if (wantv) {
+         for (int i = 0; i < n; i++) {
+            double[] Vi = V[i], row = Vi.clone();
+            for (int k = 0; k < n; k++) {
+               Vi[k] = row[col[k]];
             }
-            V[i][j] = z;
          }
       }
    }
 
+   // Aggressive early deflation (LAPACK's dlaqr3).  The trailing nw-by-nw
+   // window of the active block is reduced to Schur form T = U'*W*U.  The
+   // window is coupled to the rest of H only by the spike s*U(0,:), where
+   // s = H(kwtop,kwtop-1), so the eigenvalues of T whose spike components
+   // are negligible deflate.  The others are moved to the top of T, the
+   // spike is reflected back and the window returned to Hessenberg form.
+   // Returns the number of undeflated eigenvalues, left in d and e as
+   // shifts, and the number of deflated ones.
+
+   private int[] deflate (boolean wantv, int ktop, int kbot, int nw, ForkJoinPool pool) {
+      double eps = Math.pow(2.0,-52.0);
+      double smlnum = Double.MIN_NORMAL*(n/eps);
+      int jw = Math.min(nw,kbot-ktop+1);
+      int kwtop = kbot-jw+1;
+      double s = (kwtop == ktop ? 0.0 : H[kwtop][kwtop-1]);
+      if (jw == 1) {
+         d[kwtop] = H[kwtop][kwtop];
+         e[kwtop] = 0.0;
+         if (Math.abs(s) <= Math.max(smlnum,eps*Math.abs(H[kwtop][kwtop]))) {
+            if (kwtop > ktop) {
+               H[kwtop][kwtop-1] = 0.0;
+            }
+            return new int[] {0,1};
+         }
+         return new int[] {1,0};
+      }
+
+      // Schur form of the window.  If the QR iteration fails, which is
+      // rare, only the converged part T(infqr:jw-1,infqr:jw-1) is used.
+      double[][] T = new double[jw][jw];
+      double[][] U = new double[jw][jw];
+      for (int i = 0; i < jw; i++) {
+         for (int j = Math.max(i-1,0); j < jw; j++) {
+            T[i][j] = H[kwtop+i][kwtop+j];
+         }
+         U[i][i] = 1.0;
+      }
+      int infqr = smallQR(true,jw,0,jw-1,T,new double[jw],new double[jw],U,jw);
+      for (int i = 2; i < jw; i++) {
+         for (int j = 0; j < i-1; j++) {
+            T[i][j] = 0.0;
+         }
+      }
+
+      // Deflation check, from the bottom of T.  T(0:ilst-1,0:ilst-1) holds
+      // the undeflatable eigenvalues moved up so far.
+      int ns = jw, ilst = infqr;
+      while (ilst < ns) {
+         if (ns == 1 || T[ns-1][ns-2] == 0.0) {
+            double foo = Math.abs(T[ns-1][ns-1]);
+            if (foo == 0.0) {
+               foo = Math.abs(s);
+            }
+            if (Math.abs(s*U[0][ns-1]) <= Math.max(smlnum,eps*foo)) {
+               ns--;
+            } else {
+               moveUp(T,U,jw,ns-1,ilst);
+               ilst++;
+            }
+         } else {
+            double foo = Math.abs(T[ns-1][ns-1]) +
+                         Math.sqrt(Math.abs(T[ns-1][ns-2]))*Math.sqrt(Math.abs(T[ns-2][ns-1]));
+            if (foo == 0.0) {
+               foo = Math.abs(s);
+            }
+            if (Math.max(Math.abs(s*U[0][ns-1]),Math.abs(s*U[0][ns-2])) <= Math.max(smlnum,eps*foo)) {
+               ns -= 2;
+            } else {
+               moveUp(T,U,jw,ns-2,ilst);
+               ilst += 2;
+            }
+         }
+      }
+      if (ns == 0) {
+         s = 0.0;
+      }
+
+      // The eigenvalues of the window, which are the shifts.
+      for (int i = jw-1; i >= infqr; ) {
+         if (i == infqr || T[i][i-1] == 0.0) {
+            d[kwtop+i] = T[i][i];
+            e[kwtop+i] = 0.0;
+            i--;
+         } else {
+            eigenvalues(T[i-1][i-1],T[i-1][i],T[i][i-1],T[i][i],d,e,kwtop+i-1);
+            i -= 2;
+         }
+      }
+
+      if (ns < jw || s == 0.0) {
+         if (ns > 1 && s != 0.0) {
+
+            // Reflect the undeflated part of the spike to a multiple of
+            // e1, and reduce T(0:ns-1,0:ns-1) back to Hessenberg form.
+            double[] v = new double[ns];
+            System.arraycopy(U[0],0,v,0,ns);
+            double tau = householder(v,0,ns);
+            v[0] = 1.0;
+            reflectLeft(v,tau,T,0,0,jw-1);
+            reflectRight(v,tau,T,0,0,ns-1);
+            reflectRight(v,tau,U,0,0,jw-1);
+            for (int c = 0; c < ns-2; c++) {
+               v = new double[ns-c-1];
+               for (int i = 0; i < v.length; i++) {
+                  v[i] = T[c+1+i][c];
+               }
+               tau = householder(v,0,v.length);
+               T[c+1][c] = v[0];
+               for (int i = c+2; i < ns; i++) {
+                  T[i][c] = 0.0;
+               }
+               v[0] = 1.0;
+               reflectLeft(v,tau,T,c+1,c+1,jw-1);
+               reflectRight(v,tau,T,c+1,0,ns-1);
+               reflectRight(v,tau,U,c+1,0,jw-1);
+            }
+         }
+
+         // Put the window back, and apply U to the rest of H and to V.
+         if (kwtop > 0) {
+            H[kwtop][kwtop-1] = s*U[0][0];
+         }
+         for (int i = 0; i < jw; i++) {
+            for (int j = Math.max(i-1,0); j < jw; j++) {
+               H[kwtop+i][kwtop+j] = T[i][j];
+            }
+         }
+         Matrix Hm = new Matrix(H,n,n), Um = new Matrix(U,jw,jw);
+         int ltop = (wantv ? 0 : ktop);
+         if (ltop < kwtop) {
+            Matrix W = Matrix.gemm(1.0,Hm.getView(ltop,kwtop-1,kwtop,kbot),false,Um,false,
+                                   0.0,new Matrix(kwtop-ltop,jw),pool);
+            Hm.setMatrix(ltop,kwtop-1,kwtop,kbot,W);
+         }
+         if (wantv && kbot < n-1) {
+            Matrix W = Matrix.gemm(1.0,Um,true,Hm.getView(kwtop,kbot,kbot+1,n-1),false,
+                                   0.0,new Matrix(jw,n-1-kbot),pool);
+            Hm.setMatrix(kwtop,kbot,kbot+1,n-1,W);
+         }
+         if (wantv) {
+            Matrix Vm = new Matrix(V,n,n);
+            Matrix W = Matrix.gemm(1.0,Vm.getView(0,n-1,kwtop,kbot),false,Um,false,
+                                   0.0,new Matrix(n,jw),pool);
+            Vm.setMatrix(0,n-1,kwtop,kbot,W);
+         }
+      }
+      return new int[] {ns-infqr,jw-ns};
+   }
+
+   // Multishift QR sweep with a chain of small bulges (LAPACK's dlaqr5)
+   // on the active block H(ktop:kbot,ktop:kbot), with the ns shifts in
+   // d(ks:ks+ns-1) and e(ks:ks+ns-1).  The chain of 3-by-3 bulges is
+   // chased along the diagonal a chunk of columns at a time.  Within a
+   // chunk, the reflections are applied near the diagonal and gathered in
+   // U, which is then applied to the rest of H and to V by matrix products.
+
+   private void sweep (boolean wantv, int ktop, int kbot, int ns, int ks, ForkJoinPool pool) {
+      if (ns < 2 || ktop >= kbot) {
+         return;
+      }
+      double eps = Math.pow(2.0,-52.0);
+      double smlnum = Double.MIN_NORMAL*(n/eps);
+
+      // Each bulge takes a pair of real shifts or a conjugate pair.
+      for (int i = ks; i <= ks+ns-3; i += 2) {
+         if (e[i] != -e[i+1]) {
+            double t = d[i]; d[i] = d[i+1]; d[i+1] = d[i+2]; d[i+2] = t;
+            t = e[i]; e[i] = e[i+1]; e[i+1] = e[i+2]; e[i+2] = t;
+         }
+      }
+      if (ktop+2 <= kbot) {
+         H[ktop+2][ktop] = 0.0;
+      }
+
+      // The reflection of bulge m is I - v(m,0)*u*u', u = [1, v(m,1), v(m,2)].
+      int nbmps = ns/2;
+      int kdu = 6*nbmps-3;
+      double[][] v = new double[nbmps][3];
+      double[][] U = new double[kdu][kdu];
+      Matrix Hm = new Matrix(H,n,n), Um = new Matrix(U,kdu,kdu);
+
+      // The chunk of columns incol+1:ndcol is worked on near the diagonal,
+      // and the chain moves 3*nbmps-2 columns down per chunk.  Columns
+      // outside the active block stand for bulges not yet introduced or
+      // already chased off the bottom.
+      for (int incol = 3*(1-nbmps)+ktop-1; incol <= kbot-2; incol += 3*nbmps-2) {
+         int ndcol = incol+kdu;
+         for (int i = 0; i < kdu; i++) {
+            Arrays.fill(U[i],0.0);
+            U[i][i] = 1.0;
+         }
+         for (int krcol = incol; krcol <= Math.min(incol+3*nbmps-3,kbot-2); krcol++) {
+
+            // Bulges mtop:mbot are active; a 2-by-2 bulge m22 is chased at
+            // the bottom of the block when there is no room for a 3-by-3 one.
+            int mtop = Math.max(0,(ktop-krcol+1)/3);
+            int mbot = Math.min(nbmps,(kbot-krcol)/3)-1;
+            int m22 = mbot+1;
+            int k22 = krcol+3*m22;
+            boolean bmp22 = (m22 < nbmps && k22 == kbot-2);
+
+            // Reflections that move each bulge one column down; at the top,
+            // they introduce the bulges from the shifts.
+            for (int m = mtop; m <= mbot; m++) {
+               int k = krcol+3*m;
+               double[] vm = v[m];
+               if (k == ktop-1) {
+                  firstColumn(H,ktop,3,ks+2*m,vm);
+                  vm[0] = householder(vm,0,3);
+               } else {
+                  vm[0] = H[k+1][k];
+                  vm[1] = H[k+2][k];
+                  vm[2] = H[k+3][k];
+                  double tau = householder(vm,0,3);
+                  double beta = vm[0];
+                  vm[0] = tau;
+                  if (H[k+3][k] != 0.0 || H[k+3][k+1] != 0.0 || H[k+3][k+2] == 0.0) {
+                     H[k+1][k] = beta;
+                  } else {
+
+                     // The bulge collapsed.  Start it again from the shifts,
+                     // unless that leaves too large a fill.
+                     double[] vt = new double[3];
+                     firstColumn(H,k+1,3,ks+2*m,vt);
+                     vt[0] = householder(vt,0,3);
+                     double refsum = vt[0]*(H[k+1][k] + vt[1]*H[k+2][k]);
+                     if (Math.abs(H[k+2][k]-refsum*vt[1]) + Math.abs(refsum*vt[2]) >
+                         eps*(Math.abs(H[k][k]) + Math.abs(H[k+1][k+1]) + Math.abs(H[k+2][k+2]))) {
+                        H[k+1][k] = beta;
+                     } else {
+                        H[k+1][k] -= refsum;
+                        System.arraycopy(vt,0,vm,0,3);
+                     }
+                  }
+                  H[k+2][k] = 0.0;
+                  H[k+3][k] = 0.0;
+               }
+            }
+            if (bmp22) {
+               double[] vm = v[m22];
+               if (k22 == ktop-1) {
+                  firstColumn(H,ktop,2,ks+2*m22,vm);
+                  vm[0] = householder(vm,0,2);
+               } else {
+                  vm[0] = H[k22+1][k22];
+                  vm[1] = H[k22+2][k22];
+                  double tau = householder(vm,0,2);
+                  H[k22+1][k22] = vm[0];
+                  H[k22+2][k22] = 0.0;
+                  vm[0] = tau;
+               }
+            }
+
+            // Apply the reflections from the left to the columns of the
+            // chunk, and from the right to its rows, gathering them in U.
+            int jbot = Math.min(ndcol,kbot);
+            int jtop = Math.max(ktop,incol);
+            for (int m = mtop; m <= mbot+1; m++) {
+               if (m > mbot && !bmp22) {
+                  break;
+               }
+               int k = krcol+3*m;
+               double[] vm = v[m];
+               double tau = vm[0], v1 = vm[1], v2 = (m > mbot ? 0.0 : vm[2]);
+               boolean three = (m <= mbot);
+               for (int j = Math.max(ktop,k+1); j <= jbot; j++) {
+                  double refsum = tau*(H[k+1][j] + v1*H[k+2][j] + (three ? v2*H[k+3][j] : 0.0));
+                  H[k+1][j] -= refsum;
+                  H[k+2][j] -= refsum*v1;
+                  if (three) {
+                     H[k+3][j] -= refsum*v2;
+                  }
+               }
+               if (tau == 0.0) {
+                  continue;
+               }
+               for (int j = jtop; j <= Math.min(kbot,k+3); j++) {
+                  double[] Hj = H[j];
+                  double refsum = tau*(Hj[k+1] + v1*Hj[k+2] + (three ? v2*Hj[k+3] : 0.0));
+                  Hj[k+1] -= refsum;
+                  Hj[k+2] -= refsum*v1;
+                  if (three) {
+                     Hj[k+3] -= refsum*v2;
+                  }
+               }
+               int kms = k-incol;
+               for (int j = Math.max(0,ktop-incol-1); j < kdu; j++) {
+                  double[] Uj = U[j];
+                  double refsum = tau*(Uj[kms] + v1*Uj[kms+1] + (three ? v2*Uj[kms+2] : 0.0));
+                  Uj[kms] -= refsum;
+                  Uj[kms+1] -= refsum*v1;
+                  if (three) {
+                     Uj[kms+2] -= refsum*v2;
+                  }
+               }
+            }
+
+            // Vigilant deflation check: set negligible subdiagonal elements
+            // the bulges passed to zero.
+            int mstart = (krcol+3*mtop < ktop ? mtop+1 : mtop);
+            int mend = mbot + (bmp22 ? 1 : 0) + (krcol == kbot-2 ? 1 : 0);
+            for (int m = mstart; m <= mend; m++) {
+               int k = Math.min(kbot-1,krcol+3*m);
+               if (H[k+1][k] != 0.0) {
+                  double tst1 = Math.abs(H[k][k]) + Math.abs(H[k+1][k+1]);
+                  if (tst1 == 0.0) {
+                     for (int i = 1; i <= 3; i++) {
+                        if (k >= ktop+i) {
+                           tst1 += Math.abs(H[k][k-i]);
+                        }
+                        if (k <= kbot-1-i) {
+                           tst1 += Math.abs(H[k+1+i][k+1]);
+                        }
+                     }
+                  }
+                  if (Math.abs(H[k+1][k]) <= Math.max(smlnum,eps*tst1)) {
+                     double h12 = Math.max(Math.abs(H[k+1][k]),Math.abs(H[k][k+1]));
+                     double h21 = Math.min(Math.abs(H[k+1][k]),Math.abs(H[k][k+1]));
+                     double h11 = Math.max(Math.abs(H[k+1][k+1]),Math.abs(H[k][k]-H[k+1][k+1]));
+                     double h22 = Math.min(Math.abs(H[k+1][k+1]),Math.abs(H[k][k]-H[k+1][k+1]));
+                     double scl = h11 + h12;
+                     double tst2 = h22*(h11/scl);
+                     if (tst2 == 0.0 || h21*(h12/scl) <= Math.max(smlnum,eps*tst2)) {
+                        H[k+1][k] = 0.0;
+                     }
+                  }
+               }
+            }
+
+            // Fill in the last row of each bulge, left out above.
+            mend = Math.min(nbmps,(kbot-krcol-1)/3)-1;
+            for (int m = mtop; m <= mend; m++) {
+               int k = krcol+3*m;
+               double refsum = v[m][0]*v[m][2]*H[k+4][k+3];
+               H[k+4][k+1] = -refsum;
+               H[k+4][k+2] = -refsum*v[m][1];
+               H[k+4][k+3] -= refsum*v[m][2];
+            }
+         }
+
+         // Apply U to the rows right of the chunk, to the columns above
+         // it, and to V.  U(k1:k1+nu-1,k1:k1+nu-1) acts on the rows and
+         // columns r0:r0+nu-1 of H.
+         int k1 = Math.max(0,ktop-incol-1);
+         int nu = kdu-Math.max(0,ndcol-kbot)-k1;
+         int r0 = incol+1+k1;
+         Matrix Uk = Um.getView(k1,k1+nu-1,k1,k1+nu-1);
+         int c0 = Math.min(ndcol,kbot)+1, c1 = (wantv ? n-1 : kbot);
+         if (c0 <= c1) {
+            Matrix W = Matrix.gemm(1.0,Uk,true,Hm.getView(r0,r0+nu-1,c0,c1),false,
+                                   0.0,new Matrix(nu,c1-c0+1),pool);
+            Hm.setMatrix(r0,r0+nu-1,c0,c1,W);
+         }
+         int i0 = (wantv ? 0 : ktop), i1 = Math.max(ktop,incol)-1;
+         if (i0 <= i1) {
+            Matrix W = Matrix.gemm(1.0,Hm.getView(i0,i1,r0,r0+nu-1),false,Uk,false,
+                                   0.0,new Matrix(i1-i0+1,nu),pool);
+            Hm.setMatrix(i0,i1,r0,r0+nu-1,W);
+         }
+         if (wantv) {
+            Matrix Vm = new Matrix(V,n,n);
+            Matrix W = Matrix.gemm(1.0,Vm.getView(0,n-1,r0,r0+nu-1),false,Uk,false,
+                                   0.0,new Matrix(n,nu),pool);
+            Vm.setMatrix(0,n-1,r0,r0+nu-1,W);
+         }
+      }
+   }
+
+   // Double shift QR iteration on H(ilo:ihi,ilo:ihi) of an n-by-n
+   // Hessenberg matrix, with small bulges (LAPACK's dlahqr).  Used for
+   // the deflation windows and shifts of multishiftQR.  If wantt, the
+   // rest of H is updated to the Schur form, and the transformations are
+   // accumulated in the first nz rows of Z.  The eigenvalues go to wr and
+   // wi.  Returns 0, or if the iteration fails, i+1 such that only
+   // H(i+1:ihi,i+1:ihi) has converged.
+
+   private static int smallQR (boolean wantt, int n, int ilo, int ihi, double[][] H,
+                               double[] wr, double[] wi, double[][] Z, int nz) {
+      if (ilo == ihi) {
+         wr[ilo] = H[ilo][ilo];
+         wi[ilo] = 0.0;
+         return 0;
+      }
+      for (int j = ilo; j <= ihi-3; j++) {
+         H[j+2][j] = 0.0;
+         H[j+3][j] = 0.0;
+      }
+      if (ilo <= ihi-2) {
+         H[ihi][ihi-2] = 0.0;
+      }
+      int nh = ihi-ilo+1;
+      double ulp = Math.pow(2.0,-52.0);
+      double smlnum = Double.MIN_NORMAL*(nh/ulp);
+      int i1 = 0, i2 = n-1;
+      int itmax = 30*Math.max(10,nh);
+      int kdefl = 0;
+      double[] v = new double[3];
+
+      // The eigenvalues of H(i+1:ihi,i+1:ihi) have converged.
+      for (int i = ihi; i >= ilo; ) {
+         int l = ilo;
+         boolean converged = false;
+         for (int its = 0; its <= itmax && !converged; its++) {
+
+            // Look for a single small subdiagonal element, by the
+            // criterion of Ahues and Tisseur.
+            int k;
+            for (k = i; k > l; k--) {
+               if (Math.abs(H[k][k-1]) <= smlnum) {
+                  break;
+               }
+               double tst = Math.abs(H[k-1][k-1]) + Math.abs(H[k][k]);
+               if (tst == 0.0) {
+                  if (k-2 >= ilo) {
+                     tst += Math.abs(H[k-1][k-2]);
+                  }
+                  if (k+1 <= ihi) {
+                     tst += Math.abs(H[k+1][k]);
+                  }
+               }
+               if (Math.abs(H[k][k-1]) <= ulp*tst) {
+                  double ab = Math.max(Math.abs(H[k][k-1]),Math.abs(H[k-1][k]));
+                  double ba = Math.min(Math.abs(H[k][k-1]),Math.abs(H[k-1][k]));
+                  double aa = Math.max(Math.abs(H[k][k]),Math.abs(H[k-1][k-1]-H[k][k]));
+                  double bb = Math.min(Math.abs(H[k][k]),Math.abs(H[k-1][k-1]-H[k][k]));
+                  double s = aa + ab;
+                  if (ba*(ab/s) <= Math.max(smlnum,ulp*(bb*(aa/s)))) {
+                     break;
+                  }
+               }
+            }
+            l = k;
+            if (l > ilo) {
+               H[l][l-1] = 0.0;
+            }
+            if (l >= i-1) {
+               converged = true;
+               break;
+            }
+            kdefl++;
+            if (!wantt) {
+               i1 = l;
+               i2 = i;
+            }
+
+            // Shifts, or exceptional shifts when nothing has converged for
+            // a while.
+            double h11, h12, h21, h22, s;
+            if (kdefl % 20 == 0) {
+               s = Math.abs(H[l+1][l]) + Math.abs(H[l+2][l+1]);
+               h11 = 0.75*s + H[l][l];
+               h12 = -0.4375*s;
+               h21 = s;
+               h22 = h11;
+            } else if (kdefl % 10 == 0) {
+               s = Math.abs(H[i][i-1]) + Math.abs(H[i-1][i-2]);
+               h11 = 0.75*s + H[i][i];
+               h12 = -0.4375*s;
+               h21 = s;
+               h22 = h11;
+            } else {
+               h11 = H[i-1][i-1];
+               h21 = H[i][i-1];
+               h12 = H[i-1][i];
+               h22 = H[i][i];
+            }
+            s = Math.abs(h11) + Math.abs(h12) + Math.abs(h21) + Math.abs(h22);
+            double rt1r = 0.0, rt1i = 0.0, rt2r = 0.0, rt2i = 0.0;
+            if (s != 0.0) {
+               h11 /= s;
+               h21 /= s;
+               h12 /= s;
+               h22 /= s;
+               double tr = (h11+h22)/2.0;
+               double det = (h11-tr)*(h22-tr) - h12*h21;
+               double rtdisc = Math.sqrt(Math.abs(det));
+               if (det >= 0.0) {
+                  rt1r = tr*s;
+                  rt2r = rt1r;
+                  rt1i = rtdisc*s;
+                  rt2i = -rt1i;
+               } else {
+                  // Two real shifts: use the one nearer h22 twice.
+                  rt1r = tr + rtdisc;
+                  rt2r = tr - rtdisc;
+                  if (Math.abs(rt1r-h22) <= Math.abs(rt2r-h22)) {
+                     rt1r *= s;
+                     rt2r = rt1r;
+                  } else {
+                     rt2r *= s;
+                     rt1r = rt2r;
+                  }
+               }
+            }
+
+            // Look for two consecutive small subdiagonal elements.
+            int m;
+            for (m = i-2; ; m--) {
+               double h21s = H[m+1][m];
+               s = Math.abs(H[m][m]-rt2r) + Math.abs(rt2i) + Math.abs(h21s);
+               h21s = H[m+1][m]/s;
+               v[0] = h21s*H[m][m+1] + (H[m][m]-rt1r)*((H[m][m]-rt2r)/s) - rt1i*(rt2i/s);
+               v[1] = h21s*(H[m][m] + H[m+1][m+1] - rt1r - rt2r);
+               v[2] = h21s*H[m+2][m+1];
+               s = Math.abs(v[0]) + Math.abs(v[1]) + Math.abs(v[2]);
+               v[0] /= s;
+               v[1] /= s;
+               v[2] /= s;
+               if (m == l) {
+                  break;
+               }
+               double h00 = Math.abs(H[m][m-1])*(Math.abs(v[1]) + Math.abs(v[2]));
+               double h01 = Math.abs(v[0])*(Math.abs(H[m-1][m-1]) + Math.abs(H[m][m]) + Math.abs(H[m+1][m+1]));
+               if (h00 <= ulp*h01) {
+                  break;
+               }
+            }
+
+            // Double shift QR step.
+            for (k = m; k <= i-1; k++) {
+               int nr = Math.min(3,i-k+1);
+               if (k > m) {
+                  for (int j = 0; j < nr; j++) {
+                     v[j] = H[k+j][k-1];
+                  }
+               }
+               double t1 = householder(v,0,nr);
+               if (k > m) {
+                  H[k][k-1] = v[0];
+                  H[k+1][k-1] = 0.0;
+                  if (k < i-1) {
+                     H[k+2][k-1] = 0.0;
+                  }
+               } else if (m > l) {
+                  H[k][k-1] *= (1.0-t1);
+               }
+               double v2 = v[1], t2 = t1*v2;
+               double v3 = (nr == 3 ? v[2] : 0.0), t3 = t1*v3;
+               for (int j = k; j <= i2; j++) {
+                  double sum = H[k][j] + v2*H[k+1][j] + (nr == 3 ? v3*H[k+2][j] : 0.0);
+                  H[k][j] -= sum*t1;
+                  H[k+1][j] -= sum*t2;
+                  if (nr == 3) {
+                     H[k+2][j] -= sum*t3;
+                  }
+               }
+               for (int j = i1; j <= Math.min(k+3,i); j++) {
+                  double[] Hj = H[j];
+                  double sum = Hj[k] + v2*Hj[k+1] + (nr == 3 ? v3*Hj[k+2] : 0.0);
+                  Hj[k] -= sum*t1;
+                  Hj[k+1] -= sum*t2;
+                  if (nr == 3) {
+                     Hj[k+2] -= sum*t3;
+                  }
+               }
+               for (int j = 0; j < nz; j++) {
+                  double[] Zj = Z[j];
+                  double sum = Zj[k] + v2*Zj[k+1] + (nr == 3 ? v3*Zj[k+2] : 0.0);
+                  Zj[k] -= sum*t1;
+                  Zj[k+1] -= sum*t2;
+                  if (nr == 3) {
+                     Zj[k+2] -= sum*t3;
+                  }
+               }
+            }
+         }
+         if (!converged) {
+            return i+1;
+         }
+
+         // One or two eigenvalues have converged.
+         if (l == i) {
+            wr[i] = H[i][i];
+            wi[i] = 0.0;
+         } else {
+            standardize(H,i-1,wantt ? i1 : i-1,wantt ? i2 : i,Z,nz);
+            eigenvalues(H[i-1][i-1],H[i-1][i],H[i][i-1],H[i][i],wr,wi,i-1);
+         }
+         kdefl = 0;
+         i = l-1;
+      }
+      return 0;
+   }
+
+   // First column of (H-s1*I)*(H-s2*I) for the nr-by-nr block at H(k,k),
+   // nr = 2 or 3, scaled, with the shifts s1 and s2 in d(j:j+1) and
+   // e(j:j+1) (LAPACK's dlaqr1).
+
+   private void firstColumn (double[][] H, int k, int nr, int j, double[] v) {
+      double sr1 = d[j], si1 = e[j], sr2 = d[j+1], si2 = e[j+1];
+      double h11 = H[k][k], h21 = H[k+1][k];
+      if (nr == 2) {
+         double s = Math.abs(h11-sr2) + Math.abs(si2) + Math.abs(h21);
+         if (s == 0.0) {
+            v[0] = v[1] = 0.0;
+         } else {
+            double h21s = h21/s;
+            v[0] = h21s*H[k][k+1] + (h11-sr1)*((h11-sr2)/s) - si1*(si2/s);
+            v[1] = h21s*(h11 + H[k+1][k+1] - sr1 - sr2);
+         }
+      } else {
+         double h31 = H[k+2][k];
+         double s = Math.abs(h11-sr2) + Math.abs(si2) + Math.abs(h21) + Math.abs(h31);
+         if (s == 0.0) {
+            v[0] = v[1] = v[2] = 0.0;
+         } else {
+            double h21s = h21/s, h31s = h31/s;
+            v[0] = (h11-sr1)*((h11-sr2)/s) - si1*(si2/s) + H[k][k+1]*h21s + H[k][k+2]*h31s;
+            v[1] = h21s*(h11 + H[k+1][k+1] - sr1 - sr2) + H[k+1][k+2]*h31s;
+            v[2] = h31s*(h11 + H[k+2][k+2] - sr1 - sr2) + h21s*H[k+2][k+1];
+         }
+      }
+   }
+
+   // Move the diagonal block of the n-by-n Schur form T that starts at
+   // row ifst up to row ilst, by swapping it with the blocks above, and
+   // accumulate the transformations in Q (LAPACK's dtrexc).  The move stops
+   // early if a swap is rejected, or if a 2-by-2 block splits.
+
+   private static void moveUp (double[][] T, double[][] Q, int n, int ifst, int ilst) {
+      if (ilst > 0 && T[ilst][ilst-1] != 0.0) {
+         ilst--;
+      }
+      int nbf = (ifst+1 < n && T[ifst+1][ifst] != 0.0 ? 2 : 1);
+      for (int here = ifst; here > ilst; ) {
+         int nbnext = (here >= 2 && T[here-1][here-2] != 0.0 ? 2 : 1);
+         if (!swap(T,Q,n,here-nbnext,nbnext,nbf)) {
+            return;
+         }
+         here -= nbnext;
+         if (nbf == 2 && T[here+1][here] == 0.0) {
+            return;
+         }
+      }
+   }
+
+   // Swap the adjacent diagonal blocks of sizes n1 and n2 starting at row
+   // j1 of the Schur form T, and accumulate the transformation in Q
+   // (LAPACK's dlaexc).  The swap is computed from the solution of a small
+   // Sylvester equation, and is rejected, leaving T unchanged, if it would
+   // perturb the blocks too much.
+
+   private static boolean swap (double[][] T, double[][] Q, int n, int j1, int n1, int n2) {
+      double eps = Math.pow(2.0,-52.0);
+      int j2 = j1+1, j3 = j1+2, j4 = j1+3;
+      if (n1 == 1 && n2 == 1) {
+         double t11 = T[j1][j1], t22 = T[j2][j2];
+         double f = T[j1][j2], g = t22-t11;
+         double r = Maths.hypot(f,g);
+         double cs = (r == 0.0 ? 1.0 : f/r), sn = (r == 0.0 ? 0.0 : g/r);
+         rotate(T,j1,j2,cs,sn,j3,n-1,0,j1-1);
+         T[j1][j1] = t22;
+         T[j2][j2] = t11;
+         rotate(Q,j1,j2,cs,sn,0,-1,0,n-1);
+         return true;
+      }
+
+      // Solve T11*X - X*T22 = T12, and try the swap on a copy of the blocks.
+      int nd = n1+n2;
+      double[][] D = new double[nd][nd];
+      double dnorm = 0.0;
+      for (int i = 0; i < nd; i++) {
+         for (int j = 0; j < nd; j++) {
+            D[i][j] = T[j1+i][j1+j];
+            dnorm = Math.max(dnorm,Math.abs(D[i][j]));
+         }
+      }
+      double thresh = Math.max(10.0*eps*dnorm,Double.MIN_NORMAL/eps);
+      double[][] X = sylvester(D,n1,n2);
+      if (n1 == 1) {
+         double[] u = {1.0, X[0][0], X[0][1]};
+         double[] w = {u[2], u[0], u[1]};
+         double tau = householder(w,0,3);
+         u = new double[] {w[1], w[2], 1.0};
+         double t11 = T[j1][j1];
+         reflectLeft(u,tau,D,0,0,2);
+         reflectRight(u,tau,D,0,0,2);
+         if (Math.max(Math.max(Math.abs(D[2][0]),Math.abs(D[2][1])),Math.abs(D[2][2]-t11)) > thresh) {
+            return false;
+         }
+         reflectRight(u,tau,T,j1,0,j3);
+         reflectLeft(u,tau,T,j1,j1,n-1);
+         T[j3][j1] = 0.0;
+         T[j3][j2] = 0.0;
+         T[j3][j3] = t11;
+         reflectRight(u,tau,Q,j1,0,n-1);
+      } else if (n2 == 1) {
+         double[] u = {-X[0][0], -X[1][0], 1.0};
+         double tau = householder(u,0,3);
+         u[0] = 1.0;
+         double t33 = T[j3][j3];
+         reflectLeft(u,tau,D,0,0,2);
+         reflectRight(u,tau,D,0,0,2);
+         if (Math.max(Math.max(Math.abs(D[1][0]),Math.abs(D[2][0])),Math.abs(D[0][0]-t33)) > thresh) {
+            return false;
+         }
+         reflectLeft(u,tau,T,j1,j1,n-1);
+         reflectRight(u,tau,T,j1,0,j3);
+         T[j1][j1] = t33;
+         T[j2][j1] = 0.0;
+         T[j3][j1] = 0.0;
+         reflectRight(u,tau,Q,j1,0,n-1);
+      } else {
+         double[] u1 = {-X[0][0], -X[1][0], 1.0};
+         double tau1 = householder(u1,0,3);
+         u1[0] = 1.0;
+         double temp = -tau1*(X[0][1] + u1[1]*X[1][1]);
+         double[] u2 = {-temp*u1[1] - X[1][1], -temp*u1[2], 1.0};
+         double tau2 = householder(u2,0,3);
+         u2[0] = 1.0;
+         reflectLeft(u1,tau1,D,0,0,3);
+         reflectRight(u1,tau1,D,0,0,3);
+         reflectLeft(u2,tau2,D,1,0,3);
+         reflectRight(u2,tau2,D,1,0,3);
+         if (Math.max(Math.max(Math.abs(D[2][0]),Math.abs(D[2][1])),
+                      Math.max(Math.abs(D[3][0]),Math.abs(D[3][1]))) > thresh) {
+            return false;
+         }
+         reflectLeft(u1,tau1,T,j1,j1,n-1);
+         reflectRight(u1,tau1,T,j1,0,j4);
+         reflectLeft(u2,tau2,T,j2,j1,n-1);
+         reflectRight(u2,tau2,T,j2,0,j4);
+         T[j3][j1] = 0.0;
+         T[j3][j2] = 0.0;
+         T[j4][j1] = 0.0;
+         T[j4][j2] = 0.0;
+         reflectRight(u1,tau1,Q,j1,0,n-1);
+         reflectRight(u2,tau2,Q,j2,0,n-1);
+      }
+
+      // Standardize the 2-by-2 blocks in their new places.
+      if (n2 == 2) {
+         standardize(T,j1,0,n-1,Q,n);
+      }
+      if (n1 == 2) {
+         standardize(T,j1+n2,0,n-1,Q,n);
+      }
+      return true;
+   }
+
+   // Solution X of T11*X - X*T22 = T12, for the blocks of D of sizes n1
+   // and n2, by Gaussian elimination on the Kronecker product form.  Tiny
+   // pivots are perturbed, so that close eigenvalues give a large X.
+
+   private static double[][] sylvester (double[][] D, int n1, int n2) {
+      double eps = Math.pow(2.0,-52.0);
+      int k = n1*n2;
+      double[][] A = new double[k][k+1];
+      double amax = 0.0;
+      for (int i = 0; i < n1; i++) {
+         for (int j = 0; j < n2; j++) {
+            int r = i*n2+j;
+            for (int l = 0; l < n1; l++) {
+               A[r][l*n2+j] += D[i][l];
+            }
+            for (int l = 0; l < n2; l++) {
+               A[r][i*n2+l] -= D[n1+l][n1+j];
+            }
+            A[r][k] = D[i][n1+j];
+            for (int l = 0; l < k; l++) {
+               amax = Math.max(amax,Math.abs(A[r][l]));
+            }
+         }
+      }
+      double smin = Math.max(eps*amax,Double.MIN_NORMAL);
+      for (int c = 0; c < k; c++) {
+         int p = c;
+         for (int r = c+1; r < k; r++) {
+            if (Math.abs(A[r][c]) > Math.abs(A[p][c])) {
+               p = r;
+            }
+         }
+         double[] t = A[p]; A[p] = A[c]; A[c] = t;
+         if (Math.abs(A[c][c]) < smin) {
+            A[c][c] = smin;
+         }
+         for (int r = c+1; r < k; r++) {
+            double f = A[r][c]/A[c][c];
+            for (int l = c; l <= k; l++) {
+               A[r][l] -= f*A[c][l];
+            }
+         }
+      }
+      double[][] X = new double[n1][n2];
+      double[] x = new double[k];
+      for (int c = k-1; c >= 0; c--) {
+         double s = A[c][k];
+         for (int l = c+1; l < k; l++) {
+            s -= A[c][l]*x[l];
+         }
+         x[c] = s/A[c][c];
+         X[c/n2][c%n2] = x[c];
+      }
+      return X;
+   }
+
+   // Standardize the 2-by-2 block at T(i,i) (LAPACK's dlanv2): a block
+   // with real eigenvalues is made upper triangular, and one with complex
+   // eigenvalues gets equal diagonal elements and off-diagonal elements of
+   // opposite signs.  The rotation is also applied to the rest of rows
+   // i:i+1 up to column hi, to columns i:i+1 from row lo, and to the
+   // first nz rows of Z.
+
+   private static void standardize (double[][] T, int i, int lo, int hi, double[][] Z, int nz) {
+      double eps = Math.pow(2.0,-52.0);
+      double a = T[i][i], b = T[i][i+1], c = T[i+1][i], d = T[i+1][i+1];
+      double cs = 1.0, sn = 0.0;
+      if (c == 0.0) {
+         // Already upper triangular.
+      } else if (b == 0.0) {
+         // Swap the rows and columns.
+         cs = 0.0;
+         sn = 1.0;
+         double t = d;
+         d = a;
+         a = t;
+         b = -c;
+         c = 0.0;
+      } else if (a-d == 0.0 && Math.signum(b) != Math.signum(c)) {
+         // Already standard.
+      } else {
+         double temp = a-d;
+         double p = 0.5*temp;
+         double bcmax = Math.max(Math.abs(b),Math.abs(c));
+         double bcmis = Math.min(Math.abs(b),Math.abs(c))*Math.signum(b)*Math.signum(c);
+         double scale = Math.max(Math.abs(p),bcmax);
+         double z = p/scale*p + bcmax/scale*bcmis;
+         if (z >= 4.0*eps) {
+            // Real eigenvalues: make the block upper triangular.
+            z = p + Math.copySign(Math.sqrt(scale)*Math.sqrt(z),p);
+            a = d + z;
+            d = d - bcmax/z*bcmis;
+            double tau = Maths.hypot(c,z);
+            cs = z/tau;
+            sn = c/tau;
+            b = b - c;
+            c = 0.0;
+         } else {
+            // Complex or nearly equal real eigenvalues: make the diagonal
+            // elements equal.
+            double sigma = b + c;
+            double tau = Maths.hypot(sigma,temp);
+            cs = Math.sqrt(0.5*(1.0 + Math.abs(sigma)/tau));
+            sn = -(p/(tau*cs))*(sigma >= 0.0 ? 1.0 : -1.0);
+            double aa = a*cs + b*sn, bb = -a*sn + b*cs;
+            double cc = c*cs + d*sn, dd = -c*sn + d*cs;
+            a = aa*cs + cc*sn;
+            b = bb*cs + dd*sn;
+            c = -aa*sn + cc*cs;
+            d = -bb*sn + dd*cs;
+            temp = 0.5*(a + d);
+            a = temp;
+            d = temp;
+            if (c != 0.0) {
+               if (b != 0.0) {
+                  if (Math.signum(b) == Math.signum(c)) {
+                     // Real eigenvalues after all.
+                     double sab = Math.sqrt(Math.abs(b)), sac = Math.sqrt(Math.abs(c));
+                     p = Math.copySign(sab*sac,c);
+                     tau = 1.0/Math.sqrt(Math.abs(b + c));
+                     a = temp + p;
+                     d = temp - p;
+                     b = b - c;
+                     c = 0.0;
+                     double cs1 = sab*tau, sn1 = sac*tau;
+                     temp = cs*cs1 - sn*sn1;
+                     sn = cs*sn1 + sn*cs1;
+                     cs = temp;
+                  }
+               } else {
+                  b = -c;
+                  c = 0.0;
+                  temp = cs;
+                  cs = -sn;
+                  sn = temp;
+               }
+            }
+         }
+      }
+      T[i][i] = a;
+      T[i][i+1] = b;
+      T[i+1][i] = c;
+      T[i+1][i+1] = d;
+      rotate(T,i,i+1,cs,sn,i+2,hi,lo,i-1);
+      rotate(Z,i,i+1,cs,sn,0,-1,0,nz-1);
+   }
+
+   // The eigenvalues of the 2-by-2 block [a, b; c, d], into wr(k:k+1)
+   // and wi(k:k+1), with the positive imaginary part first.
+
+   private static void eigenvalues (double a, double b, double c, double d, double[] wr, double[] wi, int k) {
+      double[][] B = {{a, b}, {c, d}};
+      standardize(B,0,0,1,null,0);
+      wr[k] = B[0][0];
+      wr[k+1] = B[1][1];
+      wi[k] = (B[1][0] == 0.0 ? 0.0 : Math.sqrt(Math.abs(B[0][1]))*Math.sqrt(Math.abs(B[1][0])));
+      wi[k+1] = -wi[k];
+   }
+
+   // Apply the rotation [cs, sn; -sn, cs] to rows i and j of A in the
+   // columns c0:c1, and its transpose to columns i and j in the rows r0:r1.
+
+   private static void rotate (double[][] A, int i, int j, double cs, double sn, int c0, int c1, int r0, int r1) {
+      for (int c = c0; c <= c1; c++) {
+         double x = A[i][c], y = A[j][c];
+         A[i][c] = cs*x + sn*y;
+         A[j][c] = cs*y - sn*x;
+      }
+      for (int r = r0; r <= r1; r++) {
+         double[] Ar = A[r];
+         double x = Ar[i], y = Ar[j];
+         Ar[i] = cs*x + sn*y;
+         Ar[j] = cs*y - sn*x;
+      }
+   }
+
+   // Generate the reflection I - tau*u*u', u = [1; v(i0+1:i0+nr-1)/(alpha-beta)],
+   // that takes [alpha; v(i0+1:i0+nr-1)], alpha = v(i0), to [beta; 0]
+   // (LAPACK's dlarfg).  Leaves beta in v(i0) and u(1:nr-1) after it, and
+   // returns tau.
+
+   private static double householder (double[] v, int i0, int nr) {
+      double xnorm = 0.0;
+      for (int i = i0+1; i < i0+nr; i++) {
+         xnorm = Maths.hypot(xnorm,v[i]);
+      }
+      if (xnorm == 0.0) {
+         return 0.0;
+      }
+      double alpha = v[i0];
+      double beta = -Math.copySign(Maths.hypot(alpha,xnorm),alpha);
+      for (int i = i0+1; i < i0+nr; i++) {
+         v[i] /= (alpha-beta);
+      }
+      v[i0] = beta;
+      return (beta-alpha)/beta;
+   }
+
+   // Apply I - tau*u*u' from the left to the rows r0:r0+u.length-1 of A,
+   // in the columns c0:c1.
+
+   private static void reflectLeft (double[] u, double tau, double[][] A, int r0, int c0, int c1) {
+      if (tau == 0.0) {
+         return;
+      }
+      double[] s = new double[c1-c0+1];
+      for (int i = 0; i < u.length; i++) {
+         double[] Ai = A[r0+i];
+         for (int c = c0; c <= c1; c++) {
+            s[c-c0] += u[i]*Ai[c];
+         }
+      }
+      for (int i = 0; i < u.length; i++) {
+         double[] Ai = A[r0+i];
+         double t = tau*u[i];
+         for (int c = c0; c <= c1; c++) {
+            Ai[c] -= t*s[c-c0];
+         }
+      }
+   }
+
+   // Apply I - tau*u*u' from the right to the columns c0:c0+u.length-1
+   // of A, in the rows r0:r1.
+
+   private static void reflectRight (double[] u, double tau, double[][] A, int c0, int r0, int r1) {
+      if (tau == 0.0) {
+         return;
+      }
+      for (int r = r0; r <= r1; r++) {
+         double[] Ar = A[r];
+         double s = 0.0;
+         for (int i = 0; i < u.length; i++) {
+            s += Ar[c0+i]*u[i];
+         }
+         s *= tau;
+         for (int i = 0; i < u.length; i++) {
+            Ar[c0+i] -= s*u[i];
+         }
+      }
+   }
+
+   // Symmetric tridiagonal divide and conquer algorithm of Cuppen.
+   // The tridiagonal matrix is first split where its subdiagonal is
+   // negligible, as in LAPACK's dstedc.  The eigenvectors of each block
+   // are computed from those of its two halves, and then applied to V.
+
+   private void divideAndConquer (ForkJoinPool pool) {
+      double eps = Math.pow(2.0,-52.0);
+      double tnorm = 0.0;
+      for (int i = 0; i < n; i++) {
+         tnorm = Math.max(tnorm,Math.abs(d[i])+Math.abs(e[i]));
+      }
+      double[] dz = new double[n];
+      double[][] Z = new double[n][];
+      int lo = 0;
+      while (lo < n) {
+         int hi = lo+1;
+         while (hi < n && Math.abs(e[hi]) > eps*tnorm) {
+            hi++;
+         }
+         double[] eb = Arrays.copyOfRange(e,lo,hi);
+         eb[0] = 0.0;
+         DivideAndConquer task = new DivideAndConquer(Arrays.copyOfRange(d,lo,hi),eb,
+                                                      8.0*eps*tnorm,pool);
+         Spectrum S = (pool != null && pool.getParallelism() > 1 && hi-lo >= PARALLEL ?
+                       pool.invoke(task) : task.compute());
+         for (int i = lo; i < hi; i++) {
+            dz[i] = S.d[i-lo];
+            Z[i] = new double[n];
+            System.arraycopy(S.Z[i-lo],0,Z[i],lo,hi-lo);
+         }
+         lo = hi;
+      }
+
+      // Sort the eigenvalues of all blocks together, as tql2 does.
+      Integer[] p = new Integer[n];
+      for (int i = 0; i < n; i++) {
+         p[i] = i;
+      }
+      Arrays.sort(p,(a,b) -> Double.compare(dz[a],dz[b]));
+      double[][] Zs = new double[n][];
+      for (int i = 0; i < n; i++) {
+         d[i] = dz[p[i]];
+         Zs[i] = Z[p[i]];
+      }
+      V = Matrix.gemm(1.0,new Matrix(V,n,n),false,new Matrix(Zs,n,n),true,
+                      0.0,new Matrix(n,n),pool).getArray();
+      Arrays.fill(e,0.0);
+   }
+
+   /** Eigenvalues in ascending order, and the eigenvectors by rows. **/
+
+   private static final class Spectrum {
+      private final double[] d;
+      private final double[][] Z;
+
+      Spectrum (double[] d, double[][] Z) {
+         this.d = d; this.Z = Z;
+      }
+   }
+
+   /** Solve the tridiagonal problem with diagonal d and subdiagonal
+       e[1:s-1], splitting it in halves that differ by a rank one matrix.
+       Terms of the rank one updates below tol, which is scaled by the
+       norm of the whole tridiagonal matrix, are deflated. **/
+
+   private static final class DivideAndConquer extends RecursiveTask<Spectrum> {
+      private final double[] d, e;
+      private final double tol;
+      private final ForkJoinPool pool;
+
+      DivideAndConquer (double[] d, double[] e, double tol, ForkJoinPool pool) {
+         this.d = d; this.e = e; this.tol = tol; this.pool = pool;
+      }
+
+      protected Spectrum compute () {
+         int s = d.length;
+         if (s <= LEAF) {
+            double[][] Z = new double[s][s];
+            for (int i = 0; i < s; i++) {
+               Z[i][i] = 1.0;
+            }
+            tql2(s,d,e,Z,true);
+            return new Spectrum(d,new Matrix(Z,s,s).transpose().getArray());
+         }
+
+         // T = diag(T1,T2) + rho*u*u', with u = e(k-1) + e(k).
+         int k = s/2;
+         double rho = e[k];
+         double[] d1 = Arrays.copyOfRange(d,0,k), e1 = Arrays.copyOfRange(e,0,k);
+         double[] d2 = Arrays.copyOfRange(d,k,s), e2 = Arrays.copyOfRange(e,k,s);
+         d1[k-1] -= rho;
+         d2[0] -= rho;
+         e2[0] = 0.0;
+         DivideAndConquer left = new DivideAndConquer(d1,e1,tol,pool);
+         DivideAndConquer right = new DivideAndConquer(d2,e2,tol,pool);
+         if (pool != null && getPool() == pool && s >= PARALLEL) {
+            invokeAll(left,right);
+         } else {
+            left.invoke();
+            right.invoke();
+         }
+         return merge(left.join(),right.join(),rho,tol,pool);
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   /** The spectrum of diag(T1,T2) + rho*u*u' from those of T1 and T2.
+       In the eigenvector basis of T1 and T2 this is D + rho*z*z', where z
+       holds the last components of the eigenvectors of T1 and the first
+       of those of T2.  Terms below tol are deflated. **/
+
+   private static Spectrum merge (Spectrum L, Spectrum R, double rho, double tol, ForkJoinPool pool) {
+      int s1 = L.d.length, s2 = R.d.length, s = s1+s2;
+      double[] D = new double[s], z = new double[s];
+      double[][] W = new double[s][];
+      for (int i = 0; i < s1; i++) {
+         D[i] = L.d[i];
+         z[i] = L.Z[i][s1-1];
+         W[i] = new double[s];
+         System.arraycopy(L.Z[i],0,W[i],0,s1);
+      }
+      for (int i = 0; i < s2; i++) {
+         D[s1+i] = R.d[i];
+         z[s1+i] = R.Z[i][0];
+         W[s1+i] = new double[s];
+         System.arraycopy(R.Z[i],0,W[s1+i],s1,s2);
+      }
+
+      // D + rho*z*z' = -(-D + |rho|*z*z'), so only rho >= 0 need be solved.
+      if (rho >= 0) {
+         return rankOne(D,z,W,rho,tol,pool);
+      }
+      for (int i = 0; i < s; i++) {
+         D[i] = -D[i];
+      }
+      Spectrum S = rankOne(D,z,W,-rho,tol,pool);
+      double[] d = new double[s];
+      double[][] Z = new double[s][];
+      for (int i = 0; i < s; i++) {
+         d[i] = -S.d[s-1-i];
+         Z[i] = S.Z[s-1-i];
+      }
+      return new Spectrum(d,Z);
+   }
+
+   /** The spectrum of D + rho*z*z', rho >= 0, with the eigenvectors
+       expressed in the basis given by the rows of W.  Terms below tol
+       are deflated. **/
+
+   private static Spectrum rankOne (double[] D, double[] z, double[][] W, double rho, double tol,
+                                    ForkJoinPool pool) {
+      int s = D.length;
+      double eps = Math.pow(2.0,-52.0);
+
+      // Normalize z and sort D.
+      double nrm = 0.0;
+      for (int i = 0; i < s; i++) {
+         nrm = Maths.hypot(nrm,z[i]);
+      }
+      Integer[] p = new Integer[s];
+      for (int i = 0; i < s; i++) {
+         p[i] = i;
+      }
+      Arrays.sort(p,(a,b) -> Double.compare(D[a],D[b]));
+      double[] ds = new double[s], zs = new double[s];
+      double[][] Ws = new double[s][];
+      double dmax = 0.0;
+      for (int i = 0; i < s; i++) {
+         ds[i] = D[p[i]];
+         zs[i] = (nrm > 0.0 ? z[p[i]]/nrm : 0.0);
+         Ws[i] = W[p[i]];
+         dmax = Math.max(dmax,Math.abs(ds[i]));
+      }
+      rho *= nrm*nrm;
+
+      // Deflate the components of z that are negligible, and rotate away
+      // one of each pair of nearly equal elements of D.
+      tol = Math.max(tol,8.0*eps*Math.max(dmax,rho));
+      boolean[] deflated = new boolean[s];
+      int K = 0, last = -1;
+      for (int i = 0; i < s; i++) {
+         if (rho*Math.abs(zs[i]) <= tol) {
+            deflated[i] = true;
+            continue;
+         }
+         if (last >= 0) {
+            double r = Maths.hypot(zs[last],zs[i]);
+            double c = zs[i]/r, sn = zs[last]/r;
+            if (Math.abs(c*sn*(ds[last]-ds[i])) <= tol) {
+               double dl = ds[last], di = ds[i];
+               ds[last] = c*c*dl + sn*sn*di;
+               ds[i] = sn*sn*dl + c*c*di;
+               zs[last] = 0.0;
+               zs[i] = r;
+               double[] Wl = Ws[last], Wi = Ws[i];
+               for (int j = 0; j < s; j++) {
+                  double t = Wl[j];
+                  Wl[j] = c*t - sn*Wi[j];
+                  Wi[j] = sn*t + c*Wi[j];
+               }
+               deflated[last] = true;
+               K--;
+            }
+         }
+         last = i;
+         K++;
+      }
+      int[] nd = new int[K];
+      double[] dk = new double[K], zk = new double[K];
+      for (int i = 0, j = 0; i < s; i++) {
+         if (!deflated[i]) {
+            nd[j] = i;
+            dk[j] = ds[i];
+            zk[j] = zs[i];
+            j++;
+         }
+      }
+
+      // Roots of the secular equation, each as an offset tau from a pole.
+      int[] org = new int[K];
+      double[] tau = new double[K];
+      for (int i = 0; i < K; i++) {
+         secular(dk,zk,rho,i,org,tau);
+      }
+
+      // Recompute z from the roots (Gu and Eisenstat), so that the
+      // eigenvectors come out orthogonal however close the roots are.
+      double[] zh = new double[K];
+      for (int j = 0; j < K; j++) {
+         double w = ((dk[org[j]]-dk[j])+tau[j])/rho;
+         for (int i = 0; i < K; i++) {
+            if (i != j) {
+               w *= ((dk[org[i]]-dk[j])+tau[i])/(dk[i]-dk[j]);
+            }
+         }
+         zh[j] = Math.copySign(Math.sqrt(Math.abs(w)),zk[j]);
+      }
+      double[][] S = new double[K][K];
+      for (int i = 0; i < K; i++) {
+         double[] Si = S[i];
+         double t = 0.0;
+         for (int j = 0; j < K; j++) {
+            Si[j] = zh[j]/((dk[j]-dk[org[i]])-tau[i]);
+            t = Maths.hypot(t,Si[j]);
+         }
+         for (int j = 0; j < K; j++) {
+            Si[j] /= t;
+         }
+      }
+      double[][] Wk = new double[K][];
+      for (int j = 0; j < K; j++) {
+         Wk[j] = Ws[nd[j]];
+      }
+      double[][] Zk = Matrix.gemm(1.0,new Matrix(S,K,K),false,new Matrix(Wk,K,s),false,
+                                  0.0,new Matrix(K,s),pool).getArray();
+
+      // Gather the roots and the deflated eigenpairs in ascending order.
+      double[] d = new double[s];
+      double[][] Z = new double[s][];
+      for (int i = 0, j = 0; i < s; i++) {
+         if (deflated[i]) {
+            d[i] = ds[i];
+            Z[i] = Ws[i];
+         } else {
+            d[i] = dk[org[j]]+tau[j];
+            Z[i] = Zk[j];
+            j++;
+         }
+         p[i] = i;
+      }
+      Arrays.sort(p,(a,b) -> Double.compare(d[a],d[b]));
+      double[] dsort = new double[s];
+      double[][] Zsort = new double[s][];
+      for (int i = 0; i < s; i++) {
+         dsort[i] = d[p[i]];
+         Zsort[i] = Z[p[i]];
+      }
+      return new Spectrum(dsort,Zsort);
+   }
+
+   /** Find the i-th root of 1/rho + sum(z[j]^2/(d[j]-lambda)) = 0, where
+       d is increasing and rho > 0, as lambda = d[org[i]] + tau[i] with the
+       pole nearest the root as origin.  The iteration interpolates the
+       function with the two poles around the root (the middle way of
+       LAPACK's dlaed4), with bisection as a safeguard. **/
+
+   private static void secular (double[] d, double[] z, double rho, int i, int[] org, double[] tau) {
+      int K = d.length;
+      double eps = Math.pow(2.0,-52.0);
+      int o;
+      double lo, hi;
+      if (i < K-1) {
+         // The root lies in the half of (d[i],d[i+1]) where f changes sign.
+         double mid = (d[i+1]-d[i])/2.0;
+         double f = 1.0/rho;
+         for (int j = 0; j < K; j++) {
+            f += z[j]*z[j]/((d[j]-d[i])-mid);
+         }
+         if (f >= 0) {
+            o = i; lo = 0.0; hi = mid;
+         } else {
+            o = i+1; lo = -mid; hi = 0.0;
+         }
+      } else {
+         double zz = 0.0;
+         for (int j = 0; j < K; j++) {
+            zz += z[j]*z[j];
+         }
+         o = i; lo = 0.0; hi = rho*zz;
+      }
+      double t = (lo+hi)/2.0;
+      for (int iter = 0; iter < 100; iter++) {
+         double psi = 0.0, dpsi = 0.0, phi = 0.0, dphi = 0.0;
+         for (int j = 0; j < K; j++) {
+            double q = z[j]/((d[j]-d[o])-t);
+            if (j <= i) {
+               psi += z[j]*q;
+               dpsi += q*q;
+            } else {
+               phi += z[j]*q;
+               dphi += q*q;
+            }
+         }
+         double f = 1.0/rho + psi + phi;
+         if (f < 0) {
+            lo = t;
+         } else {
+            hi = t;
+         }
+         if (Math.abs(f) <= 8.0*K*eps*(1.0/rho - psi + phi) ||
+             hi-lo <= 2.0*eps*Math.max(Math.abs(lo),Math.abs(hi))) {
+            break;
+         }
+         double eta;
+         double dl = (d[i]-d[o])-t;
+         if (i < K-1) {
+            double dr = (d[i+1]-d[o])-t;
+            double c = f - dl*dpsi - dr*dphi;
+            double a = (dl+dr)*f - dl*dr*(dpsi+dphi);
+            double b = dl*dr*f;
+            double disc = Math.sqrt(Math.abs(a*a-4.0*b*c));
+            eta = (c == 0 ? b/a : a <= 0 ? (a-disc)/(2.0*c) : 2.0*b/(a+disc));
+         } else {
+            eta = dl + dpsi*dl*dl/(f-dl*dpsi);
+         }
+         if (f*eta >= 0) {
+            eta = -f/(dpsi+dphi);
+         }
+         double tn = t+eta;
+         if (!(tn > lo && tn < hi)) {
+            tn = (lo+hi)/2.0;
+         }
+         if (tn == t) {
+            break;
+         }
+         t = tn;
+      }
+      org[i] = o;
+      tau[i] = t;
+   }
+
 
 /* ------------------------
    Constructor
@@ -860,9 +2648,38 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    */
 
    public EigenvalueDecomposition (Matrix Arg) {
+      this(Arg,true);
+   }
+
+   /** Check for symmetry, then construct the eigenvalue decomposition,
+       computing the eigenvectors only if they are wanted.  Without them,
+       the transformations are not accumulated, the back substitution is
+       skipped and V is not kept.  Large matrices use the default pool
+       of Matrix.
+   @param Arg    Square matrix
+   @param wantv  Compute the eigenvectors V.
+   */
+
+   public EigenvalueDecomposition (Matrix Arg, boolean wantv) {
+      this(Arg,wantv,Matrix.getDefaultPool());
+   }
+
+   /** Check for symmetry, then construct the eigenvalue decomposition,
+       computing the eigenvectors only if they are wanted.  The eigenvectors
+       of large symmetric matrices are computed by divide and conquer, with
+       independent subproblems and matrix products run on the pool.  Large
+       nonsymmetric matrices are reduced by blocked algorithms whose matrix
+       products run on the pool, and their eigenvectors are found from the
+       real Schur form computed by multishift QR, in the same order as
+       hqr2.
+   @param Arg    Square matrix
+   @param wantv  Compute the eigenvectors V.
+   @param pool   Pool for the matrix products, or null to work serially.
+   */
+
+   public EigenvalueDecomposition (Matrix Arg, boolean wantv, ForkJoinPool pool) {
       double[][] A = Arg.getArray();
       n = Arg.getColumnDimension();
-      V = new double[n][n];
       d = new double[n];
       e = new double[n];
 
@@ -874,6 +2691,9 @@ public class EigenvalueDecomposition implements java.io.Serializable {
       }
 
       if (issymmetric) {
+
+         // The reduction to tridiagonal form works in place.
+         V = new double[n][n];
          for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
                V[i][j] = A[i][j];
@@ -881,12 +2701,20 @@ public class EigenvalueDecomposition implements java.io.Serializable {
          }
    
          // Tridiagonalize.
-         tred2();
+         tred2(wantv);
    
          // Diagonalize.
-         tql2();
+         if (wantv && n > 2*LEAF) {
+            divideAndConquer(pool);
+         } else {
+            tql2(n,d,e,V,wantv);
+         }
+         if (!wantv) {
+            V = null;
+         }
 
       } else {
+         V = (wantv ? new double[n][n] : null);
          H = new double[n][n];
          ort = new double[n];
          
@@ -897,10 +2725,18 @@ public class EigenvalueDecomposition implements java.io.Serializable {
          }
    
          // Reduce to Hessenberg form.
-         orthes();
+         if (n > 4*NB) {
+            blockedOrthes(wantv,pool);
+         } else {
+            orthes(wantv);
+         }
    
          // Reduce Hessenberg to real Schur form.
-         hqr2();
+         if (wantv && n > NMIN) {
+            multishiftQR(wantv,pool);
+         } else {
+            hqr2(wantv);
+         }
       }
    }
 
@@ -910,9 +2746,13 @@ public class EigenvalueDecomposition implements java.io.Serializable {
 
    /** Return the eigenvector matrix
    @return     V
+   @exception  RuntimeException  Eigenvectors were not computed.
    */
 
    public Matrix getV () {
+      if (V == null) {
+         throw new RuntimeException("Eigenvectors were not computed.");
+      }
       return new Matrix(V,n,n);
    }
 
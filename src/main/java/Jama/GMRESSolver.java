@@ -0,0 +1,189 @@
+package Jama;
+import Jama.util.*;
+import java.util.Arrays;
+
+   /** Generalized Minimum Residual Solver.
+   <P>
+   For a general square operator A, GMRES minimizes the residual norm over
+   the Krylov subspace.  The Arnoldi process builds an orthonormal basis by
+   modified Gram-Schmidt and the projected Hessenberg least squares problem
+   is solved by Givens rotations as the basis grows.  Since the basis and
+   the work per iteration grow with the number of iterations, the method
+   is restarted from the current solution every m iterations, which keeps
+   the storage at m+1 vectors of length n.  The residual norm never
+   increases, but a small m may make the convergence slow.
+   <P>
+   A preconditioner M is applied on the right, to solve A*(M\y) = b for
+   y with x = M\y, so the residual norms are those of the original system.
+   */
+
+public class GMRESSolver extends KrylovSolver {
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Solve A*x = b from a zero initial guess, to a relative tolerance
+       of 1e-10 within 2n iterations, restarting every 30 iterations.
+   @param A    Square operator.
+   @param b    Right hand side.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public GMRESSolver (LinearOperator A, double[] b) {
+      this(A,b,null,null,1e-10,2*A.getRowDimension(),30);
+   }
+
+   /** Solve A*x = b with a preconditioner, from a zero initial guess, to
+       a relative tolerance of 1e-10 within 2n iterations, restarting
+       every 30 iterations.
+   @param A    Square operator.
+   @param b    Right hand side.
+   @param M    Preconditioner.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public GMRESSolver (LinearOperator A, double[] b, Preconditioner M) {
+      this(A,b,null,M,1e-10,2*A.getRowDimension(),30);
+   }
+
+   /** Solve A*x = b.
+   @param A         Square operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @param restart   Number of iterations between restarts, m.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   @exception  IllegalArgumentException  Restart must be positive.
+   */
+
+   public GMRESSolver (LinearOperator A, double[] b, double[] x0,
+                       double tol, int maxIter, int restart) {
+      this(A,b,x0,null,tol,maxIter,restart);
+   }
+
+   /** Solve A*x = b with a preconditioner.
+   @param A         Square operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param M         Preconditioner, or null for none.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @param restart   Number of iterations between restarts, m.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   @exception  IllegalArgumentException  Restart must be positive.
+   */
+
+   public GMRESSolver (LinearOperator A, double[] b, double[] x0,
+                       Preconditioner M, double tol, int maxIter, int restart) {
+      if (restart < 1) {
+         throw new IllegalArgumentException("Restart must be positive.");
+      }
+      double[] r = initialize(A,b,x0,maxIter);
+      double bound = tol*norm(b);
+      int m = Math.min(restart,n);
+
+      // Arnoldi basis V, by rows, and the Hessenberg matrix H reduced to
+      // triangular form by the rotations (c,s).  g is the right hand side
+      // of the least squares problem; |g[j+1]| is the residual norm.
+      double[][] V = new double[m+1][];
+      double[][] H = new double[m+1][m];
+      double[] c = new double[m];
+      double[] s = new double[m];
+      double[] g = new double[m+1];
+      double[] w = new double[n];
+      double[] z = new double[n];
+      double beta = norm(r);
+      record(beta);
+      while (!(converged = beta <= bound) && iterations() < maxIter) {
+         if (V[0] == null) {
+            V[0] = new double[n];
+         }
+         for (int i = 0; i < n; i++) {
+            V[0][i] = r[i]/beta;
+         }
+         Arrays.fill(g,0.0);
+         g[0] = beta;
+         int k = 0;
+         while (k < m && iterations() < maxIter) {
+            precondition(M,V[k],z);
+            A.apply(z,w);
+            for (int i = 0; i <= k; i++) {
+               double h = dot(w,V[i]);
+               H[i][k] = h;
+               double[] Vi = V[i];
+               for (int l = 0; l < n; l++) {
+                  w[l] -= h*Vi[l];
+               }
+            }
+            double h = norm(w);
+            for (int i = 0; i < k; i++) {
+               double t = c[i]*H[i][k]+s[i]*H[i+1][k];
+               H[i+1][k] = -s[i]*H[i][k]+c[i]*H[i+1][k];
+               H[i][k] = t;
+            }
+            double rho = Maths.hypot(H[k][k],h);
+            if (rho == 0.0) {
+               // A is singular on the Krylov subspace.
+               break;
+            }
+            c[k] = H[k][k]/rho;
+            s[k] = h/rho;
+            H[k][k] = rho;
+            g[k+1] = -s[k]*g[k];
+            g[k] = c[k]*g[k];
+            k++;
+            record(Math.abs(g[k]));
+            if (h == 0.0 || Math.abs(g[k]) <= bound) {
+               break;
+            }
+            if (V[k] == null) {
+               V[k] = new double[n];
+            }
+            for (int i = 0; i < n; i++) {
+               V[k][i] = w[i]/h;
+            }
+         }
+         if (k == 0) {
+            break;
+         }
+
+         // x += M\(V*y), with y the solution of the triangular system H*y = g.
+         double[] y = new double[k];
+         for (int i = k-1; i >= 0; i--) {
+            double t = g[i];
+            for (int j = i+1; j < k; j++) {
+               t -= H[i][j]*y[j];
+            }
+            y[i] = t/H[i][i];
+         }
+         Arrays.fill(w,0.0);
+         for (int j = 0; j < k; j++) {
+            double[] Vj = V[j];
+            for (int i = 0; i < n; i++) {
+               w[i] += y[j]*Vj[i];
+            }
+         }
+         precondition(M,w,z);
+         for (int i = 0; i < n; i++) {
+            x[i] += z[i];
+         }
+
+         // The residual of the restart, computed explicitly since the
+         // recurrence drifts from it in floating point.
+         A.apply(x,r);
+         for (int i = 0; i < n; i++) {
+            r[i] = b[i]-r[i];
+         }
+         beta = norm(r);
+         correct(beta);
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,125 @@
+package Jama;
+
+   /** Incomplete Cholesky Preconditioner.
+   <P>
+   For a symmetric positive definite matrix A, the incomplete Cholesky
+   factorization IC(0) is a lower triangular matrix L with the nonzero
+   pattern of the lower triangle of A, so that L*L' agrees with A on that
+   pattern.  It is computed by the row oriented Cholesky algorithm of
+   CholeskyDecomposition with the entries outside the pattern dropped, so
+   the factorization and each application of M = L*L' cost about as much
+   as a few matrix-vector products.  Only the lower triangle of A is used.
+   <P>
+   The factorization exists for M-matrices and diagonally dominant
+   matrices, such as those of many finite element and difference
+   discretizations, but may break down for other positive definite
+   matrices, in which case the constructor throws an exception.
+   */
+
+public class IncompleteCholeskyPreconditioner implements Preconditioner, java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Compressed rows of the factor L.
+   @serial internal storage of L.
+   */
+   private SparseMatrix L;
+
+   /** Positions of the diagonal entries in the rows of L.
+   @serial diagonal positions.
+   */
+   private int[] diag;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Incomplete Cholesky factorization.
+   @param Arg    Square, symmetric positive definite matrix.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  RuntimeException  Incomplete factorization broke down.
+   */
+
+   public IncompleteCholeskyPreconditioner (Matrix Arg) {
+      this(new SparseMatrix(Arg));
+   }
+
+   /** Incomplete Cholesky factorization of a sparse matrix.
+   @param Arg    Square, symmetric positive definite sparse matrix.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  RuntimeException  Incomplete factorization broke down.
+   */
+
+   public IncompleteCholeskyPreconditioner (SparseMatrix Arg) {
+      if (Arg.getColumnDimension() != Arg.getRowDimension()) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      L = Arg.lower();
+      diag = L.diagonalIndex();
+      int[] ptr = L.ptr, col = L.col;
+      double[] val = L.val;
+
+      // Main loop.  L[j][k] is the dot product of rows j and k of L over
+      // the columns before k, which are merged in increasing order.
+      for (int j = 0; j < L.m; j++) {
+         double d = 0.0;
+         int pj1 = ptr[j+1]-(diag[j] >= 0 ? 1 : 0);
+         for (int p = ptr[j]; p < pj1; p++) {
+            int k = col[p];
+            double s = 0.0;
+            int q = ptr[k], qk = diag[k];
+            for (int pi = ptr[j]; pi < p && q < qk; ) {
+               if (col[pi] < col[q]) {
+                  pi++;
+               } else if (col[pi] > col[q]) {
+                  q++;
+               } else {
+                  s += val[pi++]*val[q++];
+               }
+            }
+            val[p] = s = (val[p] - s)/val[qk];
+            d = d + s*s;
+         }
+         d = (diag[j] >= 0 ? val[diag[j]] : 0.0) - d;
+         if (!(d > 0.0)) {
+            throw new RuntimeException("Incomplete factorization broke down.");
+         }
+         val[diag[j]] = Math.sqrt(d);
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Solve with the factors, z = (L*L')\r
+   @param r    vector of length n
+   @param z    vector of length n, overwritten with (L*L')\r
+   */
+
+   public void solve (double[] r, double[] z) {
+      int[] ptr = L.ptr, col = L.col;
+      double[] val = L.val;
+
+      // Solve L*y = r.
+      for (int i = 0; i < L.m; i++) {
+         double s = r[i];
+         for (int p = ptr[i]; p < diag[i]; p++) {
+            s -= val[p]*z[col[p]];
+         }
+         z[i] = s/val[diag[i]];
+      }
+
+      // Solve L'*z = y, by rows of L.
+      for (int i = L.m-1; i >= 0; i--) {
+         double s = z[i] /= val[diag[i]];
+         for (int p = ptr[i]; p < diag[i]; p++) {
+            z[col[p]] -= val[p]*s;
+         }
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
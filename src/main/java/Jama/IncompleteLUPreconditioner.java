@@ -0,0 +1,127 @@
+package Jama;
+import java.util.Arrays;
+
+   /** Incomplete LU Preconditioner.
+   <P>
+   For a square matrix A, the incomplete LU factorization ILU(0) is a unit
+   lower triangular matrix L and an upper triangular matrix U, with the
+   nonzero pattern of A between them, so that L*U agrees with A on that
+   pattern.  It is computed by Gaussian elimination without pivoting, as
+   in LUDecomposition but row by row, with the updates of entries outside
+   the pattern dropped.  The factorization and each application of
+   M = L*U cost about as much as a few matrix-vector products.
+   <P>
+   The factorization exists for M-matrices and diagonally dominant
+   matrices, but may meet a zero pivot for others, in which case the
+   constructor throws an exception.
+   */
+
+public class IncompleteLUPreconditioner implements Preconditioner, java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Compressed rows of L and U; the unit diagonal of L is not stored.
+   @serial internal storage of L and U.
+   */
+   private SparseMatrix LU;
+
+   /** Positions of the diagonal entries in the rows of LU.
+   @serial diagonal positions.
+   */
+   private int[] diag;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Incomplete LU factorization.
+   @param Arg    Square matrix.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  RuntimeException  Matrix is singular.
+   */
+
+   public IncompleteLUPreconditioner (Matrix Arg) {
+      this(new SparseMatrix(Arg));
+   }
+
+   /** Incomplete LU factorization of a sparse matrix.
+   @param Arg    Square sparse matrix.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  RuntimeException  Matrix is singular.
+   */
+
+   public IncompleteLUPreconditioner (SparseMatrix Arg) {
+      if (Arg.getColumnDimension() != Arg.getRowDimension()) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      LU = Arg.copy();
+      diag = LU.diagonalIndex();
+      int n = LU.m;
+      int[] ptr = LU.ptr, col = LU.col;
+      double[] val = LU.val;
+
+      // Position of each column in the current row, or -1.
+      int[] pos = new int[n];
+      Arrays.fill(pos,-1);
+
+      // Main loop.  Row i is reduced by the rows k < i of U, in
+      // increasing order, updating only the nonzeros of row i.
+      for (int i = 0; i < n; i++) {
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            pos[col[p]] = p;
+         }
+         for (int p = ptr[i]; p < ptr[i+1] && col[p] < i; p++) {
+            int k = col[p];
+            double lik = val[p] /= val[diag[k]];
+            for (int q = diag[k]+1; q < ptr[k+1]; q++) {
+               int t = pos[col[q]];
+               if (t >= 0) {
+                  val[t] -= lik*val[q];
+               }
+            }
+         }
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            pos[col[p]] = -1;
+         }
+         if (diag[i] < 0 || val[diag[i]] == 0.0) {
+            throw new RuntimeException("Matrix is singular.");
+         }
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Solve with the factors, z = (L*U)\r
+   @param r    vector of length n
+   @param z    vector of length n, overwritten with (L*U)\r
+   */
+
+   public void solve (double[] r, double[] z) {
+      int[] ptr = LU.ptr, col = LU.col;
+      double[] val = LU.val;
+
+      // Solve L*y = r.
+      for (int i = 0; i < LU.m; i++) {
+         double s = r[i];
+         for (int p = ptr[i]; p < diag[i]; p++) {
+            s -= val[p]*z[col[p]];
+         }
+         z[i] = s;
+      }
+
+      // Solve U*z = y.
+      for (int i = LU.m-1; i >= 0; i--) {
+         double s = z[i];
+         for (int p = diag[i]+1; p < ptr[i+1]; p++) {
+            s -= val[p]*z[col[p]];
+         }
+         z[i] = s/val[diag[i]];
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
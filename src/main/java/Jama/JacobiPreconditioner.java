@@ -0,0 +1,93 @@
+package Jama;
+
+   /** Jacobi Preconditioner.
+   <P>
+   The Jacobi preconditioner is the diagonal of A.  It costs n divisions
+   to apply and removes the effect of badly scaled rows and columns, but
+   does little for a system whose difficulty is not in its scaling.
+   */
+
+public class JacobiPreconditioner implements Preconditioner, java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Array for internal storage of the inverse diagonal.
+   @serial inverse of the diagonal of A.
+   */
+   private double[] d;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Jacobi preconditioner of a square matrix.
+   @param Arg    Square matrix with a nonzero diagonal.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  RuntimeException  Matrix has a zero diagonal entry.
+   */
+
+   public JacobiPreconditioner (Matrix Arg) {
+      int n = Arg.getRowDimension();
+      if (Arg.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      d = new double[n];
+      for (int i = 0; i < n; i++) {
+         d[i] = Arg.get(i,i);
+      }
+      invert();
+   }
+
+   /** Jacobi preconditioner of a sparse matrix.
+   @param Arg    Square sparse matrix with a nonzero diagonal.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  RuntimeException  Matrix has a zero diagonal entry.
+   */
+
+   public JacobiPreconditioner (SparseMatrix Arg) {
+      int n = Arg.getRowDimension();
+      if (Arg.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      int[] diag = Arg.diagonalIndex();
+      d = new double[n];
+      for (int i = 0; i < n; i++) {
+         d[i] = (diag[i] >= 0 ? Arg.val[diag[i]] : 0.0);
+      }
+      invert();
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Divide by the diagonal, z = D\r
+   @param r    vector of length n
+   @param z    vector of length n, overwritten with D\r
+   */
+
+   public void solve (double[] r, double[] z) {
+      for (int i = 0; i < d.length; i++) {
+         z[i] = d[i]*r[i];
+      }
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Replace the diagonal by its inverse. **/
+
+   private void invert () {
+      for (int i = 0; i < d.length; i++) {
+         if (d[i] == 0.0) {
+            throw new RuntimeException("Matrix has a zero diagonal entry.");
+         }
+         d[i] = 1.0/d[i];
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,207 @@
+package Jama;
+
+   /** Krylov Subspace Solver.
+   <P>
+   A Krylov solver computes an approximate solution x of the square linear
+   system A*x = b from the vectors b, A*b, A*A*b, ..., so A is only used
+   through matrix-vector products and may be any LinearOperator.  Each
+   iteration costs one or two products and a few vector operations, so
+   a well-conditioned system is solved in a handful of products, without
+   factoring or even storing A.
+   <P>
+   The iteration stops when the residual norm ||b - A*x|| is at most the
+   tolerance times ||b||, or when the iteration limit is reached.  The
+   subclasses compute the solution in their constructors, like the matrix
+   decompositions; the solution, the residual norms of every iteration and
+   the convergence flag are then available from the methods of this class.
+   <P>
+   The solvers accept a Preconditioner M that approximates A, so that
+   they solve the better conditioned system with M\A in place of A.  A
+   good preconditioner reduces the number of iterations by orders of
+   magnitude for the ill-conditioned systems of discretized partial
+   differential equations.  The method to use depends on A:
+   <UL>
+   <LI>ConjugateGradientSolver for symmetric positive definite A.
+   <LI>MINRESSolver for symmetric, possibly indefinite A.
+   <LI>GMRESSolver and BiCGSTABSolver for nonsymmetric A.
+   </UL>
+   */
+
+public abstract class KrylovSolver implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Dimension of the system.
+   @serial system dimension.
+   */
+   int n;
+
+   /** Array for internal storage of the solution.
+   @serial internal storage of the solution.
+   */
+   double[] x;
+
+   /** Residual norms, the initial one first, and their number.
+   @serial residual history.
+   @serial number of iterations plus one.
+   */
+   private double[] history;
+   private int count;
+
+   /** Did the residual reach the tolerance?
+   @serial convergence flag.
+   */
+   boolean converged;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Only the solvers of this package extend this class. **/
+
+   KrylovSolver () {
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Return the solution
+   @return     x, of length n
+   */
+
+   public double[] getSolution () {
+      double[] y = new double[n];
+      System.arraycopy(x,0,y,0,n);
+      return y;
+   }
+
+   /** Is the solution within the tolerance?
+   @return     true if the residual norm reached the tolerance.
+   */
+
+   public boolean isConverged () {
+      return converged;
+   }
+
+   /** Return the number of iterations
+   @return     number of iterations performed.
+   */
+
+   public int getIterationCount () {
+      return count-1;
+   }
+
+   /** Return the residual history
+   @return     the residual norm ||b - A*x|| of the initial guess and after
+               each iteration.
+   */
+
+   public double[] getResidualHistory () {
+      double[] h = new double[count];
+      System.arraycopy(history,0,h,0,count);
+      return h;
+   }
+
+   /** Return the final residual norm
+   @return     ||b - A*x|| as estimated by the last iteration.
+   */
+
+   public double getResidualNorm () {
+      return history[count-1];
+   }
+
+/* ------------------------
+   Package Methods
+ * ------------------------ */
+
+   /** Check the dimensions and set up the solution and the history.
+   @param A         Square operator.
+   @param b         Right hand side, of length n.
+   @param x0        Initial guess, of length n, or null for zero.
+   @param maxIter   Maximum number of iterations.
+   @return          the initial residual b - A*x0.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   double[] initialize (LinearOperator A, double[] b, double[] x0, int maxIter) {
+      n = A.getRowDimension();
+      if (A.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Operator must be square.");
+      }
+      if (b.length != n || (x0 != null && x0.length != n)) {
+         throw new IllegalArgumentException("Vector lengths must agree.");
+      }
+      x = new double[n];
+      history = new double[Math.max(maxIter,0)+1];
+      count = 0;
+      double[] r = new double[n];
+      if (x0 != null) {
+         System.arraycopy(x0,0,x,0,n);
+         A.apply(x,r);
+      }
+      for (int i = 0; i < n; i++) {
+         r[i] = b[i]-r[i];
+      }
+      return r;
+   }
+
+   /** Append a residual norm to the history.
+   @param rnorm     Residual norm after the latest iteration.
+   */
+
+   void record (double rnorm) {
+      history[count++] = rnorm;
+   }
+
+   /** Replace the latest residual norm, with one computed explicitly.
+   @param rnorm     Residual norm.
+   */
+
+   void correct (double rnorm) {
+      history[count-1] = rnorm;
+   }
+
+   /** Number of iterations performed so far.
+   @return     the number of recorded norms, less the initial one.
+   */
+
+   int iterations () {
+      return count-1;
+   }
+
+   /** Apply a preconditioner, or copy if there is none.
+   @param M    Preconditioner, or null.
+   @param r    vector of length n
+   @param z    vector of length n, overwritten with M\r
+   */
+
+   void precondition (Preconditioner M, double[] r, double[] z) {
+      if (M == null) {
+         System.arraycopy(r,0,z,0,n);
+      } else {
+         M.solve(r,z);
+      }
+   }
+
+   /** Dot product of two vectors of length n. */
+
+   double dot (double[] u, double[] v) {
+      double s = 0.0;
+      for (int i = 0; i < n; i++) {
+         s += u[i]*v[i];
+      }
+      return s;
+   }
+
+   /** Euclidean norm of a vector of length n. */
+
+   double norm (double[] u) {
+      return Math.sqrt(dot(u,u));
+   }
+
+  private static final long serialVersionUID = 1;
+}
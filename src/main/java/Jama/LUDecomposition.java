@@ -1,5 +1,8 @@
 package Jama;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
    /** LU Decomposition.
    <P>
    For an m-by-n matrix A with m >= n, the LU decomposition is an m-by-n
@@ -36,18 +39,40 @@ public class LUDecomposition implements java.io.Serializable {
    */
    private int[] piv;
 
+   /** Number of columns in a panel of the blocked factorization. */
+   private static final int NB = 64;
+
+   /** Matrices with fewer multiply-adds than this are factored serially. */
+   private static final long PARALLEL = 1L << 24;
+
+   /** Column blocks with fewer multiply-adds than this are not split. */
+   private static final long LEAF = 1L << 20;
+
 /* ------------------------
    Constructor
  * ------------------------ */
 
    /** LU Decomposition
-       Structure to access L, U and piv.
+       Structure to access L, U and piv.  Large matrices are factored in
+       parallel on the default pool of Matrix.
    @param  A Rectangular matrix
    */
 
    public LUDecomposition (Matrix A) {
+      this(A,Matrix.getDefaultPool());
+   }
+
+   /** LU Decomposition, with the work for each panel spread over a pool.
+   @param  A    Rectangular matrix
+   @param  pool Pool that runs the updates, or null to factor serially.
+   */
+
+   public LUDecomposition (Matrix A, ForkJoinPool pool) {
 
-   // Use a "left-looking", dot-product, Crout/Doolittle algorithm.
+   // Use a "right-looking", blocked Gaussian elimination.  Each panel of
+   // NB columns is factored in place, then the rest of its block row is
+   // solved with the unit lower triangle and the trailing submatrix is
+   // updated with one matrix product, where most of the time is spent.
 
       LU = A.getArrayCopy();
       m = A.getRowDimension();
@@ -57,58 +82,28 @@ public class LUDecomposition implements java.io.Serializable {
          piv[i] = i;
       }
       pivsign = 1;
-      double[] LUrowi;
-      double[] LUcolj = new double[m];
-
-      // Outer loop.
-
-      for (int j = 0; j < n; j++) {
-
-         // Make a copy of the j-th column to localize references.
-
-         for (int i = 0; i < m; i++) {
-            LUcolj[i] = LU[i][j];
+      int kmax = Math.min(m,n);
+      int[] ipiv = new int[kmax];
+
+      if (pool == null || pool.getParallelism() < 2 || (long) m*n*kmax < PARALLEL) {
+         for (int j = 0; j < kmax; j += NB) {
+            int j1 = Math.min(j+NB,kmax);
+            factorPanel(j,j1,ipiv);
+            exchange(j,j1,0,j,ipiv);
+            update(j,j1,j1,n,ipiv);
          }
+         return;
+      }
 
-         // Apply previous transformations.
-
-         for (int i = 0; i < m; i++) {
-            LUrowi = LU[i];
-
-            // Most of the time is spent in the following dot product.
-
-            int kmax = Math.min(i,j);
-            double s = 0.0;
-            for (int k = 0; k < kmax; k++) {
-               s += LUrowi[k]*LUcolj[k];
-            }
-
-            LUrowi[j] = LUcolj[i] -= s;
-         }
-   
-         // Find pivot and exchange if necessary.
+      // With lookahead, the columns of the next panel are updated and
+      // factored first, while the rest of the trailing submatrix is
+      // updated by other threads.
 
-         int p = j;
-         for (int i = j+1; i < m; i++) {
-            if (Math.abs(LUcolj[i]) > Math.abs(LUcolj[p])) {
-               p = i;
-            }
-         }
-         if (p != j) {
-            for (int k = 0; k < n; k++) {
-               double t = LU[p][k]; LU[p][k] = LU[j][k]; LU[j][k] = t;
-            }
-            int k = piv[p]; piv[p] = piv[j]; piv[j] = k;
-            pivsign = -pivsign;
-         }
-
-         // Compute multipliers.
-         
-         if (j < m & LU[j][j] != 0.0) {
-            for (int i = j+1; i < m; i++) {
-               LU[i][j] /= LU[j][j];
-            }
-         }
+      factorPanel(0,Math.min(NB,kmax),ipiv);
+      for (int j = 0; j < kmax; j += NB) {
+         int j1 = Math.min(j+NB,kmax);
+         int j2 = Math.min(j1+NB,kmax);
+         pool.invoke(new Step(j,j1,j2,ipiv));
       }
    }
 
@@ -284,8 +279,7 @@ public class LUDecomposition implements java.io.Serializable {
 
       // Copy right hand side with pivoting
       int nx = B.getColumnDimension();
-      Matrix Xmat = B.getMatrix(piv,0,nx-1);
-      double[][] X = Xmat.getArray();
+      double[][] X = B.getMatrix(piv,0,nx-1).getArray();
 
       // Solve L*Y = B(piv,:)
       for (int k = 0; k < n; k++) {
@@ -306,7 +300,156 @@ public class LUDecomposition implements java.io.Serializable {
             }
          }
       }
-      return Xmat;
+      return new Matrix(X,m,nx);
    }
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Factor the panel LU(j0:m-1,j0:j1-1) by Gaussian elimination with
+       partial pivoting.  Rows are exchanged only within the panel; the
+       exchange for column k is recorded as ipiv[k], for exchange().
+   @param j0   First column of the panel.
+   @param j1   Column after the last column of the panel.
+   @param ipiv Row exchanged with each pivot row.
+   */
+
+   private void factorPanel (int j0, int j1, int[] ipiv) {
+      for (int k = j0; k < j1; k++) {
+
+         // Find pivot and exchange if necessary.
+
+         int p = k;
+         for (int i = k+1; i < m; i++) {
+            if (Math.abs(LU[i][k]) > Math.abs(LU[p][k])) {
+               p = i;
+            }
+         }
+         ipiv[k] = p;
+         if (p != k) {
+            for (int c = j0; c < j1; c++) {
+               double t = LU[p][c]; LU[p][c] = LU[k][c]; LU[k][c] = t;
+            }
+            int q = piv[p]; piv[p] = piv[k]; piv[k] = q;
+            pivsign = -pivsign;
+         }
+
+         // Compute multipliers and eliminate k-th column within the panel.
+
+         double[] LUrowk = LU[k];
+         if (LUrowk[k] != 0.0) {
+            for (int i = k+1; i < m; i++) {
+               double[] LUrowi = LU[i];
+               double l = LUrowi[k] /= LUrowk[k];
+               for (int c = k+1; c < j1; c++) {
+                  LUrowi[c] -= l*LUrowk[c];
+               }
+            }
+         }
+      }
+   }
+
+   /** Apply the row exchanges of the panel j0:j1-1 to the columns c0:c1-1.
+   @param j0   First column of the panel.
+   @param j1   Column after the last column of the panel.
+   @param c0   First column to exchange.
+   @param c1   Column after the last column to exchange.
+   @param ipiv Row exchanged with each pivot row.
+   */
+
+   private void exchange (int j0, int j1, int c0, int c1, int[] ipiv) {
+      for (int k = j0; k < j1; k++) {
+         int p = ipiv[k];
+         if (p != k) {
+            double[] LUrowp = LU[p], LUrowk = LU[k];
+            for (int c = c0; c < c1; c++) {
+               double t = LUrowp[c]; LUrowp[c] = LUrowk[c]; LUrowk[c] = t;
+            }
+         }
+      }
+   }
+
+   /** Bring the columns c0:c1-1 up to date with the factored panel j0:j1-1:
+       exchange their rows, solve LU(j0:j1-1,c0:c1-1) with the unit lower
+       triangle of the panel and update LU(j1:m-1,c0:c1-1).
+   @param j0   First column of the panel.
+   @param j1   Column after the last column of the panel.
+   @param c0   First column to update, at least j1.
+   @param c1   Column after the last column to update.
+   @param ipiv Row exchanged with each pivot row.
+   */
+
+   private void update (int j0, int j1, int c0, int c1, int[] ipiv) {
+      if (c0 >= c1) {
+         return;
+      }
+      exchange(j0,j1,c0,c1,ipiv);
+      for (int k = j0; k < j1; k++) {
+         double[] LUrowk = LU[k];
+         for (int i = k+1; i < j1; i++) {
+            double[] LUrowi = LU[i];
+            double l = LUrowi[k];
+            for (int c = c0; c < c1; c++) {
+               LUrowi[c] -= l*LUrowk[c];
+            }
+         }
+      }
+      if (j1 < m) {
+         Matrix X = new Matrix(LU,m,n);
+         Matrix.gemm(-1.0,X.getView(j1,m-1,j0,j1-1),false,
+                     X.getView(j0,j1-1,c0,c1-1),false,
+                     1.0,X.getView(j1,m-1,c0,c1-1));
+      }
+   }
+
+   /** One step of the parallel factorization.  The panel j0:j1-1 has been
+       factored; this brings the other columns up to date with it and
+       factors the next panel j1:j2-1.
+   */
+
+   private final class Step extends RecursiveAction {
+      private final int j0, j1, j2;
+      private final int[] ipiv;
+
+      Step (int j0, int j1, int j2, int[] ipiv) {
+         this.j0 = j0; this.j1 = j1; this.j2 = j2; this.ipiv = ipiv;
+      }
+
+      protected void compute () {
+         invokeAll(new Columns(j0,j1,j2,n,ipiv),
+                   adapt(() -> {
+                      update(j0,j1,j1,j2,ipiv);
+                      factorPanel(j1,j2,ipiv);
+                   }),
+                   adapt(() -> exchange(j0,j1,0,j0,ipiv)));
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   /** Update of the columns c0:c1-1 with the panel j0:j1-1, split into
+       blocks of columns that are updated in parallel.
+   */
+
+   private final class Columns extends RecursiveAction {
+      private final int j0, j1, c0, c1;
+      private final int[] ipiv;
+
+      Columns (int j0, int j1, int c0, int c1, int[] ipiv) {
+         this.j0 = j0; this.j1 = j1; this.c0 = c0; this.c1 = c1; this.ipiv = ipiv;
+      }
+
+      protected void compute () {
+         if (c1-c0 < 2*NB || (long) (m-j0)*(j1-j0)*(c1-c0) <= LEAF) {
+            update(j0,j1,c0,c1,ipiv);
+         } else {
+            int mid = c0 + (c1-c0)/2/NB*NB;
+            invokeAll(new Columns(j0,j1,c0,mid,ipiv), new Columns(j0,j1,mid,c1,ipiv));
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
   private static final long serialVersionUID = 1;
 }
@@ -0,0 +1,31 @@
+package Jama;
+
+/** Linear Operator.
+<P>
+   A linear operator is anything that can multiply a vector, y = A*x,
+   without necessarily storing A: a Matrix, a sparse matrix, or a product
+   computed on the fly.  Iterative methods such as the Lanczos partial
+   eigensolver and the Krylov solvers only use A through this interface.
+*/
+
+public interface LinearOperator {
+
+   /** Get row dimension.
+   @return     m, the length of y.
+   */
+
+   int getRowDimension ();
+
+   /** Get column dimension.
+   @return     n, the length of x.
+   */
+
+   int getColumnDimension ();
+
+   /** Operator-vector multiplication, y = A*x
+   @param x    vector of length n
+   @param y    vector of length m, overwritten with A*x
+   */
+
+   void apply (double[] x, double[] y);
+}
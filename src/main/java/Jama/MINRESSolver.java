@@ -0,0 +1,170 @@
+package Jama;
+import Jama.util.*;
+
+   /** Minimum Residual Solver.
+   <P>
+   For a symmetric operator A, which may be indefinite, MINRES minimizes
+   the residual norm over the Krylov subspace.  The Lanczos process builds
+   an orthonormal basis with a three-term recurrence and the projected
+   tridiagonal system is solved by Givens rotations, so an iteration costs
+   one matrix-vector product and seven vectors of storage, as in the
+   algorithm of Paige and Saunders.  The residual norm never increases.
+   <P>
+   A preconditioner M must be symmetric positive definite.  The method
+   then minimizes the residual in the norm sqrt(r'*(M\r)) instead, so the
+   Euclidean residual norms, which are recorded and tested against the
+   tolerance as in the other solvers, may increase.  They are updated by
+   a recurrence, with A times the search directions, and the last one is
+   computed explicitly before convergence is declared.
+   */
+
+public class MINRESSolver extends KrylovSolver {
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Solve A*x = b from a zero initial guess, to a relative tolerance
+       of 1e-10 within 2n iterations.
+   @param A    Square, symmetric operator.
+   @param b    Right hand side.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public MINRESSolver (LinearOperator A, double[] b) {
+      this(A,b,null,null,1e-10,2*A.getRowDimension());
+   }
+
+   /** Solve A*x = b with a preconditioner, from a zero initial guess, to
+       a relative tolerance of 1e-10 within 2n iterations.
+   @param A    Square, symmetric operator.
+   @param b    Right hand side.
+   @param M    Symmetric positive definite preconditioner.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public MINRESSolver (LinearOperator A, double[] b, Preconditioner M) {
+      this(A,b,null,M,1e-10,2*A.getRowDimension());
+   }
+
+   /** Solve A*x = b.
+   @param A         Square, symmetric operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public MINRESSolver (LinearOperator A, double[] b, double[] x0,
+                        double tol, int maxIter) {
+      this(A,b,x0,null,tol,maxIter);
+   }
+
+   /** Solve A*x = b with a preconditioner.
+   @param A         Square, symmetric operator.
+   @param b         Right hand side.
+   @param x0        Initial guess, or null for zero.
+   @param M         Symmetric positive definite preconditioner, or null for none.
+   @param tol       Relative tolerance on the residual norm.
+   @param maxIter   Maximum number of iterations.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Vector lengths must agree.
+   */
+
+   public MINRESSolver (LinearOperator A, double[] b, double[] x0,
+                        Preconditioner M, double tol, int maxIter) {
+      double[] r2 = initialize(A,b,x0,maxIter);
+      double eps = Math.pow(2.0,-52.0);
+      double bound = tol*norm(b);
+      double[] r = r2.clone();
+      double rnorm = norm(r);
+
+      // Lanczos vectors are v = y/beta, with r2 the latest residual of the
+      // three-term recurrence, r1 the one before it, and y = M\r2.  The
+      // products of A with v and the search directions w are kept in av
+      // and aw, to update the residual r = b - A*x.
+      double[] r1 = new double[n];
+      double[] v = new double[n];
+      double[] w = new double[n];
+      double[] w1 = new double[n];
+      double[] w2 = new double[n];
+      double[] av = new double[n];
+      double[] aw = new double[n];
+      double[] aw1 = new double[n];
+      double[] aw2 = new double[n];
+      double[] y = new double[n];
+      precondition(M,r2,y);
+      System.arraycopy(r2,0,r1,0,n);
+      double beta = Math.sqrt(dot(r2,y));
+      double oldb = 0.0, dbar = 0.0, epsln = 0.0, phibar = beta;
+      double cs = -1.0, sn = 0.0;
+      record(rnorm);
+      while (!(converged = rnorm <= bound) && iterations() < maxIter) {
+         if (beta == 0.0) {
+            // The Krylov subspace is invariant but b is not in the range.
+            break;
+         }
+         for (int i = 0; i < n; i++) {
+            v[i] = y[i]/beta;
+         }
+         A.apply(v,av);
+         System.arraycopy(av,0,y,0,n);
+         if (iterations() > 0) {
+            double s = beta/oldb;
+            for (int i = 0; i < n; i++) {
+               y[i] -= s*r1[i];
+            }
+         }
+         double alpha = dot(v,y);
+         double s = alpha/beta;
+         for (int i = 0; i < n; i++) {
+            y[i] -= s*r2[i];
+         }
+         double[] t = r1; r1 = r2; r2 = t;
+         System.arraycopy(y,0,r2,0,n);
+         precondition(M,r2,y);
+         oldb = beta;
+         beta = Math.sqrt(dot(r2,y));
+
+         // Apply the previous rotation to the new column of the tridiagonal
+         // matrix, and the new rotation that annihilates beta.
+         double oldeps = epsln;
+         double delta = cs*dbar+sn*alpha;
+         double gbar = sn*dbar-cs*alpha;
+         epsln = sn*beta;
+         dbar = -cs*beta;
+         double gamma = Math.max(Maths.hypot(gbar,beta),eps);
+         cs = gbar/gamma;
+         sn = beta/gamma;
+         double phi = cs*phibar;
+         phibar = sn*phibar;
+
+         // Update the search direction, the solution and the residual.
+         t = w1; w1 = w2; w2 = w; w = t;
+         t = aw1; aw1 = aw2; aw2 = aw; aw = t;
+         for (int i = 0; i < n; i++) {
+            w[i] = (v[i]-oldeps*w1[i]-delta*w2[i])/gamma;
+            aw[i] = (av[i]-oldeps*aw1[i]-delta*aw2[i])/gamma;
+            x[i] += phi*w[i];
+            r[i] -= phi*aw[i];
+         }
+         rnorm = norm(r);
+         if (rnorm <= bound) {
+            // Confirm with the residual computed explicitly, since the
+            // recurrence drifts from it in floating point.
+            A.apply(x,r);
+            for (int i = 0; i < n; i++) {
+               r[i] = b[i]-r[i];
+            }
+            rnorm = norm(r);
+         }
+         record(rnorm);
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
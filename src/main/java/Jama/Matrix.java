@@ -8,6 +8,7 @@ import java.text.FieldPosition;
 import java.io.PrintWriter;
 import java.io.BufferedReader;
 import java.io.StreamTokenizer;
+import java.util.concurrent.ForkJoinPool;
 import Jama.util.*;
 
 /**
@@ -53,7 +54,7 @@ import Jama.util.*;
 @version 5 August 1998
 */
 
-public class Matrix implements Cloneable, java.io.Serializable {
+public class Matrix implements Cloneable, java.io.Serializable, LinearOperator {
 
 /* ------------------------
    Class variables
@@ -64,12 +65,37 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
    private double[][] A;
 
+   /** Contiguous storage of elements, used in place of A by matrices
+       created with contiguous() or wrap().  Element (i,j) is kept in
+       data[offset+i*ld+j].
+   @serial contiguous array storage.
+   @serial offset of the first element.
+   @serial leading dimension.
+   */
+   private double[] data;
+   private int offset, ld;
+
+   /** Mapping of a view onto the storage it shares.  Row i of the view
+       is row rowIndex[i] of the storage, or rowBase+i if rowIndex is null;
+       within that row, column j is at colIndex[j], or colBase+j if
+       colIndex is null.  A transposed view exchanges i and j first.
+       Windows on contiguous storage are folded into offset instead.
+   */
+   private transient int[] rowIndex, colIndex;
+   private transient int rowBase, colBase;
+   private transient boolean transposed, view;
+
    /** Row and column dimensions.
    @serial row dimension.
    @serial column dimension.
    */
    private int m, n;
 
+   /** Pool on which the decompositions run when they are not given one,
+       or null if they work serially.
+   */
+   private static volatile ForkJoinPool defaultPool = ForkJoinPool.commonPool();
+
 /* ------------------------
    Constructors
  * ------------------------ */
@@ -151,10 +177,132 @@ public class Matrix implements Cloneable, java.io.Serializable {
       }
    }
 
+   /** Construct a matrix on contiguous storage without checking arguments.
+   @param data   One-dimensional array holding the elements row by row.
+   @param offset Index of element (0,0) in data.
+   @param ld     Distance in data between the starts of consecutive rows.
+   @param m      Number of rows.
+   @param n      Number of colums.
+   */
+
+   private Matrix (double[] data, int offset, int ld, int m, int n) {
+      this.data = data;
+      this.offset = offset;
+      this.ld = ld;
+      this.m = m;
+      this.n = n;
+   }
+
 /* ------------------------
    Public Methods
  * ------------------------ */
 
+   /** Construct an m-by-n matrix of zeros in contiguous storage.
+       All the elements are kept row by row in a single one-dimensional
+       array instead of one array per row.  Operations on such a matrix
+       return matrices with contiguous storage.
+   @param m    Number of rows.
+   @param n    Number of colums.
+   @return     An m-by-n matrix of zeros.
+   */
+
+   public static Matrix contiguous (int m, int n) {
+      return new Matrix(new double[m*n],0,n,m,n);
+   }
+
+   /** Construct a matrix with contiguous storage on a row packed array.
+       The array is used directly, not copied.
+   @param vals One-dimensional array of doubles, packed by rows.
+   @param m    Number of rows.
+   @param n    Number of colums.
+   @return     An m-by-n matrix backed by vals.
+   @exception  IllegalArgumentException Array length must be m*n.
+   */
+
+   public static Matrix wrap (double[] vals, int m, int n) {
+      if (vals.length != m*n) {
+         throw new IllegalArgumentException("Array length must be m*n.");
+      }
+      return new Matrix(vals,0,n,m,n);
+   }
+
+   /** Construct a matrix with contiguous storage on part of an array.
+       Element (i,j) is vals[offset+i*ld+j].  The array is used directly,
+       not copied.
+   @param vals   One-dimensional array of doubles, stored by rows.
+   @param offset Index of element (0,0) in vals.
+   @param ld     Leading dimension, the distance between the starts of two rows.
+   @param m      Number of rows.
+   @param n      Number of colums.
+   @return       An m-by-n matrix backed by vals.
+   @exception    IllegalArgumentException Leading dimension must be at least n.
+   @exception    IllegalArgumentException Array is too short.
+   */
+
+   public static Matrix wrap (double[] vals, int offset, int ld, int m, int n) {
+      if (ld < n) {
+         throw new IllegalArgumentException("Leading dimension must be at least n.");
+      }
+      if (offset < 0 || m < 0 || n < 0
+          || (m > 0 && (long) offset + (long) (m-1)*ld + n > vals.length)) {
+         throw new IllegalArgumentException("Array is too short.");
+      }
+      return new Matrix(vals,offset,ld,m,n);
+   }
+
+   /** Copy a matrix into contiguous storage.
+   @return     A copy of the matrix whose elements are kept in one array.
+   */
+
+   public Matrix toContiguous () {
+      if (!hasRows()) {
+         return copy().toContiguous();
+      }
+      Matrix X = contiguous(m,n);
+      for (int i = 0; i < m; i++) {
+         System.arraycopy(row(i),rowOffset(i),X.data,i*n,n);
+      }
+      return X;
+   }
+
+   /** Is the matrix stored in a single one-dimensional array?  A window
+       made by getView on such a matrix is contiguous too, although it is
+       also a view.
+   @return     true if the matrix has contiguous storage.
+   */
+
+   public boolean isContiguous () {
+      return A == null && !transposed && rowIndex == null && colIndex == null;
+   }
+
+   /** Access the internal one-dimensional array of a matrix with
+       contiguous storage.  Element (i,j) is kept at index
+       getContiguousOffset() + i*getLeadingDimension() + j.
+   @return     Pointer to the array of matrix elements, or null if the
+               matrix is stored in a two-dimensional array or is an index
+               or transpose view.
+   */
+
+   public double[] getContiguousArray () {
+      return (isContiguous() ? data : null);
+   }
+
+   /** Index of element (0,0) in the array of a matrix with contiguous storage.
+   @return     offset of the first element, 0 for a two-dimensional array.
+   */
+
+   public int getContiguousOffset () {
+      return offset;
+   }
+
+   /** Leading dimension of a matrix with contiguous storage.
+   @return     distance between the starts of two rows, 0 for a two-dimensional array.
+   */
+
+   public int getLeadingDimension () {
+      return ld;
+   }
+
    /** Construct a matrix from a copy of a 2-D array.
    @param A    Two-dimensional array of doubles.
    @exception  IllegalArgumentException All rows must have the same length
@@ -181,11 +329,16 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix copy () {
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
-         for (int j = 0; j < n; j++) {
-            C[i][j] = A[i][j];
+         if (hasRows()) {
+            System.arraycopy(row(i),rowOffset(i),X.row(i),X.rowOffset(i),n);
+         } else {
+            double[] Crow = X.row(i);
+            int c = X.rowOffset(i);
+            for (int j = 0; j < n; j++) {
+               Crow[c+j] = get(i,j);
+            }
          }
       }
       return X;
@@ -199,11 +352,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
    }
 
    /** Access the internal two-dimensional array.
+       A matrix with contiguous storage, or a view, has no two-dimensional
+       array of its own; a copy of its elements is returned instead, and
+       changes made to the copy are not seen by the matrix.
    @return     Pointer to the two-dimensional array of matrix elements.
    */
 
    public double[][] getArray () {
-      return A;
+      return (A != null && !view ? A : getArrayCopy());
    }
 
    /** Copy the internal two-dimensional array.
@@ -211,11 +367,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double[][] getArrayCopy () {
+      if (!hasRows()) {
+         return copy().getArrayCopy();
+      }
       double[][] C = new double[m][n];
       for (int i = 0; i < m; i++) {
-         for (int j = 0; j < n; j++) {
-            C[i][j] = A[i][j];
-         }
+         System.arraycopy(row(i),rowOffset(i),C[i],0,n);
       }
       return C;
    }
@@ -225,10 +382,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double[] getColumnPackedCopy () {
+      if (!hasRows()) {
+         return copy().getColumnPackedCopy();
+      }
       double[] vals = new double[m*n];
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i);
+         int a = rowOffset(i);
          for (int j = 0; j < n; j++) {
-            vals[i+j*m] = A[i][j];
+            vals[i+j*m] = Arow[a+j];
          }
       }
       return vals;
@@ -239,11 +401,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double[] getRowPackedCopy () {
+      if (!hasRows()) {
+         return copy().getRowPackedCopy();
+      }
       double[] vals = new double[m*n];
       for (int i = 0; i < m; i++) {
-         for (int j = 0; j < n; j++) {
-            vals[i*n+j] = A[i][j];
-         }
+         System.arraycopy(row(i),rowOffset(i),vals,i*n,n);
       }
       return vals;
    }
@@ -272,7 +435,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double get (int i, int j) {
-      return A[i][j];
+      if (A != null && !view) {
+         return A[i][j];
+      }
+      checkIndices(i,j);
+      if (transposed) {
+         int t = i; i = j; j = t;
+      }
+      return row(i)[rowOffset(i) + (colIndex != null ? colIndex[j] : j)];
    }
 
    /** Get a submatrix.
@@ -285,12 +455,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix getMatrix (int i0, int i1, int j0, int j1) {
-      Matrix X = new Matrix(i1-i0+1,j1-j0+1);
-      double[][] B = X.getArray();
+      Matrix X = like(i1-i0+1,j1-j0+1);
       try {
          for (int i = i0; i <= i1; i++) {
             for (int j = j0; j <= j1; j++) {
-               B[i-i0][j-j0] = A[i][j];
+               X.set(i-i0,j-j0,get(i,j));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -307,12 +476,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix getMatrix (int[] r, int[] c) {
-      Matrix X = new Matrix(r.length,c.length);
-      double[][] B = X.getArray();
+      Matrix X = like(r.length,c.length);
       try {
          for (int i = 0; i < r.length; i++) {
             for (int j = 0; j < c.length; j++) {
-               B[i][j] = A[r[i]][c[j]];
+               X.set(i,j,get(r[i],c[j]));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -330,12 +498,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix getMatrix (int i0, int i1, int[] c) {
-      Matrix X = new Matrix(i1-i0+1,c.length);
-      double[][] B = X.getArray();
+      Matrix X = like(i1-i0+1,c.length);
       try {
          for (int i = i0; i <= i1; i++) {
             for (int j = 0; j < c.length; j++) {
-               B[i-i0][j] = A[i][c[j]];
+               X.set(i-i0,j,get(i,c[j]));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -353,12 +520,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix getMatrix (int[] r, int j0, int j1) {
-      Matrix X = new Matrix(r.length,j1-j0+1);
-      double[][] B = X.getArray();
+      Matrix X = like(r.length,j1-j0+1);
       try {
          for (int i = 0; i < r.length; i++) {
             for (int j = j0; j <= j1; j++) {
-               B[i][j-j0] = A[r[i]][j];
+               X.set(i,j-j0,get(r[i],j));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -367,6 +533,59 @@ public class Matrix implements Cloneable, java.io.Serializable {
       return X;
    }
 
+   /** Get a view of a submatrix.  The view shares the elements of this
+       matrix: changes to either one are seen by the other.  No elements
+       are copied.
+   @param i0   Initial row index
+   @param i1   Final row index
+   @param j0   Initial column index
+   @param j1   Final column index
+   @return     A(i0:i1,j0:j1)
+   @exception  ArrayIndexOutOfBoundsException Submatrix indices
+   */
+
+   public Matrix getView (int i0, int i1, int j0, int j1) {
+      return view(null,i0,i1-i0+1,null,j0,j1-j0+1);
+   }
+
+   /** Get a view of a submatrix.  The view shares the elements of this
+       matrix; only the index arrays are copied.
+   @param r    Array of row indices.
+   @param c    Array of column indices.
+   @return     A(r(:),c(:))
+   @exception  ArrayIndexOutOfBoundsException Submatrix indices
+   */
+
+   public Matrix getView (int[] r, int[] c) {
+      return view(r,0,r.length,c,0,c.length);
+   }
+
+   /** Get a view of a submatrix.  The view shares the elements of this
+       matrix; only the index array is copied.
+   @param i0   Initial row index
+   @param i1   Final row index
+   @param c    Array of column indices.
+   @return     A(i0:i1,c(:))
+   @exception  ArrayIndexOutOfBoundsException Submatrix indices
+   */
+
+   public Matrix getView (int i0, int i1, int[] c) {
+      return view(null,i0,i1-i0+1,c,0,c.length);
+   }
+
+   /** Get a view of a submatrix.  The view shares the elements of this
+       matrix; only the index array is copied.
+   @param r    Array of row indices.
+   @param j0   Initial column index
+   @param j1   Final column index
+   @return     A(r(:),j0:j1)
+   @exception  ArrayIndexOutOfBoundsException Submatrix indices
+   */
+
+   public Matrix getView (int[] r, int j0, int j1) {
+      return view(r,0,r.length,null,j0,j1-j0+1);
+   }
+
    /** Set a single element.
    @param i    Row index.
    @param j    Column index.
@@ -375,7 +594,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public void set (int i, int j, double s) {
-      A[i][j] = s;
+      if (A != null && !view) {
+         A[i][j] = s;
+         return;
+      }
+      checkIndices(i,j);
+      if (transposed) {
+         int t = i; i = j; j = t;
+      }
+      row(i)[rowOffset(i) + (colIndex != null ? colIndex[j] : j)] = s;
    }
 
    /** Set a submatrix.
@@ -391,7 +618,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
       try {
          for (int i = i0; i <= i1; i++) {
             for (int j = j0; j <= j1; j++) {
-               A[i][j] = X.get(i-i0,j-j0);
+               set(i,j,X.get(i-i0,j-j0));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -410,7 +637,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
       try {
          for (int i = 0; i < r.length; i++) {
             for (int j = 0; j < c.length; j++) {
-               A[r[i]][c[j]] = X.get(i,j);
+               set(r[i],c[j],X.get(i,j));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -430,7 +657,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
       try {
          for (int i = 0; i < r.length; i++) {
             for (int j = j0; j <= j1; j++) {
-               A[r[i]][j] = X.get(i,j-j0);
+               set(r[i],j,X.get(i,j-j0));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -450,7 +677,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
       try {
          for (int i = i0; i <= i1; i++) {
             for (int j = 0; j < c.length; j++) {
-               A[i][c[j]] = X.get(i-i0,j);
+               set(i,c[j],X.get(i-i0,j));
             }
          }
       } catch(ArrayIndexOutOfBoundsException e) {
@@ -463,28 +690,61 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix transpose () {
-      Matrix X = new Matrix(n,m);
-      double[][] C = X.getArray();
+      if (!hasRows()) {
+         return copy().transpose();
+      }
+      Matrix X = like(n,m);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i);
+         int a = rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[j][i] = A[i][j];
+            X.row(j)[X.rowOffset(j)+i] = Arow[a+j];
          }
       }
       return X;
    }
 
+   /** Matrix transpose as a view.  The view shares the elements of this
+       matrix, so nothing is copied; products and gemm use it in place.
+   @return    A'
+   */
+
+   public Matrix transposeView () {
+      Matrix X = share();
+      X.m = n;
+      X.n = m;
+      X.transposed = !transposed;
+      X.view = true;
+      return X;
+   }
+
+   /** Is the matrix a view sharing the elements of another matrix?
+   @return     true if the matrix was made by getView or transposeView.
+   */
+
+   public boolean isView () {
+      return view;
+   }
+
    /** One norm
    @return    maximum column sum.
    */
 
    public double norm1 () {
+      if (!hasRows()) {
+         return copy().norm1();
+      }
+      double[] s = new double[n];
+      for (int i = 0; i < m; i++) {
+         double[] Arow = row(i);
+         int a = rowOffset(i);
+         for (int j = 0; j < n; j++) {
+            s[j] += Math.abs(Arow[a+j]);
+         }
+      }
       double f = 0;
       for (int j = 0; j < n; j++) {
-         double s = 0;
-         for (int i = 0; i < m; i++) {
-            s += Math.abs(A[i][j]);
-         }
-         f = Math.max(f,s);
+         f = Math.max(f,s[j]);
       }
       return f;
    }
@@ -494,7 +754,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double norm2 () {
-      return (new SingularValueDecomposition(this).norm2());
+      return (new SingularValueDecomposition(this,false,false).norm2());
    }
 
    /** Infinity norm
@@ -502,11 +762,16 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double normInf () {
+      if (!hasRows()) {
+         return copy().normInf();
+      }
       double f = 0;
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i);
+         int a = rowOffset(i);
          double s = 0;
          for (int j = 0; j < n; j++) {
-            s += Math.abs(A[i][j]);
+            s += Math.abs(Arow[a+j]);
          }
          f = Math.max(f,s);
       }
@@ -518,10 +783,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double normF () {
+      if (!hasRows()) {
+         return copy().normF();
+      }
       double f = 0;
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i);
+         int a = rowOffset(i);
          for (int j = 0; j < n; j++) {
-            f = Maths.hypot(f,A[i][j]);
+            f = Maths.hypot(f,Arow[a+j]);
          }
       }
       return f;
@@ -532,11 +802,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix uminus () {
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      if (!hasRows()) {
+         return copy().uminus();
+      }
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Crow = X.row(i);
+         int a = rowOffset(i), c = X.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[i][j] = -A[i][j];
+            Crow[c+j] = -Arow[a+j];
          }
       }
       return X;
@@ -549,11 +823,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix plus (Matrix B) {
       checkMatrixDimensions(B);
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      if (!hasRows() || !B.hasRows()) {
+         return rows().plus(B.rows());
+      }
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i), Crow = X.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i), c = X.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[i][j] = A[i][j] + B.A[i][j];
+            Crow[c+j] = Arow[a+j] + Brow[b+j];
          }
       }
       return X;
@@ -566,9 +844,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix plusEquals (Matrix B) {
       checkMatrixDimensions(B);
+      if (!hasRows() || !B.hasRows() || overlaps(B)) {
+         return assign(rows().plus(B.rows()));
+      }
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            A[i][j] = A[i][j] + B.A[i][j];
+            Arow[a+j] = Arow[a+j] + Brow[b+j];
          }
       }
       return this;
@@ -581,11 +864,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix minus (Matrix B) {
       checkMatrixDimensions(B);
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      if (!hasRows() || !B.hasRows()) {
+         return rows().minus(B.rows());
+      }
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i), Crow = X.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i), c = X.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[i][j] = A[i][j] - B.A[i][j];
+            Crow[c+j] = Arow[a+j] - Brow[b+j];
          }
       }
       return X;
@@ -598,9 +885,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix minusEquals (Matrix B) {
       checkMatrixDimensions(B);
+      if (!hasRows() || !B.hasRows() || overlaps(B)) {
+         return assign(rows().minus(B.rows()));
+      }
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            A[i][j] = A[i][j] - B.A[i][j];
+            Arow[a+j] = Arow[a+j] - Brow[b+j];
          }
       }
       return this;
@@ -613,11 +905,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix arrayTimes (Matrix B) {
       checkMatrixDimensions(B);
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      if (!hasRows() || !B.hasRows()) {
+         return rows().arrayTimes(B.rows());
+      }
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i), Crow = X.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i), c = X.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[i][j] = A[i][j] * B.A[i][j];
+            Crow[c+j] = Arow[a+j] * Brow[b+j];
          }
       }
       return X;
@@ -630,9 +926,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix arrayTimesEquals (Matrix B) {
       checkMatrixDimensions(B);
+      if (!hasRows() || !B.hasRows() || overlaps(B)) {
+         return assign(rows().arrayTimes(B.rows()));
+      }
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            A[i][j] = A[i][j] * B.A[i][j];
+            Arow[a+j] = Arow[a+j] * Brow[b+j];
          }
       }
       return this;
@@ -645,11 +946,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix arrayRightDivide (Matrix B) {
       checkMatrixDimensions(B);
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      if (!hasRows() || !B.hasRows()) {
+         return rows().arrayRightDivide(B.rows());
+      }
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i), Crow = X.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i), c = X.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[i][j] = A[i][j] / B.A[i][j];
+            Crow[c+j] = Arow[a+j] / Brow[b+j];
          }
       }
       return X;
@@ -662,9 +967,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix arrayRightDivideEquals (Matrix B) {
       checkMatrixDimensions(B);
+      if (!hasRows() || !B.hasRows() || overlaps(B)) {
+         return assign(rows().arrayRightDivide(B.rows()));
+      }
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            A[i][j] = A[i][j] / B.A[i][j];
+            Arow[a+j] = Arow[a+j] / Brow[b+j];
          }
       }
       return this;
@@ -677,11 +987,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix arrayLeftDivide (Matrix B) {
       checkMatrixDimensions(B);
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      if (!hasRows() || !B.hasRows()) {
+         return rows().arrayLeftDivide(B.rows());
+      }
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i), Crow = X.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i), c = X.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[i][j] = B.A[i][j] / A[i][j];
+            Crow[c+j] = Brow[b+j] / Arow[a+j];
          }
       }
       return X;
@@ -694,9 +1008,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix arrayLeftDivideEquals (Matrix B) {
       checkMatrixDimensions(B);
+      if (!hasRows() || !B.hasRows() || overlaps(B)) {
+         return assign(rows().arrayLeftDivide(B.rows()));
+      }
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Brow = B.row(i);
+         int a = rowOffset(i), b = B.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            A[i][j] = B.A[i][j] / A[i][j];
+            Arow[a+j] = Brow[b+j] / Arow[a+j];
          }
       }
       return this;
@@ -708,11 +1027,15 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix times (double s) {
-      Matrix X = new Matrix(m,n);
-      double[][] C = X.getArray();
+      if (!hasRows()) {
+         return copy().times(s);
+      }
+      Matrix X = like(m,n);
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i), Crow = X.row(i);
+         int a = rowOffset(i), c = X.rowOffset(i);
          for (int j = 0; j < n; j++) {
-            C[i][j] = s*A[i][j];
+            Crow[c+j] = s*Arow[a+j];
          }
       }
       return X;
@@ -724,14 +1047,44 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public Matrix timesEquals (double s) {
+      if (!hasRows()) {
+         return assign(copy().timesEquals(s));
+      }
       for (int i = 0; i < m; i++) {
+         double[] Arow = row(i);
+         int a = rowOffset(i);
          for (int j = 0; j < n; j++) {
-            A[i][j] = s*A[i][j];
+            Arow[a+j] = s*Arow[a+j];
          }
       }
       return this;
    }
 
+   /** Matrix-vector multiplication, y = A * x
+   @param x    vector of length n
+   @param y    vector of length m, overwritten with A * x
+   @exception  IllegalArgumentException Matrix dimensions must agree.
+   */
+
+   public void apply (double[] x, double[] y) {
+      if (x.length != n || y.length != m) {
+         throw new IllegalArgumentException("Matrix dimensions must agree.");
+      }
+      if (!hasRows()) {
+         copy().apply(x,y);
+         return;
+      }
+      for (int i = 0; i < m; i++) {
+         double[] Arow = row(i);
+         int a = rowOffset(i);
+         double s = 0;
+         for (int j = 0; j < n; j++) {
+            s += Arow[a+j]*x[j];
+         }
+         y[i] = s;
+      }
+   }
+
    /** Linear algebraic matrix multiplication, A * B
    @param B    another matrix
    @return     Matrix product, A * B
@@ -742,23 +1095,138 @@ public class Matrix implements Cloneable, java.io.Serializable {
       if (B.m != n) {
          throw new IllegalArgumentException("Matrix inner dimensions must agree.");
       }
-      Matrix X = new Matrix(m,B.n);
-      double[][] C = X.getArray();
-      double[] Bcolj = new double[n];
-      for (int j = 0; j < B.n; j++) {
-         for (int k = 0; k < n; k++) {
-            Bcolj[k] = B.A[k][j];
-         }
-         for (int i = 0; i < m; i++) {
-            double[] Arowi = A[i];
-            double s = 0;
-            for (int k = 0; k < n; k++) {
-               s += Arowi[k]*Bcolj[k];
-            }
-            C[i][j] = s;
-         }
+      return gemm(1.0,this,false,B,false,0.0,like(m,B.n),null);
+   }
+
+   /** Linear algebraic matrix multiplication, A * B, computed in parallel.
+       Large products are split into tiles that are computed on the
+       given pool; products below a size threshold are computed serially.
+   @param B    another matrix
+   @param pool the pool that computes the tiles of the product
+   @return     Matrix product, A * B
+   @exception  IllegalArgumentException Matrix inner dimensions must agree.
+   */
+
+   public Matrix times (Matrix B, ForkJoinPool pool) {
+      if (B.m != n) {
+         throw new IllegalArgumentException("Matrix inner dimensions must agree.");
       }
-      return X;
+      return gemm(1.0,this,false,B,false,0.0,like(m,B.n),pool);
+   }
+
+   /** Linear algebraic matrix multiplication, A * B, using at most
+       the given number of threads.
+   @param B           another matrix
+   @param parallelism maximum number of threads used for the product
+   @return            Matrix product, A * B
+   @exception  IllegalArgumentException Matrix inner dimensions must agree.
+   @exception  IllegalArgumentException Parallelism must be positive.
+   */
+
+   public Matrix times (Matrix B, int parallelism) {
+      if (parallelism < 1) {
+         throw new IllegalArgumentException("Parallelism must be positive.");
+      }
+      if (parallelism == 1) {
+         return times(B);
+      }
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+         return times(B,pool);
+      } finally {
+         pool.shutdown();
+      }
+   }
+
+   /** General matrix multiply, C = alpha*op(A)*op(B) + beta*C, where op(X)
+       is X or its transpose X'.  The result overwrites C, and transposed
+       operands are used in place without being copied.
+   @param alpha   scalar multiple of the product
+   @param A       a matrix
+   @param transA  use A' in place of A
+   @param B       another matrix
+   @param transB  use B' in place of B
+   @param beta    scalar multiple of C; if zero, the old contents of C are ignored
+   @param C       destination with the row dimension of op(A) and the column dimension of op(B)
+   @return        C
+   @exception  IllegalArgumentException Matrix inner dimensions must agree.
+   @exception  IllegalArgumentException Matrix dimensions must agree.
+   */
+
+   public static Matrix gemm (double alpha, Matrix A, boolean transA, Matrix B, boolean transB,
+                              double beta, Matrix C) {
+      return gemm(alpha,A,transA,B,transB,beta,C,null);
+   }
+
+   /** General matrix multiply, C = alpha*op(A)*op(B) + beta*C, computed in
+       parallel on the given pool.
+   @param alpha   scalar multiple of the product
+   @param A       a matrix
+   @param transA  use A' in place of A
+   @param B       another matrix
+   @param transB  use B' in place of B
+   @param beta    scalar multiple of C; if zero, the old contents of C are ignored
+   @param C       destination with the row dimension of op(A) and the column dimension of op(B)
+   @param pool    the pool that computes the tiles of the product, or null to compute serially
+   @return        C
+   @exception  IllegalArgumentException Matrix inner dimensions must agree.
+   @exception  IllegalArgumentException Matrix dimensions must agree.
+   */
+
+   public static Matrix gemm (double alpha, Matrix A, boolean transA, Matrix B, boolean transB,
+                              double beta, Matrix C, ForkJoinPool pool) {
+      int m = (transA ? A.n : A.m);
+      int p = (transA ? A.m : A.n);
+      int n = (transB ? B.m : B.n);
+      if ((transB ? B.n : B.m) != p) {
+         throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+      }
+      if (C.m != m || C.n != n) {
+         throw new IllegalArgumentException("Matrix dimensions must agree.");
+      }
+      if (C.transposed) {
+         // C' = alpha*op(B)'*op(A)' + beta*C'
+         gemm(alpha,B,!transB,A,!transA,beta,C.transposeView(),pool);
+         return C;
+      }
+      if (!C.hasRows()) {
+         C.assign(gemm(alpha,A,transA,B,transB,beta,C.copy(),pool));
+         return C;
+      }
+      // Transposed views are used through the transpose flags.
+      if (A.transposed) {
+         A = A.transposeView();
+         transA = !transA;
+      }
+      if (B.transposed) {
+         B = B.transposeView();
+         transB = !transB;
+      }
+      // The product is accumulated in C, so it must not overlap A or B.
+      A = (A.hasRows() && !A.overlaps(C) ? A : A.copy());
+      B = (B.hasRows() && !B.overlaps(C) ? B : B.copy());
+      MatrixProduct.gemm(alpha,A,transA,B,transB,beta,C,m,n,p,pool);
+      return C;
+   }
+
+   /** Get the pool on which the decompositions run when they are not
+       given one.  This is the pool used by solve, inverse, det, chol
+       and eig, and by the decomposition constructors without a pool
+       argument.  It is initially the common fork/join pool.
+   @return     the default pool, or null if the decompositions work serially
+   */
+
+   public static ForkJoinPool getDefaultPool () {
+      return defaultPool;
+   }
+
+   /** Set the pool on which the decompositions run when they are not
+       given one, to cap the number of threads they use.
+   @param pool the default pool, or null to work serially
+   */
+
+   public static void setDefaultPool (ForkJoinPool pool) {
+      defaultPool = pool;
    }
 
    /** LU Decomposition
@@ -813,6 +1281,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
    public Matrix solve (Matrix B) {
       return (m == n ? (new LUDecomposition(this)).solve(B) :
+              m > n  ? (new TSQRDecomposition(this)).solve(B) :
                        (new QRDecomposition(this)).solve(B));
    }
 
@@ -842,11 +1311,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
    }
 
    /** Matrix rank
-   @return     effective numerical rank, obtained from SVD.
+   @return     effective numerical rank, estimated from the QR
+               decomposition with column pivoting.
    */
 
    public int rank () {
-      return new SingularValueDecomposition(this).rank();
+      return new PivotedQRDecomposition(this).rank();
    }
 
    /** Matrix condition (2 norm)
@@ -854,7 +1324,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
    */
 
    public double cond () {
-      return new SingularValueDecomposition(this).cond();
+      return new SingularValueDecomposition(this,false,false).cond();
    }
 
    /** Matrix trace.
@@ -864,7 +1334,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
    public double trace () {
       double t = 0;
       for (int i = 0; i < Math.min(m,n); i++) {
-         t += A[i][i];
+         t += get(i,i);
       }
       return t;
    }
@@ -963,7 +1433,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
       output.println();  // start on new line.
       for (int i = 0; i < m; i++) {
          for (int j = 0; j < n; j++) {
-            String s = format.format(A[i][j]); // format the number
+            String s = format.format(get(i,j)); // format the number
             int padding = Math.max(1,width-s.length()); // At _least_ 1 space
             for (int k = 0; k < padding; k++)
                output.print(' ');
@@ -1030,10 +1500,177 @@ public class Matrix implements Cloneable, java.io.Serializable {
    }
 
 
+/* ------------------------
+   Package Methods
+ * ------------------------ */
+
+   /** Array holding row i.  Only valid if hasRows().
+   @param i    Row index.
+   @return     the array holding the elements of row i, starting at rowOffset(i).
+   */
+
+   double[] row (int i) {
+      int r = (rowIndex != null ? rowIndex[i] : rowBase+i);
+      return (A != null ? A[r] : data);
+   }
+
+   /** Index of element (i,0) in row(i).  Only valid if hasRows().
+   @param i    Row index.
+   @return     offset of row i in its array.
+   */
+
+   int rowOffset (int i) {
+      int r = (rowIndex != null ? rowIndex[i] : rowBase+i);
+      return (A != null ? colBase : offset+r*ld);
+   }
+
+   /** Are the elements of each row stored consecutively, so that
+       row(i) and rowOffset(i) may be used?  False only for transposed
+       views and views with a column index set.
+   @return     true if the rows can be accessed directly.
+   */
+
+   boolean hasRows () {
+      return !transposed && colIndex == null;
+   }
+
+   /** This matrix if its rows can be accessed directly, otherwise a copy.
+   @return     a matrix equal to this one for which hasRows() is true.
+   */
+
+   Matrix rows () {
+      return (hasRows() ? this : copy());
+   }
+
 /* ------------------------
    Private Methods
  * ------------------------ */
 
+   /** Construct an m-by-n matrix of zeros with the same storage as this one. **/
+
+   private Matrix like (int m, int n) {
+      return (A != null ? new Matrix(m,n) : contiguous(m,n));
+   }
+
+   /** Shallow copy sharing the storage and view mapping. **/
+
+   private Matrix share () {
+      Matrix X = new Matrix(data,offset,ld,m,n);
+      X.A = A;
+      X.rowIndex = rowIndex;
+      X.colIndex = colIndex;
+      X.rowBase = rowBase;
+      X.colBase = colBase;
+      X.transposed = transposed;
+      X.view = view;
+      return X;
+   }
+
+   /** View of the rows r (or i0:i0+m-1 if r is null) and columns c
+       (or j0:j0+n-1 if c is null). **/
+
+   private Matrix view (int[] r, int i0, int m, int[] c, int j0, int n) {
+      if (transposed) {
+         return transposeView().view(c,j0,n,r,i0,m).transposeView();
+      }
+      checkSubmatrix(r,i0,m,this.m);
+      checkSubmatrix(c,j0,n,this.n);
+      Matrix X = share();
+      X.m = m;
+      X.n = n;
+      if (r == null && rowIndex == null) {
+         if (A != null) {
+            X.rowBase = rowBase+i0;
+         } else {
+            X.offset = offset+i0*ld;
+         }
+      } else {
+         X.rowIndex = new int[m];
+         for (int i = 0; i < m; i++) {
+            int k = (r != null ? r[i] : i0+i);
+            X.rowIndex[i] = (rowIndex != null ? rowIndex[k] : rowBase+k);
+         }
+         X.rowBase = 0;
+      }
+      if (c == null && colIndex == null) {
+         if (A != null) {
+            X.colBase = colBase+j0;
+         } else {
+            X.offset += j0;
+         }
+      } else {
+         X.colIndex = new int[n];
+         for (int j = 0; j < n; j++) {
+            int k = (c != null ? c[j] : j0+j);
+            X.colIndex[j] = (colIndex != null ? colIndex[k] : k);
+         }
+      }
+      X.view = true;
+      return X;
+   }
+
+   /** Check that a range or index set of a view lies in 0:dim-1. **/
+
+   private static void checkSubmatrix (int[] r, int i0, int m, int dim) {
+      if (r == null) {
+         if (i0 < 0 || m < 0 || i0+m > dim) {
+            throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+         }
+      } else {
+         for (int i = 0; i < m; i++) {
+            if (r[i] < 0 || r[i] >= dim) {
+               throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+            }
+         }
+      }
+   }
+
+   /** Copy the elements of X into this matrix. **/
+
+   private Matrix assign (Matrix X) {
+      for (int i = 0; i < m; i++) {
+         for (int j = 0; j < n; j++) {
+            set(i,j,X.get(i,j));
+         }
+      }
+      return this;
+   }
+
+   /** Check if B may hold some of the same elements as this matrix.
+       A matrix overlaps itself.  Windows of the same storage are compared
+       by position; other views of the same storage are assumed to overlap.
+   **/
+
+   private boolean overlaps (Matrix B) {
+      if (B == this) {
+         return true;
+      }
+      if (A != null ? A != B.A : data != B.data) {
+         return false;
+      }
+      if (!hasRows() || !B.hasRows() || rowIndex != null || B.rowIndex != null) {
+         return true;
+      }
+      int r0, c0, s0, d0;
+      if (A != null) {
+         r0 = rowBase; c0 = colBase; s0 = B.rowBase; d0 = B.colBase;
+      } else {
+         if (ld != B.ld || ld == 0 || offset%ld+n > ld || B.offset%ld+B.n > ld) {
+            return true;
+         }
+         r0 = offset/ld; c0 = offset%ld; s0 = B.offset/ld; d0 = B.offset%ld;
+      }
+      return r0 < s0+B.m && s0 < r0+m && c0 < d0+B.n && d0 < c0+n;
+   }
+
+   /** Check that (i,j) is inside a matrix without its own 2-D array. **/
+
+   private void checkIndices (int i, int j) {
+      if (i < 0 || i >= m || j < 0 || j >= n) {
+         throw new ArrayIndexOutOfBoundsException("Matrix indices (" + i + "," + j + ")");
+      }
+   }
+
    /** Check if size(A) == size(B) **/
 
    private void checkMatrixDimensions (Matrix B) {
@@ -1042,5 +1679,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
       }
    }
 
+   /** Serialize a matrix that shares its storage as a copy of its elements. **/
+
+   private Object writeReplace () {
+      boolean shared = view || (A == null && (offset != 0 || ld != n || data.length != m*n));
+      return (shared ? copy() : this);
+   }
+
   private static final long serialVersionUID = 1;
 }
@@ -0,0 +1,322 @@
+package Jama;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+   /** Cache-blocked matrix-matrix product.
+   <P>
+   Computes C = alpha*op(A)*op(B) + beta*C, where op(X) is X or X',
+   with the loop structure used by optimized BLAS implementations.
+   The operands are cut into blocks that fit the caches: a kc-by-nc
+   block of op(B) is copied ("packed") into a contiguous buffer that
+   stays in the outer caches, and an mc-by-kc block of op(A) is packed
+   into a buffer sized for the inner caches.  Transposed operands are
+   handled while packing, so they are never materialized.  The packed
+   blocks are consumed by a small MR-by-NR micro-kernel that keeps the
+   whole tile of C in local variables, so every element loaded from
+   the buffers is used MR or NR times.
+   <P>
+   Products with a small amount of work are computed with the simple
+   dot-product loop, since packing would cost more than it saves.
+   <P>
+   Large products may be split into tiles of C that are computed
+   independently on a ForkJoinPool.
+   */
+
+final class MatrixProduct {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Register tile dimensions of the micro-kernel. */
+   static final int MR = 4, NR = 4;
+
+   /** Cache block dimensions.  An MC-by-KC block of A (128 KB) is sized
+       for the L2 cache, a KC-by-NR sliver of B (8 KB) for the L1 cache.
+   */
+   static final int MC = 64, KC = 256, NC = 2048;
+
+   /** Products with fewer multiply-adds than this use the simple loop. */
+   static final long SMALL = 32768;
+
+   /** Products with fewer multiply-adds than this are never split
+       across threads; a parallel tile does at least LEAF of them.
+   */
+   static final long PARALLEL = 1L << 21, LEAF = 1L << 21;
+
+   /** Operands, scalars and inner dimension of the product. */
+   private final double alpha, beta;
+   private final Matrix A, B, C;
+   private final boolean transA, transB;
+   private final int p;
+
+   private MatrixProduct (double alpha, Matrix A, boolean transA,
+                          Matrix B, boolean transB, double beta, Matrix C, int p) {
+      this.alpha = alpha; this.A = A; this.transA = transA;
+      this.B = B; this.transB = transB; this.beta = beta; this.C = C;
+      this.p = p;
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Overwrite C with alpha*op(A)*op(B) + beta*C.
+       If beta is zero, C need not be initialized.
+   @param alpha  Scalar multiple of the product.
+   @param A      p-by-m matrix if transA, m-by-p otherwise.
+   @param transA Use the transpose of A.
+   @param B      n-by-p matrix if transB, p-by-n otherwise.
+   @param transB Use the transpose of B.
+   @param beta   Scalar multiple of C.
+   @param C      m-by-n destination, not sharing storage with A or B.
+   @param m      Number of rows of op(A) and C.
+   @param n      Number of columns of op(B) and C.
+   @param p      Inner dimension.
+   @param pool   Pool that runs the tiles, or null to compute serially.
+   */
+
+   static void gemm (double alpha, Matrix A, boolean transA, Matrix B, boolean transB,
+                     double beta, Matrix C, int m, int n, int p, ForkJoinPool pool) {
+      MatrixProduct product = new MatrixProduct(alpha,A,transA,B,transB,beta,C,p);
+      if (pool == null || (long) m*n*p < PARALLEL || pool.getParallelism() < 2) {
+         product.compute(0,m,0,n);
+      } else {
+         pool.invoke(product.new Tile(0,m,0,n));
+      }
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   // Compute the tile C(i0:i1-1,j0:j1-1), blocked for the caches.
+
+   private void compute (int i0, int i1, int j0, int j1) {
+      int m = i1-i0, n = j1-j0;
+      if (alpha == 0.0) {
+         scale(i0,i1,j0,j1);
+         return;
+      }
+      if ((long) m*n*p < SMALL || m < MR || n < NR) {
+         computeSmall(i0,i1,j0,j1);
+         return;
+      }
+      scale(i0,i1,j0,j1);
+      double[] Apack = new double[roundUp(Math.min(MC,m),MR)*Math.min(KC,p)];
+      double[] Bpack = new double[Math.min(KC,p)*roundUp(Math.min(NC,n),NR)];
+      for (int jc = j0; jc < j1; jc += NC) {
+         int nc = Math.min(NC,j1-jc);
+         for (int pc = 0; pc < p; pc += KC) {
+            int kc = Math.min(KC,p-pc);
+            packB(pc,kc,jc,nc,Bpack);
+            for (int ic = i0; ic < i1; ic += MC) {
+               int mc = Math.min(MC,i1-ic);
+               packA(ic,mc,pc,kc,Apack);
+               for (int jr = 0; jr < nc; jr += NR) {
+                  for (int ir = 0; ir < mc; ir += MR) {
+                     kernel(kc,Apack,ir*kc,Bpack,jr*kc,ic+ir,jc+jr,
+                            Math.min(MR,mc-ir),Math.min(NR,nc-jr));
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   // Dot-product loop over copies of each row of op(A) and column of op(B).
+
+   private void computeSmall (int i0, int i1, int j0, int j1) {
+      double[] Bcolj = new double[p];
+      double[] Arowi = (transA ? new double[p] : null);
+      for (int j = j0; j < j1; j++) {
+         for (int k = 0; k < p; k++) {
+            Bcolj[k] = (transB ? B.row(j)[B.rowOffset(j)+k] : B.row(k)[B.rowOffset(k)+j]);
+         }
+         for (int i = i0; i < i1; i++) {
+            if (transA) {
+               for (int k = 0; k < p; k++) {
+                  Arowi[k] = A.row(k)[A.rowOffset(k)+i];
+               }
+            }
+            double[] a = (transA ? Arowi : A.row(i));
+            int ai = (transA ? 0 : A.rowOffset(i));
+            double s = 0;
+            for (int k = 0; k < p; k++) {
+               s += a[ai+k]*Bcolj[k];
+            }
+            double[] Crow = C.row(i);
+            int ci = C.rowOffset(i)+j;
+            Crow[ci] = (beta == 0.0 ? alpha*s : alpha*s + beta*Crow[ci]);
+         }
+      }
+   }
+
+   // C(i0:i1-1,j0:j1-1) = beta*C(i0:i1-1,j0:j1-1).  A zero beta clears
+   // C without reading it.
+
+   private void scale (int i0, int i1, int j0, int j1) {
+      if (beta == 1.0) {
+         return;
+      }
+      for (int i = i0; i < i1; i++) {
+         double[] Crow = C.row(i);
+         int c = C.rowOffset(i);
+         if (beta == 0.0) {
+            java.util.Arrays.fill(Crow,c+j0,c+j1,0.0);
+         } else {
+            for (int j = j0; j < j1; j++) {
+               Crow[c+j] *= beta;
+            }
+         }
+      }
+   }
+
+   // Copy op(A)(i0:i0+mc-1,k0:k0+kc-1) into slivers of MR rows, stored
+   // k-major so the micro-kernel reads it sequentially.  Rows past
+   // the end of the block are padded with zeros.
+
+   private void packA (int i0, int mc, int k0, int kc, double[] Apack) {
+      int idx = 0;
+      for (int ir = 0; ir < mc; ir += MR) {
+         int mr = Math.min(MR,mc-ir);
+         if (transA) {
+            for (int k = 0; k < kc; k++) {
+               double[] Arow = A.row(k0+k);
+               int a = A.rowOffset(k0+k)+i0+ir;
+               int base = idx+k*MR;
+               for (int r = 0; r < mr; r++) {
+                  Apack[base+r] = Arow[a+r];
+               }
+               for (int r = mr; r < MR; r++) {
+                  Apack[base+r] = 0.0;
+               }
+            }
+         } else {
+            for (int r = 0; r < MR; r++) {
+               if (r < mr) {
+                  double[] Arow = A.row(i0+ir+r);
+                  int a = A.rowOffset(i0+ir+r)+k0;
+                  for (int k = 0; k < kc; k++) {
+                     Apack[idx+k*MR+r] = Arow[a+k];
+                  }
+               } else {
+                  for (int k = 0; k < kc; k++) {
+                     Apack[idx+k*MR+r] = 0.0;
+                  }
+               }
+            }
+         }
+         idx += MR*kc;
+      }
+   }
+
+   // Copy op(B)(k0:k0+kc-1,j0:j0+nc-1) into slivers of NR columns, stored
+   // k-major.  Columns past the end of the block are padded with zeros.
+
+   private void packB (int k0, int kc, int j0, int nc, double[] Bpack) {
+      int idx = 0;
+      for (int jr = 0; jr < nc; jr += NR) {
+         int nr = Math.min(NR,nc-jr);
+         if (transB) {
+            for (int c = 0; c < NR; c++) {
+               if (c < nr) {
+                  double[] Brow = B.row(j0+jr+c);
+                  int b = B.rowOffset(j0+jr+c)+k0;
+                  for (int k = 0; k < kc; k++) {
+                     Bpack[idx+k*NR+c] = Brow[b+k];
+                  }
+               } else {
+                  for (int k = 0; k < kc; k++) {
+                     Bpack[idx+k*NR+c] = 0.0;
+                  }
+               }
+            }
+         } else {
+            for (int k = 0; k < kc; k++) {
+               double[] Brow = B.row(k0+k);
+               int b = B.rowOffset(k0+k)+j0+jr;
+               int base = idx+k*NR;
+               for (int c = 0; c < nr; c++) {
+                  Bpack[base+c] = Brow[b+c];
+               }
+               for (int c = nr; c < NR; c++) {
+                  Bpack[base+c] = 0.0;
+               }
+            }
+         }
+         idx += NR*kc;
+      }
+   }
+
+   // C(i0:i0+mr-1,j0:j0+nr-1) += alpha*(packed A sliver)*(packed B sliver).
+   // The 4-by-4 tile of C is accumulated in locals.
+
+   private void kernel (int kc, double[] a, int ai, double[] b, int bi,
+                        int i0, int j0, int mr, int nr) {
+      double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+      double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+      double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+      double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+      for (int k = 0; k < kc; k++) {
+         double a0 = a[ai], a1 = a[ai+1], a2 = a[ai+2], a3 = a[ai+3];
+         double b0 = b[bi], b1 = b[bi+1], b2 = b[bi+2], b3 = b[bi+3];
+         c00 += a0*b0; c01 += a0*b1; c02 += a0*b2; c03 += a0*b3;
+         c10 += a1*b0; c11 += a1*b1; c12 += a1*b2; c13 += a1*b3;
+         c20 += a2*b0; c21 += a2*b1; c22 += a2*b2; c23 += a2*b3;
+         c30 += a3*b0; c31 += a3*b1; c32 += a3*b2; c33 += a3*b3;
+         ai += MR;
+         bi += NR;
+      }
+      double s = alpha;
+      if (mr == MR && nr == NR) {
+         double[] C0 = C.row(i0), C1 = C.row(i0+1), C2 = C.row(i0+2), C3 = C.row(i0+3);
+         int o0 = C.rowOffset(i0)+j0, o1 = C.rowOffset(i0+1)+j0;
+         int o2 = C.rowOffset(i0+2)+j0, o3 = C.rowOffset(i0+3)+j0;
+         C0[o0] += s*c00; C0[o0+1] += s*c01; C0[o0+2] += s*c02; C0[o0+3] += s*c03;
+         C1[o1] += s*c10; C1[o1+1] += s*c11; C1[o1+2] += s*c12; C1[o1+3] += s*c13;
+         C2[o2] += s*c20; C2[o2+1] += s*c21; C2[o2+2] += s*c22; C2[o2+3] += s*c23;
+         C3[o3] += s*c30; C3[o3+1] += s*c31; C3[o3+2] += s*c32; C3[o3+3] += s*c33;
+         return;
+      }
+      double[][] t = {{c00,c01,c02,c03},{c10,c11,c12,c13},
+                      {c20,c21,c22,c23},{c30,c31,c32,c33}};
+      for (int r = 0; r < mr; r++) {
+         double[] Crow = C.row(i0+r);
+         int o = C.rowOffset(i0+r)+j0;
+         for (int c = 0; c < nr; c++) {
+            Crow[o+c] += s*t[r][c];
+         }
+      }
+   }
+
+   // A tile of C.  Tiles with too much work are split in half along
+   // their longer side; the halves are computed in parallel.
+
+   private final class Tile extends RecursiveAction {
+      private final int i0, i1, j0, j1;
+
+      Tile (int i0, int i1, int j0, int j1) {
+         this.i0 = i0; this.i1 = i1; this.j0 = j0; this.j1 = j1;
+      }
+
+      protected void compute () {
+         int m = i1-i0, n = j1-j0;
+         int mid = (m >= n ? i0 + roundUp(m/2,MR) : j0 + roundUp(n/2,NR));
+         if ((long) m*n*p <= LEAF || mid >= (m >= n ? i1 : j1)) {
+            MatrixProduct.this.compute(i0,i1,j0,j1);
+         } else if (m >= n) {
+            invokeAll(new Tile(i0,mid,j0,j1), new Tile(mid,i1,j0,j1));
+         } else {
+            invokeAll(new Tile(i0,i1,j0,mid), new Tile(i0,i1,mid,j1));
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   private static int roundUp (int x, int r) {
+      return (x+r-1)/r*r;
+   }
+}
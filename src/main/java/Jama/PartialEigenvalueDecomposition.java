@@ -0,0 +1,286 @@
+package Jama;
+
+import java.util.Random;
+
+   /** Partial Eigenvalue Decomposition of a symmetric operator.
+   <P>
+   For a symmetric n-by-n operator A and k <= n, the partial eigenvalue
+   decomposition is the k largest or the k smallest eigenvalues of A, in
+   ascending order as in the EigenvalueDecomposition, and an n-by-k matrix
+   V of the corresponding orthonormal eigenvectors, so that A*V = V*D.
+   <P>
+   The eigenpairs are computed by the restarted Lanczos method.  A is only
+   used through matrix-vector products, so it may be a Matrix or any other
+   LinearOperator, and the memory used is a basis of a few times k vectors
+   of length n.  When the basis is full, it is restarted with the Ritz
+   vectors nearest the wanted end of the spectrum.  The method converges
+   quickly when the wanted eigenvalues are well separated from the rest.
+   */
+
+public class PartialEigenvalueDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Dimension of the operator, and number of eigenpairs.
+   @serial operator dimension.
+   @serial number of eigenpairs.
+   */
+   private int n, k;
+
+   /** Array for internal storage of eigenvalues.
+   @serial internal storage of eigenvalues.
+   */
+   private double[] d;
+
+   /** Array for internal storage of eigenvectors, one per row.
+   @serial internal storage of eigenvectors.
+   */
+   private double[][] V;
+
+   /** Did all eigenpairs reach the tolerance?
+   @serial convergence flag.
+   */
+   private boolean converged;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Compute k eigenpairs of a symmetric operator, with a basis of
+       max(2k+1,k+20) vectors and a relative tolerance of 1e-10.  The
+       start vector comes from a generator with a fixed seed, so the
+       result is repeatable.
+   @param A         Square, symmetric operator.
+   @param k         Number of eigenpairs.
+   @param largest   Compute the largest eigenvalues if true, the smallest if false.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Number of eigenpairs must be between 1 and n.
+   */
+
+   public PartialEigenvalueDecomposition (LinearOperator A, int k, boolean largest) {
+      this(A,k,largest,Math.max(2*k+1,k+20),1e-10,1000);
+   }
+
+   /** Compute k eigenpairs of a symmetric operator, with a start vector
+       from a generator with a fixed seed.
+   @param A           Square, symmetric operator.
+   @param k           Number of eigenpairs.
+   @param largest     Compute the largest eigenvalues if true, the smallest if false.
+   @param ncv         Number of vectors in the Lanczos basis, more than k.
+   @param tol         Relative tolerance on the residual norm of each eigenpair.
+   @param maxRestarts Maximum number of restarts.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Number of eigenpairs must be between 1 and n.
+   */
+
+   public PartialEigenvalueDecomposition (LinearOperator A, int k, boolean largest,
+                                          int ncv, double tol, int maxRestarts) {
+      this(A,k,largest,ncv,tol,maxRestarts,new Random(0));
+   }
+
+   /** Compute k eigenpairs of a symmetric operator.
+   @param A           Square, symmetric operator.
+   @param k           Number of eigenpairs.
+   @param largest     Compute the largest eigenvalues if true, the smallest if false.
+   @param ncv         Number of vectors in the Lanczos basis, more than k.
+   @param tol         Relative tolerance on the residual norm of each eigenpair.
+   @param maxRestarts Maximum number of restarts.
+   @param random      Generator of the start vector, and of new directions
+                      when an invariant subspace is found.
+   @exception  IllegalArgumentException  Operator must be square.
+   @exception  IllegalArgumentException  Number of eigenpairs must be between 1 and n.
+   */
+
+   public PartialEigenvalueDecomposition (LinearOperator A, int k, boolean largest,
+                                          int ncv, double tol, int maxRestarts,
+                                          Random random) {
+      n = A.getRowDimension();
+      if (A.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Operator must be square.");
+      }
+      if (k < 1 || k > n) {
+         throw new IllegalArgumentException("Number of eigenpairs must be between 1 and n.");
+      }
+      this.k = k;
+      int m = Math.min(Math.max(ncv,k+1),n);
+      double eps = Math.pow(2.0,-52.0);
+
+      // Lanczos basis Q, by rows, and the projection T = Q'*A*Q.  After a
+      // restart, T is diagonal in its leading block, bordered by the
+      // couplings to the residual vector, and tridiagonal below.
+      double[][] Q = new double[m+1][];
+      double[][] T = new double[m][m];
+      Q[0] = randomDirection(Q,0,random);
+      double[] w = new double[n];
+      double[] theta;
+      Matrix Y;
+      double b;
+      double anorm = 0.0;
+      int j0 = 0, nconv;
+      for (int restart = 0; ; restart++) {
+         // Extend the basis to m vectors.  Each new vector is orthogonalized
+         // against the whole basis, twice, which keeps it orthogonal in
+         // floating point without tracking the loss of orthogonality.
+         b = 0.0;
+         for (int j = j0; j < m; j++) {
+            A.apply(Q[j],w);
+            T[j][j] = dot(Q[j],w);
+            orthogonalize(w,Q,j+1);
+            b = norm(w);
+            anorm = Math.max(anorm,Math.abs(T[j][j])+b);
+            if (b > n*eps*anorm) {
+               Q[j+1] = new double[n];
+               for (int i = 0; i < n; i++) {
+                  Q[j+1][i] = w[i]/b;
+               }
+            } else {
+               // An invariant subspace was found; continue in a new direction.
+               b = 0.0;
+               Q[j+1] = (j+1 < n ? randomDirection(Q,j+1,random) : new double[n]);
+            }
+            if (j+1 < m) {
+               T[j][j+1] = T[j+1][j] = b;
+            }
+         }
+
+         // Ritz pairs, in ascending order, and their residual norms.
+         EigenvalueDecomposition eig = new EigenvalueDecomposition(new Matrix(T,m,m));
+         theta = eig.getRealEigenvalues();
+         Y = eig.getV();
+         double scale = Math.max(Math.abs(theta[0]),Math.abs(theta[m-1]));
+         int c0 = (largest ? m-k : 0);
+         nconv = 0;
+         for (int i = c0; i < c0+k; i++) {
+            if (Math.abs(b*Y.get(m-1,i)) <= tol*scale) {
+               nconv++;
+            }
+         }
+         if (nconv == k || m == n || restart >= maxRestarts) {
+            break;
+         }
+
+         // Restart with the Ritz vectors nearest the wanted end, keeping a
+         // few more than k while only some of the wanted ones converged.
+         int keep = Math.min(k+Math.min(nconv,(m-k)/2),m-1);
+         c0 = (largest ? m-keep : 0);
+         Matrix Yk = Y.getMatrix(0,m-1,c0,c0+keep-1);
+         double[][] W = Matrix.gemm(1.0,Yk,true,new Matrix(Q,m,n),false,0.0,new Matrix(keep,n)).getArray();
+         T = new double[m][m];
+         for (int i = 0; i < keep; i++) {
+            Q[i] = W[i];
+            T[i][i] = theta[c0+i];
+            T[i][keep] = T[keep][i] = b*Yk.get(m-1,i);
+         }
+         Q[keep] = Q[m];
+         for (int i = keep+1; i <= m; i++) {
+            Q[i] = null;
+         }
+         j0 = keep;
+      }
+
+      // Eigenvectors are the wanted Ritz vectors.
+      converged = (nconv == k || m == n);
+      int c0 = (largest ? m-k : 0);
+      d = new double[k];
+      System.arraycopy(theta,c0,d,0,k);
+      V = Matrix.gemm(1.0,Y.getMatrix(0,m-1,c0,c0+k-1),true,new Matrix(Q,m,n),false,0.0,new Matrix(k,n)).getArray();
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Did every eigenpair converge to the tolerance?
+   @return     true if the residual norms are within the tolerance.
+   */
+
+   public boolean isConverged () {
+      return converged;
+   }
+
+   /** Return the eigenvector matrix
+   @return     V, n-by-k
+   */
+
+   public Matrix getV () {
+      return new Matrix(V,k,n).transpose();
+   }
+
+   /** Return the eigenvalues
+   @return     the k computed eigenvalues, in ascending order
+   */
+
+   public double[] getRealEigenvalues () {
+      double[] e = new double[k];
+      System.arraycopy(d,0,e,0,k);
+      return e;
+   }
+
+   /** Return the diagonal eigenvalue matrix
+   @return     D
+   */
+
+   public Matrix getD () {
+      Matrix X = new Matrix(k,k);
+      for (int i = 0; i < k; i++) {
+         X.set(i,i,d[i]);
+      }
+      return X;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Orthogonalize w against Q[0:j-1], by classical Gram-Schmidt twice. **/
+
+   private void orthogonalize (double[] w, double[][] Q, int j) {
+      double[] h = new double[j];
+      for (int pass = 0; pass < 2; pass++) {
+         for (int i = 0; i < j; i++) {
+            h[i] = dot(Q[i],w);
+         }
+         for (int i = 0; i < j; i++) {
+            double[] Qi = Q[i];
+            double s = h[i];
+            for (int l = 0; l < n; l++) {
+               w[l] -= s*Qi[l];
+            }
+         }
+      }
+   }
+
+   /** A random unit vector orthogonal to Q[0:j-1]. **/
+
+   private double[] randomDirection (double[][] Q, int j, Random random) {
+      double[] v = new double[n];
+      double nrm = 0.0;
+      while (nrm == 0.0) {
+         for (int i = 0; i < n; i++) {
+            v[i] = random.nextGaussian();
+         }
+         orthogonalize(v,Q,j);
+         nrm = norm(v);
+      }
+      for (int i = 0; i < n; i++) {
+         v[i] /= nrm;
+      }
+      return v;
+   }
+
+   private double dot (double[] x, double[] y) {
+      double s = 0.0;
+      for (int i = 0; i < n; i++) {
+         s += x[i]*y[i];
+      }
+      return s;
+   }
+
+   private double norm (double[] x) {
+      return Math.sqrt(dot(x,x));
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,292 @@
+package Jama;
+import Jama.util.*;
+
+/** QR Decomposition with column pivoting.
+<P>
+   For an m-by-n matrix A, the pivoted QR decomposition is an m-by-k
+   orthogonal matrix Q, a k-by-n upper trapezoidal matrix R and a column
+   permutation vector piv of length n, with k = min(m,n), so that
+   A(:,piv) = Q*R.  At each step the remaining column of largest norm is
+   moved to the front, so the diagonal of R does not increase in magnitude
+   and reveals the numerical rank of A, at a fraction of the cost of the
+   singular value decomposition.
+<P>
+   The decomposition always exists, so the constructor will never fail.
+   Unlike the QR decomposition, it can solve least squares problems that
+   are rank deficient.
+*/
+
+public class PivotedQRDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Array for internal storage of decomposition.
+   @serial internal array storage.
+   */
+   private double[][] QR;
+
+   /** Row and column dimensions.
+   @serial row dimension.
+   @serial column dimension.
+   */
+   private int m, n;
+
+   /** Array for internal storage of diagonal of R.
+   @serial diagonal of R.
+   */
+   private double[] Rdiag;
+
+   /** Internal storage of column permutation vector.
+   @serial column permutation vector.
+   */
+   private int[] piv;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** QR Decomposition with column pivoting, computed by Householder
+       reflections.  The norms of the remaining columns are downdated after
+       each reflection and only recomputed when cancellation makes the
+       downdated value unreliable.
+   @param A    Rectangular matrix
+   */
+
+   public PivotedQRDecomposition (Matrix A) {
+      // Initialize.
+      QR = A.getArrayCopy();
+      m = A.getRowDimension();
+      n = A.getColumnDimension();
+      int kmax = Math.min(m,n);
+      Rdiag = new double[kmax];
+      piv = new int[n];
+      for (int j = 0; j < n; j++) {
+         piv[j] = j;
+      }
+      double eps = Math.pow(2.0,-52.0);
+      double tol3z = Math.sqrt(eps);
+
+      // Partial column norms, and the norms they were last computed at.
+      double[] vn1 = new double[n];
+      double[] vn2 = new double[n];
+      for (int i = 0; i < m; i++) {
+         for (int j = 0; j < n; j++) {
+            vn1[j] = Maths.hypot(vn1[j],QR[i][j]);
+         }
+      }
+      System.arraycopy(vn1,0,vn2,0,n);
+      double[] s = new double[n];
+
+      // Main loop.
+      for (int k = 0; k < kmax; k++) {
+         // Find pivot column and exchange if necessary.
+         int p = k;
+         for (int j = k+1; j < n; j++) {
+            if (vn1[j] > vn1[p]) {
+               p = j;
+            }
+         }
+         if (p != k) {
+            for (int i = 0; i < m; i++) {
+               double t = QR[i][p]; QR[i][p] = QR[i][k]; QR[i][k] = t;
+            }
+            int t = piv[p]; piv[p] = piv[k]; piv[k] = t;
+            vn1[p] = vn1[k];
+            vn2[p] = vn2[k];
+         }
+
+         // Compute 2-norm of k-th column without under/overflow.
+         double nrm = 0;
+         for (int i = k; i < m; i++) {
+            nrm = Maths.hypot(nrm,QR[i][k]);
+         }
+
+         if (nrm != 0.0) {
+            // Form k-th Householder vector.
+            if (QR[k][k] < 0) {
+               nrm = -nrm;
+            }
+            for (int i = k; i < m; i++) {
+               QR[i][k] /= nrm;
+            }
+            QR[k][k] += 1.0;
+
+            // Apply transformation to remaining columns, by rows.
+            for (int j = k+1; j < n; j++) {
+               s[j] = 0.0;
+            }
+            for (int i = k; i < m; i++) {
+               double[] QRrowi = QR[i];
+               double v = QRrowi[k];
+               for (int j = k+1; j < n; j++) {
+                  s[j] += v*QRrowi[j];
+               }
+            }
+            for (int j = k+1; j < n; j++) {
+               s[j] = -s[j]/QR[k][k];
+            }
+            for (int i = k; i < m; i++) {
+               double[] QRrowi = QR[i];
+               double v = QRrowi[k];
+               for (int j = k+1; j < n; j++) {
+                  QRrowi[j] += s[j]*v;
+               }
+            }
+         }
+         Rdiag[k] = -nrm;
+
+         // Downdate the partial column norms.
+         for (int j = k+1; j < n; j++) {
+            if (vn1[j] != 0.0) {
+               double t = Math.abs(QR[k][j])/vn1[j];
+               t = Math.max(0.0,(1.0+t)*(1.0-t));
+               double t2 = t*(vn1[j]/vn2[j])*(vn1[j]/vn2[j]);
+               if (t2 <= tol3z) {
+                  double r = 0;
+                  for (int i = k+1; i < m; i++) {
+                     r = Maths.hypot(r,QR[i][j]);
+                  }
+                  vn1[j] = r;
+                  vn2[j] = r;
+               } else {
+                  vn1[j] *= Math.sqrt(t);
+               }
+            }
+         }
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Effective numerical rank
+   @return     Number of diagonal elements of R larger than
+               max(m,n)*eps*|R(0,0)|.
+   */
+
+   public int rank () {
+      double eps = Math.pow(2.0,-52.0);
+      double tol = (Rdiag.length > 0 ? Math.max(m,n)*eps*Math.abs(Rdiag[0]) : 0.0);
+      int r = 0;
+      while (r < Rdiag.length && Math.abs(Rdiag[r]) > tol) {
+         r++;
+      }
+      return r;
+   }
+
+   /** Return the column permutation vector
+   @return     piv, so that A(:,piv) = Q*R
+   */
+
+   public int[] getPivot () {
+      int[] p = new int[n];
+      System.arraycopy(piv,0,p,0,n);
+      return p;
+   }
+
+   /** Return the upper trapezoidal factor
+   @return     R
+   */
+
+   public Matrix getR () {
+      int kmax = Rdiag.length;
+      Matrix X = new Matrix(kmax,n);
+      double[][] R = X.getArray();
+      for (int i = 0; i < kmax; i++) {
+         for (int j = i; j < n; j++) {
+            R[i][j] = (i == j ? Rdiag[i] : QR[i][j]);
+         }
+      }
+      return X;
+   }
+
+   /** Generate and return the (economy-sized) orthogonal factor
+   @return     Q
+   */
+
+   public Matrix getQ () {
+      int kmax = Rdiag.length;
+      Matrix X = new Matrix(m,kmax);
+      double[][] Q = X.getArray();
+      for (int k = kmax-1; k >= 0; k--) {
+         Q[k][k] = 1.0;
+         if (QR[k][k] != 0) {
+            applyReflection(k,Q,k,kmax);
+         }
+      }
+      return X;
+   }
+
+   /** Least squares solution of A*X = B.  If A is rank deficient, this is
+       the basic solution, with nonzero elements only in the rank() columns
+       of A chosen first by the pivoting.
+   @param B    A Matrix with as many rows as A and any number of columns.
+   @return     X that minimizes the two norm of A*X-B.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   */
+
+   public Matrix solve (Matrix B) {
+      if (B.getRowDimension() != m) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+
+      // Compute Y = transpose(Q)*B
+      int nx = B.getColumnDimension();
+      double[][] Y = B.getArrayCopy();
+      for (int k = 0; k < Rdiag.length; k++) {
+         if (QR[k][k] != 0) {
+            applyReflection(k,Y,0,nx);
+         }
+      }
+
+      // Solve R(0:r-1,0:r-1)*Z = Y(0:r-1,:) and undo the permutation.
+      int r = rank();
+      for (int k = r-1; k >= 0; k--) {
+         for (int j = 0; j < nx; j++) {
+            Y[k][j] /= Rdiag[k];
+         }
+         for (int i = 0; i < k; i++) {
+            for (int j = 0; j < nx; j++) {
+               Y[i][j] -= Y[k][j]*QR[i][k];
+            }
+         }
+      }
+      Matrix X = new Matrix(n,nx);
+      for (int k = 0; k < r; k++) {
+         for (int j = 0; j < nx; j++) {
+            X.set(piv[k],j,Y[k][j]);
+         }
+      }
+      return X;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Apply the k-th reflection to the columns j0:j1-1 of X. **/
+
+   private void applyReflection (int k, double[][] X, int j0, int j1) {
+      double[] s = new double[j1];
+      for (int i = k; i < m; i++) {
+         double v = QR[i][k];
+         for (int j = j0; j < j1; j++) {
+            s[j] += v*X[i][j];
+         }
+      }
+      for (int j = j0; j < j1; j++) {
+         s[j] = -s[j]/QR[k][k];
+      }
+      for (int i = k; i < m; i++) {
+         double v = QR[i][k];
+         for (int j = j0; j < j1; j++) {
+            X[i][j] += s[j]*v;
+         }
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,22 @@
+package Jama;
+
+/** Preconditioner.
+<P>
+   A preconditioner M approximates the operator A of a linear system by
+   one that is cheap to invert, so that a Krylov solver applied to the
+   preconditioned system, with M\A in place of A, converges in fewer
+   iterations.  The better M approximates A, the fewer the iterations,
+   but the more the preconditioner costs to build and apply.  The
+   conjugate gradient and MINRES solvers need a symmetric positive
+   definite M; GMRES and BiCGSTAB accept any nonsingular M.
+*/
+
+public interface Preconditioner {
+
+   /** Apply the inverse of the preconditioner, z = M\r
+   @param r    vector of length n
+   @param z    vector of length n, overwritten with M\r
+   */
+
+   void solve (double[] r, double[] z);
+}
@@ -1,5 +1,7 @@
 package Jama;
 import Jama.util.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 /** QR Decomposition.
 <P>
@@ -12,6 +14,11 @@ import Jama.util.*;
    QR decomposition is in the least squares solution of nonsquare systems
    of simultaneous linear equations.  This will fail if isFullRank()
    returns false.
+<P>
+   The decomposition can be updated when a row is appended to or deleted
+   from A, or a column is inserted or deleted, with Givens rotations in
+   O(mn) operations.  After the first update, Q and R are kept explicitly
+   and the Householder vectors are no longer available.
 */
 
 public class QRDecomposition implements java.io.Serializable {
@@ -36,6 +43,17 @@ public class QRDecomposition implements java.io.Serializable {
    */
    private double[] Rdiag;
 
+   /** Explicit factors, kept once the decomposition has been updated.
+       The columns of Q are stored as the rows of Qt, which may be longer
+       than m so that rows can be appended without copying.
+   @serial transposed orthogonal factor, or null before an update.
+   @serial upper triangular factor, or null before an update.
+   */
+   private double[][] Qt, R;
+
+   /** Number of reflectors applied together in the blocked algorithm. */
+   private static final int NB = 32;
+
 /* ------------------------
    Constructor
  * ------------------------ */
@@ -51,38 +69,17 @@ public class QRDecomposition implements java.io.Serializable {
       m = A.getRowDimension();
       n = A.getColumnDimension();
       Rdiag = new double[n];
+      Matrix X = new Matrix(QR,m,n);
 
-      // Main loop.
-      for (int k = 0; k < n; k++) {
-         // Compute 2-norm of k-th column without under/overflow.
-         double nrm = 0;
-         for (int i = k; i < m; i++) {
-            nrm = Maths.hypot(nrm,QR[i][k]);
+      // Main loop over panels of NB columns.  The reflections of a panel
+      // are applied to the remaining columns all at once, in the compact
+      // WY form I - V*T*V', with matrix products.
+      for (int j0 = 0; j0 < n; j0 += NB) {
+         int j1 = Math.min(j0+NB,n);
+         Matrix Vt = factorPanel(j0,j1);
+         if (j1 < n && j0 < m) {
+            applyBlock(Vt,blockFactor(Vt),true,X.getView(j0,m-1,j1,n-1),null);
          }
-
-         if (nrm != 0.0) {
-            // Form k-th Householder vector.
-            if (QR[k][k] < 0) {
-               nrm = -nrm;
-            }
-            for (int i = k; i < m; i++) {
-               QR[i][k] /= nrm;
-            }
-            QR[k][k] += 1.0;
-
-            // Apply transformation to remaining columns.
-            for (int j = k+1; j < n; j++) {
-               double s = 0.0; 
-               for (int i = k; i < m; i++) {
-                  s += QR[i][k]*QR[i][j];
-               }
-               s = -s/QR[k][k];
-               for (int i = k; i < m; i++) {
-                  QR[i][j] += s*QR[i][k];
-               }
-            }
-         }
-         Rdiag[k] = -nrm;
       }
    }
 
@@ -96,7 +93,7 @@ public class QRDecomposition implements java.io.Serializable {
 
    public boolean isFullRank () {
       for (int j = 0; j < n; j++) {
-         if (Rdiag[j] == 0)
+         if ((QR != null ? Rdiag[j] : R[j][j]) == 0)
             return false;
       }
       return true;
@@ -104,9 +101,13 @@ public class QRDecomposition implements java.io.Serializable {
 
    /** Return the Householder vectors
    @return     Lower trapezoidal matrix whose columns define the reflections
+   @exception  RuntimeException  Householder vectors are not kept after an update.
    */
 
    public Matrix getH () {
+      if (QR == null) {
+         throw new RuntimeException("Householder vectors are not kept after an update.");
+      }
       Matrix X = new Matrix(m,n);
       double[][] H = X.getArray();
       for (int i = 0; i < m; i++) {
@@ -126,6 +127,9 @@ public class QRDecomposition implements java.io.Serializable {
    */
 
    public Matrix getR () {
+      if (QR == null) {
+         return new Matrix(R,n,n).copy();
+      }
       Matrix X = new Matrix(n,n);
       double[][] R = X.getArray();
       for (int i = 0; i < n; i++) {
@@ -148,24 +152,22 @@ public class QRDecomposition implements java.io.Serializable {
 
    public Matrix getQ () {
       Matrix X = new Matrix(m,n);
-      double[][] Q = X.getArray();
-      for (int k = n-1; k >= 0; k--) {
-         for (int i = 0; i < m; i++) {
-            Q[i][k] = 0.0;
-         }
-         Q[k][k] = 1.0;
-         for (int j = k; j < n; j++) {
-            if (QR[k][k] != 0) {
-               double s = 0.0;
-               for (int i = k; i < m; i++) {
-                  s += QR[i][k]*Q[i][j];
-               }
-               s = -s/QR[k][k];
-               for (int i = k; i < m; i++) {
-                  Q[i][j] += s*QR[i][k];
-               }
+      if (QR == null) {
+         for (int k = 0; k < n; k++) {
+            for (int i = 0; i < m; i++) {
+               X.set(i,k,Qt[k][i]);
             }
          }
+         return X;
+      }
+      for (int k = 0; k < Math.min(m,n); k++) {
+         X.set(k,k,1.0);
+      }
+      for (int j0 = (n-1)/NB*NB; j0 >= 0; j0 -= NB) {
+         if (j0 < m) {
+            Matrix Vt = reflectors(j0,Math.min(j0+NB,n));
+            applyBlock(Vt,blockFactor(Vt),false,X.getView(j0,m-1,j0,n-1),null);
+         }
       }
       return X;
    }
@@ -185,35 +187,467 @@ public class QRDecomposition implements java.io.Serializable {
          throw new RuntimeException("Matrix is rank deficient.");
       }
       
-      // Copy right hand side
-      int nx = B.getColumnDimension();
-      double[][] X = B.getArrayCopy();
-
       // Compute Y = transpose(Q)*B
-      for (int k = 0; k < n; k++) {
-         for (int j = 0; j < nx; j++) {
-            double s = 0.0; 
-            for (int i = k; i < m; i++) {
-               s += QR[i][k]*X[i][j];
-            }
-            s = -s/QR[k][k];
-            for (int i = k; i < m; i++) {
-               X[i][j] += s*QR[i][k];
+      int nx = B.getColumnDimension();
+      double[][] X;
+      if (QR != null) {
+         X = transposeQTimes(B).getArray();
+      } else {
+         double[][] Barr = B.getArray();
+         X = new double[n][nx];
+         for (int k = 0; k < n; k++) {
+            double[] Xk = X[k], Qk = Qt[k];
+            for (int i = 0; i < m; i++) {
+               double q = Qk[i];
+               double[] Bi = Barr[i];
+               for (int j = 0; j < nx; j++) {
+                  Xk[j] += q*Bi[j];
+               }
             }
          }
       }
+
       // Solve R*X = Y;
+      double[][] U = (QR != null ? QR : R);
       for (int k = n-1; k >= 0; k--) {
+         double d = (QR != null ? Rdiag[k] : R[k][k]);
          for (int j = 0; j < nx; j++) {
-            X[k][j] /= Rdiag[k];
+            X[k][j] /= d;
          }
          for (int i = 0; i < k; i++) {
             for (int j = 0; j < nx; j++) {
-               X[i][j] -= X[k][j]*QR[i][k];
+               X[i][j] -= X[k][j]*U[i][k];
             }
          }
       }
       return (new Matrix(X,n,nx).getMatrix(0,n-1,0,nx-1));
    }
+
+   /** Update the decomposition for a row appended to A.
+   @param a    A 1-by-n Matrix, the new last row of A.
+   @exception  IllegalArgumentException  Matrix column dimensions must agree.
+   */
+
+   public void appendRow (Matrix a) {
+      if (a.getRowDimension() != 1 || a.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix column dimensions must agree.");
+      }
+      explicit();
+
+      // [A; a] = [Q 0; 0 1]*[R; a].  Rotate a into the rows of R; the extra
+      // column of the orthogonal factor, z, ends up multiplying a zero row.
+      double[] w = a.getRowPackedCopy();
+      double[] z = new double[m+1];
+      z[m] = 1.0;
+      for (int k = 0; k < n; k++) {
+         Qt[k] = ensureCapacity(Qt[k],m+1);
+         Qt[k][m] = 0.0;
+      }
+      for (int k = 0; k < n; k++) {
+         double r = Maths.hypot(R[k][k],w[k]);
+         if (r != 0.0) {
+            double c = R[k][k]/r, s = w[k]/r;
+            rotate(R[k],w,k,n,c,s);
+            rotate(Qt[k],z,0,m+1,c,s);
+         }
+      }
+      m++;
+   }
+
+   /** Update the decomposition for a row deleted from A.
+   @param i    Index of the row to delete.
+   @exception  ArrayIndexOutOfBoundsException  Row index out of range.
+   @exception  IllegalArgumentException  Matrix must keep at least as many rows as columns.
+   */
+
+   public void deleteRow (int i) {
+      if (i < 0 || i >= m) {
+         throw new ArrayIndexOutOfBoundsException("Row index out of range.");
+      }
+      if (m <= n) {
+         throw new IllegalArgumentException("Matrix must keep at least as many rows as columns.");
+      }
+      explicit();
+
+      // Extend Q by a unit vector u orthogonal to it, so that the i-th row
+      // t of [Q u] has unit norm, and [Q u]*[R; 0] is still A.
+      double[] u = new double[m];
+      u[i] = 1.0;
+      if (complement(u,null) == 0.0) {
+         u = direction(i);
+      }
+      double[] t = new double[n+1];
+      for (int k = 0; k < n; k++) {
+         t[k] = Qt[k][i];
+      }
+      t[n] = u[i];
+
+      // Rotate t into its first element.  The first column of [Q u] becomes
+      // the i-th unit vector, so the first row of [R; 0] becomes the i-th
+      // row of A, and the rest of [R; 0] is upper triangular.
+      double[][] Qa = Arrays.copyOf(Qt,n+1);
+      double[][] Ra = Arrays.copyOf(R,n+1);
+      Qa[n] = u;
+      Ra[n] = new double[n];
+      for (int k = n-1; k >= 0; k--) {
+         double r = Maths.hypot(t[k],t[k+1]);
+         if (r != 0.0) {
+            double c = t[k]/r, s = t[k+1]/r;
+            t[k] = r;
+            t[k+1] = 0.0;
+            rotate(Ra[k],Ra[k+1],k,n,c,s);
+            rotate(Qa[k],Qa[k+1],0,m,c,s);
+         }
+      }
+      for (int k = 0; k < n; k++) {
+         double[] Qk = Qa[k+1];
+         System.arraycopy(Qk,i+1,Qk,i,m-i-1);
+         Qt[k] = Qk;
+         R[k] = Ra[k+1];
+      }
+      m--;
+   }
+
+   /** Update the decomposition for a column inserted into A.
+   @param j    Index of the new column, from 0 to n.
+   @param a    An m-by-1 Matrix, the new column of A.
+   @exception  ArrayIndexOutOfBoundsException  Column index out of range.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  IllegalArgumentException  Matrix must keep at least as many rows as columns.
+   */
+
+   public void insertColumn (int j, Matrix a) {
+      if (j < 0 || j > n) {
+         throw new ArrayIndexOutOfBoundsException("Column index out of range.");
+      }
+      if (a.getRowDimension() != m || a.getColumnDimension() != 1) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (m <= n) {
+         throw new IllegalArgumentException("Matrix must keep at least as many rows as columns.");
+      }
+      explicit();
+
+      // a = Q*w + rho*v, with v a unit vector orthogonal to Q.
+      double[] v = a.getColumnPackedCopy();
+      double[] w = new double[n+1];
+      double rho = complement(v,w);
+      if (rho == 0.0) {
+         v = direction(-1);
+      }
+      w[n] = rho;
+
+      // [Q v]*[R(:,0:j-1) w R(:,j:n-1)] with the last row of R extended by
+      // zeros is A with a inserted.  Rotate column j back to triangular.
+      double[][] Ra = new double[n+1][n+1];
+      for (int r = 0; r < n; r++) {
+         System.arraycopy(R[r],0,Ra[r],0,j);
+         System.arraycopy(R[r],j,Ra[r],j+1,n-j);
+         Ra[r][j] = w[r];
+      }
+      Ra[n][j] = rho;
+      double[][] Qa = Arrays.copyOf(Qt,n+1);
+      Qa[n] = v;
+      for (int k = n; k > j; k--) {
+         double r = Maths.hypot(Ra[k-1][j],Ra[k][j]);
+         if (r != 0.0) {
+            double c = Ra[k-1][j]/r, s = Ra[k][j]/r;
+            rotate(Ra[k-1],Ra[k],j,n+1,c,s);
+            Ra[k][j] = 0.0;
+            rotate(Qa[k-1],Qa[k],0,m,c,s);
+         }
+      }
+      Qt = Qa;
+      R = Ra;
+      n++;
+   }
+
+   /** Update the decomposition for a column deleted from A.
+   @param j    Index of the column to delete.
+   @exception  ArrayIndexOutOfBoundsException  Column index out of range.
+   */
+
+   public void deleteColumn (int j) {
+      if (j < 0 || j >= n) {
+         throw new ArrayIndexOutOfBoundsException("Column index out of range.");
+      }
+      explicit();
+
+      // R without column j is upper Hessenberg from column j on.  Rotate
+      // away the subdiagonal; the last row of R and column of Q then drop.
+      for (int r = 0; r < n; r++) {
+         double[] Rr = new double[n-1];
+         System.arraycopy(R[r],0,Rr,0,j);
+         System.arraycopy(R[r],j+1,Rr,j,n-j-1);
+         R[r] = Rr;
+      }
+      for (int k = j; k < n-1; k++) {
+         double r = Maths.hypot(R[k][k],R[k+1][k]);
+         if (r != 0.0) {
+            double c = R[k][k]/r, s = R[k+1][k]/r;
+            rotate(R[k],R[k+1],k,n-1,c,s);
+            R[k+1][k] = 0.0;
+            rotate(Qt[k],Qt[k+1],0,m,c,s);
+         }
+      }
+      Qt = Arrays.copyOf(Qt,n-1);
+      R = Arrays.copyOf(R,n-1);
+      n--;
+   }
+
+/* ------------------------
+   Package Methods
+ * ------------------------ */
+
+   /** Apply the transpose of the full orthogonal factor to B.
+   @param B    A Matrix with as many rows as A.
+   @return     Q'*B, where Q is the m-by-m product of the reflections.
+   */
+
+   Matrix transposeQTimes (Matrix B) {
+      if (QR == null) {
+         throw new RuntimeException("Householder vectors are not kept after an update.");
+      }
+      int nx = B.getColumnDimension();
+      Matrix Y = new Matrix(B.getArrayCopy(),m,nx);
+      for (int j0 = 0; j0 < Math.min(m,n); j0 += NB) {
+         Matrix Vt = reflectors(j0,Math.min(j0+NB,n));
+         applyBlock(Vt,blockFactor(Vt),true,Y.getView(j0,m-1,0,nx-1),null);
+      }
+      return Y;
+   }
+
+   /** Overwrite C with (I - V*T*V')*C, or with (I - V*T'*V')*C if transpose.
+   @param Vt        V', the reflection vectors of a block by rows.
+   @param T         The triangular factor of the block.
+   @param transpose Use T' in place of T.
+   @param C         Matrix with as many rows as V.
+   @param pool      Pool that runs the matrix products, or null.
+   */
+
+   static void applyBlock (Matrix Vt, Matrix T, boolean transpose, Matrix C, ForkJoinPool pool) {
+      int nb = Vt.getRowDimension(), nc = C.getColumnDimension();
+      Matrix W = Matrix.gemm(1.0,Vt,false,C,false,0.0,new Matrix(nb,nc),pool);
+      W = Matrix.gemm(1.0,T,transpose,W,false,0.0,new Matrix(nb,nc),pool);
+      Matrix.gemm(-1.0,Vt,true,W,false,1.0,C,pool);
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Switch to explicit Q and R before the first update. **/
+
+   private void explicit () {
+      if (QR == null) {
+         return;
+      }
+      if (m < n) {
+         throw new IllegalArgumentException("Matrix must have at least as many rows as columns.");
+      }
+      Qt = getQ().transpose().getArray();
+      R = getR().getArray();
+      QR = null;
+      Rdiag = null;
+   }
+
+   /** Apply the rotation [c s; -s c] to the pairs (x[j],y[j]), j0 <= j < j1. **/
+
+   private static void rotate (double[] x, double[] y, int j0, int j1, double c, double s) {
+      for (int j = j0; j < j1; j++) {
+         double t = x[j];
+         x[j] = c*t + s*y[j];
+         y[j] = c*y[j] - s*t;
+      }
+   }
+
+   /** x, or a longer copy of x if it has fewer than len elements. **/
+
+   private static double[] ensureCapacity (double[] x, int len) {
+      return (x.length >= len ? x : Arrays.copyOf(x,Math.max(len,x.length+x.length/2)));
+   }
+
+   /** Orthogonalize v against the columns of Q and normalize it.  A second
+       pass is made if the first cancels most of v; if the second does too,
+       v is taken to lie in the range of Q.
+   @param v    Vector of length m, overwritten.
+   @param w    If not null, Q'*v is added to its first n elements.
+   @return     The norm of v after orthogonalization, or 0 if v is in the range of Q.
+   */
+
+   private double complement (double[] v, double[] w) {
+      double nrm = norm(v);
+      for (int pass = 0; pass < 2; pass++) {
+         for (int k = 0; k < n; k++) {
+            double[] Qk = Qt[k];
+            double s = 0.0;
+            for (int i = 0; i < m; i++) {
+               s += Qk[i]*v[i];
+            }
+            for (int i = 0; i < m; i++) {
+               v[i] -= s*Qk[i];
+            }
+            if (w != null) {
+               w[k] += s;
+            }
+         }
+         double prev = nrm;
+         nrm = norm(v);
+         if (nrm > prev/Math.sqrt(2.0)) {
+            for (int i = 0; i < m; i++) {
+               v[i] /= nrm;
+            }
+            return nrm;
+         }
+      }
+      return 0.0;
+   }
+
+   /** A unit vector orthogonal to the columns of Q, made from the unit
+       vector of the row of Q with the smallest norm, other than row skip. **/
+
+   private double[] direction (int skip) {
+      double[] s = new double[m];
+      for (int k = 0; k < n; k++) {
+         double[] Qk = Qt[k];
+         for (int i = 0; i < m; i++) {
+            s[i] += Qk[i]*Qk[i];
+         }
+      }
+      int p = (skip == 0 ? 1 : 0);
+      for (int i = 0; i < m; i++) {
+         if (i != skip && s[i] < s[p]) {
+            p = i;
+         }
+      }
+      double[] v = new double[m];
+      v[p] = 1.0;
+      complement(v,null);
+      return v;
+   }
+
+   private double norm (double[] v) {
+      double nrm = 0.0;
+      for (int i = 0; i < m; i++) {
+         nrm = Maths.hypot(nrm,v[i]);
+      }
+      return nrm;
+   }
+
+   /** Factor the columns j0:j1-1 by Householder reflections.  The panel is
+       copied by columns, so the reflections run over consecutive elements.
+   @param j0   First column of the panel.
+   @param j1   Column after the last column of the panel.
+   @return     V', the reflection vectors of the panel by rows.
+   */
+
+   private Matrix factorPanel (int j0, int j1) {
+      int nb = j1-j0, mp = Math.max(m-j0,0);
+      double[][] P = new double[nb][mp];
+      for (int i = 0; i < mp; i++) {
+         double[] QRrowi = QR[j0+i];
+         for (int k = 0; k < nb; k++) {
+            P[k][i] = QRrowi[j0+k];
+         }
+      }
+      for (int k = 0; k < nb; k++) {
+         double[] Pk = P[k];
+         // Compute 2-norm of k-th column without under/overflow.
+         double nrm = 0;
+         for (int i = k; i < mp; i++) {
+            nrm = Maths.hypot(nrm,Pk[i]);
+         }
+
+         if (nrm != 0.0) {
+            // Form k-th Householder vector.
+            if (Pk[k] < 0) {
+               nrm = -nrm;
+            }
+            for (int i = k; i < mp; i++) {
+               Pk[i] /= nrm;
+            }
+            Pk[k] += 1.0;
+
+            // Apply transformation to remaining columns of the panel.
+            for (int j = k+1; j < nb; j++) {
+               double[] Pj = P[j];
+               double s = 0.0;
+               for (int i = k; i < mp; i++) {
+                  s += Pk[i]*Pj[i];
+               }
+               s = -s/Pk[k];
+               for (int i = k; i < mp; i++) {
+                  Pj[i] += s*Pk[i];
+               }
+            }
+         }
+         Rdiag[j0+k] = -nrm;
+      }
+      for (int i = 0; i < mp; i++) {
+         double[] QRrowi = QR[j0+i];
+         for (int k = 0; k < nb; k++) {
+            QRrowi[j0+k] = P[k][i];
+         }
+      }
+      for (int k = 0; k < nb; k++) {
+         Arrays.fill(P[k],0,Math.min(k,mp),0.0);
+      }
+      return new Matrix(P,nb,mp);
+   }
+
+   /** The reflection vectors of the columns j0:j1-1, by rows.
+   @param j0   First column of the panel.
+   @param j1   Column after the last column of the panel.
+   @return     V'
+   */
+
+   private Matrix reflectors (int j0, int j1) {
+      int nb = j1-j0, mp = m-j0;
+      double[][] P = new double[nb][mp];
+      for (int i = 0; i < mp; i++) {
+         double[] QRrowi = QR[j0+i];
+         for (int k = 0; k < Math.min(i+1,nb); k++) {
+            P[k][i] = QRrowi[j0+k];
+         }
+      }
+      return new Matrix(P,nb,mp);
+   }
+
+   /** The upper triangular T with H(j0)*...*H(j1-1) = I - V*T*V'.
+       Each reflection is H(k) = I - v*v'/v[k], or the identity if v[k] is 0.
+   @param Vt   V', the reflection vectors of the panel by rows.
+   @return     T
+   */
+
+   private static Matrix blockFactor (Matrix Vt) {
+      int nb = Vt.getRowDimension(), mp = Vt.getColumnDimension();
+      double[][] V = Vt.getArray();
+      double[][] T = new double[nb][nb];
+      double[] w = new double[nb];
+      for (int k = 0; k < nb; k++) {
+         double[] Vk = V[k];
+         double tau = (k < mp && Vk[k] != 0.0 ? 1.0/Vk[k] : 0.0);
+         // w = V(:,0:k-1)'*v(k)
+         for (int c = 0; c < k; c++) {
+            double[] Vc = V[c];
+            double s = 0.0;
+            for (int i = k; i < mp; i++) {
+               s += Vc[i]*Vk[i];
+            }
+            w[c] = s;
+         }
+         // T(0:k-1,k) = -tau*T(0:k-1,0:k-1)*w
+         for (int r = 0; r < k; r++) {
+            double s = 0.0;
+            for (int c = r; c < k; c++) {
+               s += T[r][c]*w[c];
+            }
+            T[r][k] = -tau*s;
+         }
+         T[k][k] = tau;
+      }
+      return new Matrix(T,nb,nb);
+   }
+
   private static final long serialVersionUID = 1;
 }
@@ -0,0 +1,117 @@
+package Jama;
+
+   /** Symmetric Successive Over-Relaxation Preconditioner.
+   <P>
+   With A = L + D + U split into its strictly lower, diagonal and strictly
+   upper parts, and a relaxation factor 0 < omega < 2, the SSOR
+   preconditioner is
+   <PRE>
+      M = (D/omega + L) * (D/omega)^-1 * (D/omega + U) * omega/(2-omega)
+   </PRE>
+   Applying it is a forward and a backward triangular sweep over the
+   nonzeros of A, so it costs about two matrix-vector products and needs
+   no factorization.  M is symmetric positive definite when A is, so it
+   may be used with the conjugate gradient solver.  omega = 1 gives the
+   symmetric Gauss-Seidel preconditioner.
+   */
+
+public class SSORPreconditioner implements Preconditioner, java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Nonzeros of A.
+   @serial compressed rows of A.
+   */
+   private SparseMatrix A;
+
+   /** Positions of the diagonal entries in the rows of A.
+   @serial diagonal positions.
+   */
+   private int[] diag;
+
+   /** Relaxation factor.
+   @serial relaxation factor.
+   */
+   private double omega;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** SSOR preconditioner of a square matrix.
+   @param Arg      Square matrix with a nonzero diagonal.
+   @param omega    Relaxation factor, between 0 and 2.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  IllegalArgumentException  Relaxation factor must be between 0 and 2.
+   @exception  RuntimeException  Matrix has a zero diagonal entry.
+   */
+
+   public SSORPreconditioner (Matrix Arg, double omega) {
+      this(new SparseMatrix(Arg),omega);
+   }
+
+   /** SSOR preconditioner of a sparse matrix.
+   @param Arg      Square sparse matrix with a nonzero diagonal.
+   @param omega    Relaxation factor, between 0 and 2.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  IllegalArgumentException  Relaxation factor must be between 0 and 2.
+   @exception  RuntimeException  Matrix has a zero diagonal entry.
+   */
+
+   public SSORPreconditioner (SparseMatrix Arg, double omega) {
+      if (Arg.getColumnDimension() != Arg.getRowDimension()) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      if (!(omega > 0.0 && omega < 2.0)) {
+         throw new IllegalArgumentException("Relaxation factor must be between 0 and 2.");
+      }
+      A = Arg;
+      diag = A.diagonalIndex();
+      for (int i = 0; i < A.m; i++) {
+         if (diag[i] < 0 || A.val[diag[i]] == 0.0) {
+            throw new RuntimeException("Matrix has a zero diagonal entry.");
+         }
+      }
+      this.omega = omega;
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Apply the forward and backward sweeps, z = M\r
+   @param r    vector of length n
+   @param z    vector of length n, overwritten with M\r
+   */
+
+   public void solve (double[] r, double[] z) {
+      int[] ptr = A.ptr, col = A.col;
+      double[] val = A.val;
+
+      // Solve (D/omega + L)*y = r, and scale y by D/omega*(2-omega)/omega.
+      for (int i = 0; i < A.m; i++) {
+         double s = r[i];
+         for (int p = ptr[i]; p < diag[i]; p++) {
+            s -= val[p]*z[col[p]];
+         }
+         z[i] = omega*s/val[diag[i]];
+      }
+      double c = (2.0-omega)/omega;
+      for (int i = 0; i < A.m; i++) {
+         z[i] *= c*val[diag[i]]/omega;
+      }
+
+      // Solve (D/omega + U)*z = y.
+      for (int i = A.m-1; i >= 0; i--) {
+         double s = z[i];
+         for (int p = diag[i]+1; p < ptr[i+1]; p++) {
+            s -= val[p]*z[col[p]];
+         }
+         z[i] = omega*s/val[diag[i]];
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -21,7 +21,7 @@ public class SingularValueDecomposition implements java.io.Serializable {
    Class variables
  * ------------------------ */
 
-   /** Arrays for internal storage of U and V.
+   /** Arrays for internal storage of U and V, null if not computed.
    @serial internal storage of U.
    @serial internal storage of V.
    */
@@ -48,6 +48,18 @@ public class SingularValueDecomposition implements java.io.Serializable {
    */
 
    public SingularValueDecomposition (Matrix Arg) {
+      this(Arg,true,true);
+   }
+
+   /** Construct the singular value decomposition, computing only the
+       singular vectors that are wanted.  Without U and V, the singular
+       values take about half the time and memory.
+   @param Arg    Rectangular matrix
+   @param wantu  Compute the left singular vectors U.
+   @param wantv  Compute the right singular vectors V.
+   */
+
+   public SingularValueDecomposition (Matrix Arg, boolean wantu, boolean wantv) {
 
       // Derived from LINPACK code.
       // Initialize.
@@ -62,12 +74,10 @@ public class SingularValueDecomposition implements java.io.Serializable {
       */
       int nu = Math.min(m,n);
       s = new double [Math.min(m+1,n)];
-      U = new double [m][nu];
-      V = new double [n][n];
+      U = (wantu ? new double [m][nu] : null);
+      V = (wantv ? new double [n][n] : null);
       double[] e = new double [n];
       double[] work = new double [m];
-      boolean wantu = true;
-      boolean wantv = true;
 
       // Reduce A to bidiagonal form, storing the diagonal elements
       // in s and the super-diagonal elements in e.
@@ -475,17 +485,25 @@ public class SingularValueDecomposition implements java.io.Serializable {
 
    /** Return the left singular vectors
    @return     U
+   @exception  RuntimeException  Left singular vectors were not computed.
    */
 
    public Matrix getU () {
+      if (U == null) {
+         throw new RuntimeException("Left singular vectors were not computed.");
+      }
       return new Matrix(U,m,Math.min(m+1,n));
    }
 
    /** Return the right singular vectors
    @return     V
+   @exception  RuntimeException  Right singular vectors were not computed.
    */
 
    public Matrix getV () {
+      if (V == null) {
+         throw new RuntimeException("Right singular vectors were not computed.");
+      }
       return new Matrix(V,n,n);
    }
 
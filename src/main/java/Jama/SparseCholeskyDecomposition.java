@@ -0,0 +1,656 @@
+package Jama;
+
+import java.util.Arrays;
+
+   /** Sparse Cholesky Decomposition.
+   <P>
+   For a symmetric, positive definite sparse matrix A, the sparse Cholesky
+   decomposition is a permutation P and a sparse lower triangular matrix L
+   so that P*A*P' = L*L'.  The permutation is chosen to reduce the fill,
+   the entries of L that are zero in A, since the memory and the work of
+   the factorization grow with the number of nonzeros of L.
+   <P>
+   The decomposition is computed in two steps.  The symbolic analysis
+   orders A by nested dissection and computes the elimination tree and
+   the nonzero structure of L, from the structure of A alone.  The numeric
+   factorization then computes the values of L, column by column with the
+   left-looking algorithm.  A sequence of matrices with the same structure
+   and different values, such as those of a nonlinear or time dependent
+   problem on a fixed mesh, is factored by calling refactor(), which only
+   repeats the numeric step.
+   <P>
+   Only the lower triangle of A is used by the factorization.  As in
+   CholeskyDecomposition, if A is not symmetric or not positive definite,
+   the decomposition sets an internal flag that may be queried by the
+   isSPD() method, and solve() fails.
+   */
+
+public class SparseCholeskyDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Row and column dimension (square matrix).
+   @serial matrix dimension.
+   */
+   private int n;
+
+   /** Permutation: row k of P*A*P' is row perm[k] of A.
+   @serial permutation.
+   */
+   private int[] perm;
+
+   /** Structure of the lower triangle of P*A*P', by columns, and the
+       index of each of its entries in the values of A.
+   @serial column pointers.
+   @serial row indices.
+   @serial source indices.
+   */
+   private int[] Cp, Ci, Cs;
+
+   /** Structure of A, to check that refactored matrices agree with it.
+   @serial row pointers of A.
+   @serial column indices of A.
+   */
+   private int[] Ap, Aj;
+
+   /** L by columns: the entries of column j are Lx[Lp[j]:Lp[j+1]-1], in
+       the rows Li[Lp[j]:Lp[j+1]-1], the diagonal first and the others in
+       increasing order.
+   @serial column pointers.
+   @serial row indices.
+   @serial values.
+   */
+   private int[] Lp, Li;
+   private double[] Lx;
+
+   /** Symmetric and positive definite flag.
+   @serial is symmetric and positive definite flag.
+   */
+   private boolean isspd;
+
+   /** Subgraphs with at most this many nodes are not dissected further. */
+   private static final int LEAF = 64;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Sparse Cholesky decomposition with a nested dissection ordering.
+   @param  Arg   Square, symmetric sparse matrix.
+   @exception  IllegalArgumentException  Matrix must be square.
+   */
+
+   public SparseCholeskyDecomposition (SparseMatrix Arg) {
+      this(Arg,nestedDissection(Arg));
+   }
+
+   /** Sparse Cholesky decomposition with a given ordering.
+   @param  Arg    Square, symmetric sparse matrix.
+   @param  perm   Permutation, row k of P*A*P' being row perm[k] of A,
+                  or null for the natural ordering.
+   @exception  IllegalArgumentException  Matrix must be square.
+   @exception  IllegalArgumentException  Invalid permutation.
+   */
+
+   public SparseCholeskyDecomposition (SparseMatrix Arg, int[] perm) {
+      n = Arg.getRowDimension();
+      if (Arg.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      if (perm == null) {
+         perm = new int[n];
+         for (int k = 0; k < n; k++) {
+            perm[k] = k;
+         }
+      }
+      if (perm.length != n) {
+         throw new IllegalArgumentException("Invalid permutation.");
+      }
+      int[] pinv = new int[n];
+      Arrays.fill(pinv,-1);
+      for (int k = 0; k < n; k++) {
+         if (perm[k] < 0 || perm[k] >= n || pinv[perm[k]] >= 0) {
+            throw new IllegalArgumentException("Invalid permutation.");
+         }
+         pinv[perm[k]] = k;
+      }
+      this.perm = perm.clone();
+      analyze(Arg,pinv);
+      factor(Arg);
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Factor a matrix with the same structure, reusing the ordering and
+       the symbolic analysis.
+   @param  Arg   Square, symmetric sparse matrix with the nonzero structure
+                 of the matrix this decomposition was constructed from.
+   @exception  IllegalArgumentException  Matrix structure must agree.
+   */
+
+   public void refactor (SparseMatrix Arg) {
+      if (Arg.getRowDimension() != n || Arg.getColumnDimension() != n
+          || !(Arg.ptr == Ap || Arrays.equals(Arg.ptr,Ap))
+          || !(Arg.col == Aj || Arrays.equals(Arg.col,Aj))) {
+         throw new IllegalArgumentException("Matrix structure must agree.");
+      }
+      factor(Arg);
+   }
+
+   /** Is the matrix symmetric and positive definite?
+   @return     true if A is symmetric and positive definite.
+   */
+
+   public boolean isSPD () {
+      return isspd;
+   }
+
+   /** Return triangular factor.
+   @return     L, so that P*A*P' = L*L'
+   */
+
+   public SparseMatrix getL () {
+      return new SparseMatrix(n,n,Lp,Li,Lx).transpose();
+   }
+
+   /** Return the permutation.
+   @return     perm, row k of P*A*P' being row perm[k] of A
+   */
+
+   public int[] getPermutation () {
+      return perm.clone();
+   }
+
+   /** Solve A*x = b
+   @param  b   Right hand side, of length n.
+   @return     x so that A*x = b
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public double[] solve (double[] b) {
+      if (b.length != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!isspd) {
+         throw new RuntimeException("Matrix is not symmetric positive definite.");
+      }
+      double[] y = new double[n];
+      for (int k = 0; k < n; k++) {
+         y[k] = b[perm[k]];
+      }
+      solveInPlace(y);
+      double[] x = new double[n];
+      for (int k = 0; k < n; k++) {
+         x[perm[k]] = y[k];
+      }
+      return x;
+   }
+
+   /** Solve A*X = B
+   @param  B   A Matrix with as many rows as A and any number of columns.
+   @return     X so that A*X = B
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public Matrix solve (Matrix B) {
+      if (B.getRowDimension() != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!isspd) {
+         throw new RuntimeException("Matrix is not symmetric positive definite.");
+      }
+      int nx = B.getColumnDimension();
+      double[][] X = new double[n][nx];
+      double[] y = new double[n];
+      for (int j = 0; j < nx; j++) {
+         for (int k = 0; k < n; k++) {
+            y[k] = B.get(perm[k],j);
+         }
+         solveInPlace(y);
+         for (int k = 0; k < n; k++) {
+            X[perm[k]][j] = y[k];
+         }
+      }
+      return new Matrix(X,n,nx);
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   // Symbolic analysis: the structure of the permuted lower triangle by
+   // columns, the elimination tree, and the structure of L.  Row k of L
+   // is the set of nodes reached by walking up the elimination tree from
+   // the nonzeros of row k of the permuted lower triangle, stopping at k.
+
+   private void analyze (SparseMatrix A, int[] pinv) {
+      Ap = A.ptr;
+      Aj = A.col;
+
+      // Permuted lower triangle, by rows (Rp,Rj) and by columns (Cp,Ci),
+      // keeping the index of each entry in the values of A.
+      int[] rcount = new int[n+1];
+      int[] ccount = new int[n+1];
+      for (int i = 0; i < n; i++) {
+         for (int p = Ap[i]; p < Ap[i+1] && Aj[p] <= i; p++) {
+            int pi = pinv[i], pj = pinv[Aj[p]];
+            rcount[Math.max(pi,pj)+1]++;
+            ccount[Math.min(pi,pj)+1]++;
+         }
+      }
+      for (int k = 0; k < n; k++) {
+         rcount[k+1] += rcount[k];
+         ccount[k+1] += ccount[k];
+      }
+      int[] Rp = rcount.clone();
+      int[] Rj = new int[Rp[n]];
+      Cp = ccount.clone();
+      Ci = new int[Cp[n]];
+      Cs = new int[Cp[n]];
+      for (int i = 0; i < n; i++) {
+         for (int p = Ap[i]; p < Ap[i+1] && Aj[p] <= i; p++) {
+            int pi = pinv[i], pj = pinv[Aj[p]];
+            int r = Math.max(pi,pj), c = Math.min(pi,pj);
+            Rj[rcount[r]++] = c;
+            Ci[ccount[c]] = r;
+            Cs[ccount[c]++] = p;
+         }
+      }
+
+      // Elimination tree, with path compression through ancestor.
+      int[] parent = new int[n];
+      int[] ancestor = new int[n];
+      for (int k = 0; k < n; k++) {
+         parent[k] = -1;
+         ancestor[k] = -1;
+         for (int p = Rp[k]; p < Rp[k+1]; p++) {
+            int i = Rj[p];
+            while (i != -1 && i < k) {
+               int next = ancestor[i];
+               ancestor[i] = k;
+               if (next == -1) {
+                  parent[i] = k;
+               }
+               i = next;
+            }
+         }
+      }
+
+      // Column counts of L, then its row indices, one row at a time, so
+      // that each column comes out sorted.
+      int[] mark = new int[n];
+      Arrays.fill(mark,-1);
+      Lp = new int[n+1];
+      for (int k = 0; k < n; k++) {
+         Lp[k+1]++;
+         mark[k] = k;
+         for (int p = Rp[k]; p < Rp[k+1]; p++) {
+            for (int i = Rj[p]; mark[i] != k; i = parent[i]) {
+               mark[i] = k;
+               Lp[i+1]++;
+            }
+         }
+      }
+      for (int k = 0; k < n; k++) {
+         Lp[k+1] += Lp[k];
+      }
+      Li = new int[Lp[n]];
+      Lx = new double[Lp[n]];
+      int[] next = Arrays.copyOf(Lp,n);
+      Arrays.fill(mark,-1);
+      for (int k = 0; k < n; k++) {
+         Li[next[k]++] = k;
+         mark[k] = k;
+         for (int p = Rp[k]; p < Rp[k+1]; p++) {
+            for (int i = Rj[p]; mark[i] != k; i = parent[i]) {
+               mark[i] = k;
+               Li[next[i]++] = k;
+            }
+         }
+      }
+   }
+
+   // Numeric factorization, left-looking.  Column k of L is column k of
+   // the permuted lower triangle, less the columns j < k with L(k,j) != 0,
+   // scaled.  The columns j that still have to update a later column are
+   // kept in linked lists, head[k] listing those whose next row is k, and
+   // pos[j] is the position of that row in column j.
+
+   private void factor (SparseMatrix A) {
+      isspd = symmetric(A);
+      double[] val = A.val;
+      double[] x = new double[n];
+      int[] head = new int[n];
+      int[] link = new int[n];
+      int[] pos = new int[n];
+      Arrays.fill(head,-1);
+      for (int k = 0; k < n && isspd; k++) {
+         for (int p = Cp[k]; p < Cp[k+1]; p++) {
+            x[Ci[p]] += val[Cs[p]];
+         }
+         for (int j = head[k]; j != -1; ) {
+            int jnext = link[j];
+            int p = pos[j], p1 = Lp[j+1];
+            double lkj = Lx[p];
+            for (int q = p; q < p1; q++) {
+               x[Li[q]] -= lkj*Lx[q];
+            }
+            pos[j] = ++p;
+            if (p < p1) {
+               link[j] = head[Li[p]];
+               head[Li[p]] = j;
+            }
+            j = jnext;
+         }
+         double d = x[k];
+         x[k] = 0.0;
+         isspd = (d > 0.0);
+         double ljj = Math.sqrt(Math.max(d,0.0));
+         Lx[Lp[k]] = ljj;
+         for (int q = Lp[k]+1; q < Lp[k+1]; q++) {
+            Lx[q] = x[Li[q]]/ljj;
+            x[Li[q]] = 0.0;
+         }
+         pos[k] = Lp[k]+1;
+         if (pos[k] < Lp[k+1]) {
+            link[k] = head[Li[pos[k]]];
+            head[Li[pos[k]]] = k;
+         }
+      }
+   }
+
+   // Solve L*L'*y = b in place, with L by columns.
+
+   private void solveInPlace (double[] y) {
+      for (int j = 0; j < n; j++) {
+         double s = y[j] /= Lx[Lp[j]];
+         for (int q = Lp[j]+1; q < Lp[j+1]; q++) {
+            y[Li[q]] -= Lx[q]*s;
+         }
+      }
+      for (int j = n-1; j >= 0; j--) {
+         double s = y[j];
+         for (int q = Lp[j]+1; q < Lp[j+1]; q++) {
+            s -= Lx[q]*y[Li[q]];
+         }
+         y[j] = s/Lx[Lp[j]];
+      }
+   }
+
+   /** Is A equal to its transpose? **/
+
+   private static boolean symmetric (SparseMatrix A) {
+      SparseMatrix T = A.transpose();
+      return Arrays.equals(A.ptr,T.ptr) && Arrays.equals(A.col,T.col)
+             && Arrays.equals(A.val,T.val);
+   }
+
+   // Nested dissection ordering of the graph of A.  A subgraph is split by
+   // a level of a breadth first search from a pseudo-peripheral node into
+   // two parts with no edges between them; the parts are ordered first,
+   // recursively, and the separating level last, so that eliminating one
+   // part creates no fill in the other.  Small subgraphs are ordered by
+   // reverse Cuthill-McKee.
+
+   private static int[] nestedDissection (SparseMatrix A) {
+      int n = A.getRowDimension();
+      if (A.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+
+      // Adjacency of the symmetrized structure, without the diagonal.
+      int[] adjp = new int[n+1];
+      for (int i = 0; i < n; i++) {
+         for (int p = A.ptr[i]; p < A.ptr[i+1]; p++) {
+            if (A.col[p] != i) {
+               adjp[i+1]++;
+               adjp[A.col[p]+1]++;
+            }
+         }
+      }
+      for (int i = 0; i < n; i++) {
+         adjp[i+1] += adjp[i];
+      }
+      int[] adj = new int[adjp[n]];
+      int[] next = Arrays.copyOf(adjp,n);
+      for (int i = 0; i < n; i++) {
+         for (int p = A.ptr[i]; p < A.ptr[i+1]; p++) {
+            int j = A.col[p];
+            if (j != i) {
+               adj[next[i]++] = j;
+               adj[next[j]++] = i;
+            }
+         }
+      }
+
+      int[] set = new int[n];
+      for (int i = 0; i < n; i++) {
+         set[i] = i;
+      }
+      new Dissection(adjp,adj).dissect(set,0,n);
+      return set;
+   }
+
+   /** Recursive bisection of the subgraphs of an adjacency structure.
+       The duplicate edges of unsymmetric structures are harmless. **/
+
+   private static class Dissection {
+
+      private final int[] adjp, adj;
+
+      /** Subgraph of each node, the nodes of set[lo:hi-1] being
+          labeled lo during dissect(set,lo,hi). **/
+      private final int[] label;
+
+      /** Level of each node in the latest search. **/
+      private final int[] level;
+
+      /** Nodes in the order of the latest search. **/
+      private final int[] queue;
+
+      Dissection (int[] adjp, int[] adj) {
+         this.adjp = adjp;
+         this.adj = adj;
+         int n = adjp.length-1;
+         label = new int[n];
+         level = new int[n];
+         queue = new int[n];
+      }
+
+      // Order the nodes of set[lo:hi-1] in place.
+
+      void dissect (int[] set, int lo, int hi) {
+         if (hi-lo > LEAF) {
+            for (int t = lo; t < hi; t++) {
+               label[set[t]] = lo;
+            }
+            int[] first = new int[hi-lo+1];
+            int nc = components(set,lo,hi,first);
+            if (nc > 1) {
+               // Disconnected: order the components one after another,
+               // small ones directly.
+               System.arraycopy(queue,0,set,lo,hi-lo);
+               for (int c = 0; c < nc; c++) {
+                  int c0 = lo+first[c], c1 = lo+first[c+1];
+                  if (c1-c0 > LEAF) {
+                     dissect(set,c0,c1);
+                  } else {
+                     reverseCuthillMcKee(set,c0,c1);
+                  }
+               }
+               return;
+            }
+            for (int t = lo; t < hi; t++) {
+               label[set[t]] = lo;
+            }
+            int root = peripheral(set[lo],lo);
+            int count = search(root,lo);
+
+            // Separator: the nodes of the middle level adjacent to the
+            // level after it.
+            int depth = level[queue[count-1]];
+            if (depth >= 2) {
+               int mid = level[queue[(count-1)/2]];
+               mid = Math.max(1,Math.min(mid,depth-1));
+               int na = 0, ns = 0;
+               for (int t = 0; t < count; t++) {
+                  int v = queue[t];
+                  if (level[v] < mid) {
+                     na++;
+                  } else if (level[v] == mid) {
+                     boolean sep = false;
+                     for (int p = adjp[v]; p < adjp[v+1] && !sep; p++) {
+                        int w = adj[p];
+                        sep = (label[w] == lo && level[w] == mid+1);
+                     }
+                     if (sep) {
+                        ns++;
+                     } else {
+                        level[v] = mid-1;
+                        na++;
+                     }
+                  }
+               }
+               int nb = count-na-ns;
+
+               // Arrange set[lo:hi-1] as part A, part B, separator, and label
+               // the nodes of B and of the separator apart from those of A.
+               int a = lo, b = lo+na, s = lo+na+nb;
+               for (int t = 0; t < count; t++) {
+                  int v = queue[t];
+                  if (level[v] < mid) {
+                     set[a++] = v;
+                  } else if (level[v] > mid) {
+                     set[b++] = v;
+                     label[v] = lo+na;
+                  } else {
+                     set[s++] = v;
+                     label[v] = -1;
+                  }
+               }
+               dissect(set,lo,lo+na);
+               dissect(set,lo+na,lo+na+nb);
+               return;
+            }
+         }
+         if (hi > lo) {
+            reverseCuthillMcKee(set,lo,hi);
+         }
+      }
+
+      // Pseudo-peripheral node of the subgraph labeled lo: repeat the
+      // search from a node of minimum degree in the last level while the
+      // number of levels grows.
+
+      private int peripheral (int root, int lo) {
+         int count = search(root,lo);
+         int depth = level[queue[count-1]];
+         for (int iter = 0; iter < 8; iter++) {
+            int best = queue[count-1];
+            for (int t = count-1; t >= 0 && level[queue[t]] == depth; t--) {
+               int v = queue[t];
+               if (adjp[v+1]-adjp[v] < adjp[best+1]-adjp[best]) {
+                  best = v;
+               }
+            }
+            int c = search(best,lo);
+            int d = level[queue[c-1]];
+            if (d <= depth) {
+               search(root,lo);
+               break;
+            }
+            root = best;
+            count = c;
+            depth = d;
+         }
+         return root;
+      }
+
+      // Breadth first search of the subgraph labeled lo, from root.  The
+      // nodes reached are put in queue with their levels, and counted.
+
+      private int search (int root, int lo) {
+         int count = 0;
+         queue[count++] = root;
+         level[root] = 0;
+         label[root] = ~lo;
+         for (int t = 0; t < count; t++) {
+            int v = queue[t];
+            for (int p = adjp[v]; p < adjp[v+1]; p++) {
+               int w = adj[p];
+               if (label[w] == lo) {
+                  label[w] = ~lo;
+                  level[w] = level[v]+1;
+                  queue[count++] = w;
+               }
+            }
+         }
+         for (int t = 0; t < count; t++) {
+            label[queue[t]] = lo;
+         }
+         return count;
+      }
+
+      // Components of the subgraph labeled lo, found by one breadth first
+      // sweep.  Their nodes are put in queue one component after another,
+      // component c in queue[first[c]:first[c+1]-1], and labeled ~lo.
+      // Returns the number of components.
+
+      private int components (int[] set, int lo, int hi, int[] first) {
+         int count = 0, nc = 0;
+         for (int t = lo; t < hi; t++) {
+            int root = set[t];
+            if (label[root] != lo) {
+               continue;
+            }
+            first[nc++] = count;
+            queue[count++] = root;
+            label[root] = ~lo;
+            for (int q = first[nc-1]; q < count; q++) {
+               int v = queue[q];
+               for (int p = adjp[v]; p < adjp[v+1]; p++) {
+                  int w = adj[p];
+                  if (label[w] == lo) {
+                     label[w] = ~lo;
+                     queue[count++] = w;
+                  }
+               }
+            }
+         }
+         first[nc] = count;
+         return nc;
+      }
+
+      // Reverse Cuthill-McKee ordering of set[lo:hi-1], one component at
+      // a time from a pseudo-peripheral node.
+
+      private void reverseCuthillMcKee (int[] set, int lo, int hi) {
+         for (int t = lo; t < hi; t++) {
+            label[set[t]] = lo;
+         }
+         int[] order = new int[hi-lo];
+         int done = 0;
+         for (int t = lo; t < hi; t++) {
+            if (label[set[t]] == lo) {
+               int count = search(peripheral(set[t],lo),lo);
+               for (int c = 0; c < count; c++) {
+                  order[done++] = queue[c];
+                  label[queue[c]] = ~lo;
+               }
+            }
+         }
+         for (int t = 0; t < order.length; t++) {
+            set[hi-1-t] = order[t];
+            label[order[t]] = lo;
+         }
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,567 @@
+package Jama;
+
+import java.util.Arrays;
+
+   /** Sparse Matrix.
+   <P>
+   A sparse matrix stores only its nonzero entries, in compressed row
+   form: the entries of row i are val[ptr[i]:ptr[i+1]-1], in the columns
+   col[ptr[i]:ptr[i+1]-1] in increasing order.  The memory used and the
+   work of every operation are proportional to the number of nonzeros
+   rather than to m*n, so matrices with millions of rows and a few
+   nonzeros per row, such as the Laplacians of graphs and meshes, can be
+   stored and multiplied.  The compressed column form of A is the
+   compressed row form of A', which transpose() computes.
+   <P>
+   Sparse matrices are assembled from (i,j,value) triplets, in any order
+   and with repeated entries summed, by a SparseMatrix.Builder, or
+   converted from a Matrix.  They are not modified by their methods, so
+   the structure computed once may be shared.  A sparse matrix is a
+   LinearOperator, so the Krylov solvers and the Lanczos eigensolver
+   accept it directly.
+<DL>
+<DT><B>Example of use:</B></DT>
+<P>
+<DD>Assemble the Laplacian of a path of n nodes and solve L x = b.
+<P><PRE>
+      SparseMatrix.Builder builder = new SparseMatrix.Builder(n,n);
+      for (int i = 0; i+1 &lt; n; i++) {
+         builder.add(i,i,1.).add(i+1,i+1,1.).add(i,i+1,-1.).add(i+1,i,-1.);
+      }
+      builder.add(0,0,1.);
+      SparseMatrix L = builder.build();
+      double[] x = new ConjugateGradientSolver(L,b).getSolution();
+</PRE></DD>
+</DL>
+   */
+
+public class SparseMatrix implements java.io.Serializable, LinearOperator {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Row and column dimensions.
+   @serial row dimension.
+   @serial column dimension.
+   */
+   final int m, n;
+
+   /** Row pointers and column indices of the nonzeros.
+   @serial row pointers, of length m+1.
+   @serial column indices, sorted within each row.
+   */
+   final int[] ptr, col;
+
+   /** Values of the nonzeros.
+   @serial nonzero values.
+   */
+   final double[] val;
+
+/* ------------------------
+   Constructors
+ * ------------------------ */
+
+   /** Construct a sparse matrix from the nonzeros of a matrix.
+   @param A    Dense matrix.
+   */
+
+   public SparseMatrix (Matrix A) {
+      m = A.getRowDimension();
+      n = A.getColumnDimension();
+      double[][] X = A.getArray();
+      ptr = new int[m+1];
+      for (int i = 0; i < m; i++) {
+         int nz = 0;
+         for (int j = 0; j < n; j++) {
+            if (X[i][j] != 0.0) {
+               nz++;
+            }
+         }
+         ptr[i+1] = ptr[i]+nz;
+      }
+      col = new int[ptr[m]];
+      val = new double[ptr[m]];
+      for (int i = 0, p = 0; i < m; i++) {
+         for (int j = 0; j < n; j++) {
+            if (X[i][j] != 0.0) {
+               col[p] = j;
+               val[p++] = X[i][j];
+            }
+         }
+      }
+   }
+
+   /** Construct a sparse matrix from its compressed rows, without
+       checking or copying the arrays.
+   @param m    Number of rows.
+   @param n    Number of columns.
+   @param ptr  Row pointers, of length m+1.
+   @param col  Column indices, sorted within each row.
+   @param val  Nonzero values.
+   */
+
+   SparseMatrix (int m, int n, int[] ptr, int[] col, double[] val) {
+      this.m = m;
+      this.n = n;
+      this.ptr = ptr;
+      this.col = col;
+      this.val = val;
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Generate a sparse identity matrix
+   @param n    Dimension.
+   @return     An n-by-n sparse matrix with ones on the diagonal.
+   */
+
+   public static SparseMatrix identity (int n) {
+      int[] ptr = new int[n+1];
+      int[] col = new int[n];
+      double[] val = new double[n];
+      for (int i = 0; i < n; i++) {
+         ptr[i+1] = i+1;
+         col[i] = i;
+         val[i] = 1.0;
+      }
+      return new SparseMatrix(n,n,ptr,col,val);
+   }
+
+   /** Make a deep copy of a sparse matrix
+   */
+
+   public SparseMatrix copy () {
+      return new SparseMatrix(m,n,ptr.clone(),col.clone(),val.clone());
+   }
+
+   /** Convert to a dense matrix
+   @return     Matrix with the same entries.
+   */
+
+   public Matrix toMatrix () {
+      double[][] X = new double[m][n];
+      for (int i = 0; i < m; i++) {
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            X[i][col[p]] = val[p];
+         }
+      }
+      return new Matrix(X,m,n);
+   }
+
+   /** Get row dimension.
+   @return     m, the number of rows.
+   */
+
+   public int getRowDimension () {
+      return m;
+   }
+
+   /** Get column dimension.
+   @return     n, the number of columns.
+   */
+
+   public int getColumnDimension () {
+      return n;
+   }
+
+   /** Get the number of stored entries.
+   @return     the number of nonzeros, including any explicitly stored zeros.
+   */
+
+   public int getNonzeroCount () {
+      return ptr[m];
+   }
+
+   /** Get a single element.
+   @param i    Row index.
+   @param j    Column index.
+   @return     A(i,j), zero if it is not stored.
+   @exception  ArrayIndexOutOfBoundsException
+   */
+
+   public double get (int i, int j) {
+      if (i < 0 || i >= m || j < 0 || j >= n) {
+         throw new ArrayIndexOutOfBoundsException("Index ("+i+","+j+")");
+      }
+      int p = Arrays.binarySearch(col,ptr[i],ptr[i+1],j);
+      return (p >= 0 ? val[p] : 0.0);
+   }
+
+   /** Sparse matrix transpose.
+   @return    A', which is also the compressed column form of A.
+   */
+
+   public SparseMatrix transpose () {
+      int nz = ptr[m];
+      int[] tptr = new int[n+1];
+      int[] tcol = new int[nz];
+      double[] tval = new double[nz];
+      for (int p = 0; p < nz; p++) {
+         tptr[col[p]+1]++;
+      }
+      for (int j = 0; j < n; j++) {
+         tptr[j+1] += tptr[j];
+      }
+
+      // Scatter the rows in increasing order, so that the columns of the
+      // transpose come out sorted.
+      int[] next = Arrays.copyOf(tptr,n);
+      for (int i = 0; i < m; i++) {
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            int q = next[col[p]]++;
+            tcol[q] = i;
+            tval[q] = val[p];
+         }
+      }
+      return new SparseMatrix(n,m,tptr,tcol,tval);
+   }
+
+   /** C = A + B
+   @param B    another sparse matrix
+   @return     A + B, with the nonzeros of both
+   @exception  IllegalArgumentException Matrix dimensions must agree.
+   */
+
+   public SparseMatrix plus (SparseMatrix B) {
+      return combine(1.0,B);
+   }
+
+   /** C = A - B
+   @param B    another sparse matrix
+   @return     A - B, with the nonzeros of both
+   @exception  IllegalArgumentException Matrix dimensions must agree.
+   */
+
+   public SparseMatrix minus (SparseMatrix B) {
+      return combine(-1.0,B);
+   }
+
+   /** Multiply a sparse matrix by a scalar, C = s*A
+   @param s    scalar
+   @return     s*A, with the nonzeros of A
+   */
+
+   public SparseMatrix times (double s) {
+      double[] sval = new double[ptr[m]];
+      for (int p = 0; p < sval.length; p++) {
+         sval[p] = s*val[p];
+      }
+      return new SparseMatrix(m,n,ptr,col,sval);
+   }
+
+   /** Sparse-dense matrix multiplication, A * B
+   @param B    a dense matrix
+   @return     Dense matrix product, A * B
+   @exception  IllegalArgumentException Matrix inner dimensions must agree.
+   */
+
+   public Matrix times (Matrix B) {
+      if (B.getRowDimension() != n) {
+         throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+      }
+      int k = B.getColumnDimension();
+      double[][] Y = B.getArray();
+      double[][] C = new double[m][k];
+      for (int i = 0; i < m; i++) {
+         double[] Crow = C[i];
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            double[] Yrow = Y[col[p]];
+            double a = val[p];
+            for (int j = 0; j < k; j++) {
+               Crow[j] += a*Yrow[j];
+            }
+         }
+      }
+      return new Matrix(C,m,k);
+   }
+
+   /** Sparse matrix multiplication, A * B
+   <P>
+   The rows of the product are accumulated one at a time in a dense
+   work vector, as in Gustavson's algorithm, so the work is the number
+   of multiplications plus the number of nonzeros of the product.
+   @param B    another sparse matrix
+   @return     Sparse matrix product, A * B
+   @exception  IllegalArgumentException Matrix inner dimensions must agree.
+   */
+
+   public SparseMatrix times (SparseMatrix B) {
+      if (B.m != n) {
+         throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+      }
+      int k = B.n;
+
+      // Symbolic pass: count the nonzeros of each row of the product.
+      // mark[j] == i when column j already occurs in row i.
+      int[] mark = new int[k];
+      Arrays.fill(mark,-1);
+      int[] cptr = new int[m+1];
+      for (int i = 0; i < m; i++) {
+         int nz = 0;
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            int l = col[p];
+            for (int q = B.ptr[l]; q < B.ptr[l+1]; q++) {
+               if (mark[B.col[q]] != i) {
+                  mark[B.col[q]] = i;
+                  nz++;
+               }
+            }
+         }
+         cptr[i+1] = cptr[i]+nz;
+      }
+
+      // Numeric pass: accumulate each row in w, then gather the
+      // columns in increasing order.
+      int[] ccol = new int[cptr[m]];
+      double[] cval = new double[cptr[m]];
+      double[] w = new double[k];
+      Arrays.fill(mark,-1);
+      for (int i = 0; i < m; i++) {
+         int c = cptr[i];
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            int l = col[p];
+            double a = val[p];
+            for (int q = B.ptr[l]; q < B.ptr[l+1]; q++) {
+               int j = B.col[q];
+               if (mark[j] != i) {
+                  mark[j] = i;
+                  ccol[c++] = j;
+                  w[j] = a*B.val[q];
+               } else {
+                  w[j] += a*B.val[q];
+               }
+            }
+         }
+         Arrays.sort(ccol,cptr[i],cptr[i+1]);
+         for (int q = cptr[i]; q < cptr[i+1]; q++) {
+            cval[q] = w[ccol[q]];
+         }
+      }
+      return new SparseMatrix(m,k,cptr,ccol,cval);
+   }
+
+   /** Matrix-vector multiplication, y = A * x
+   @param x    vector of length n
+   @param y    vector of length m, overwritten with A * x
+   @exception  IllegalArgumentException Matrix dimensions must agree.
+   */
+
+   public void apply (double[] x, double[] y) {
+      if (x.length != n || y.length != m) {
+         throw new IllegalArgumentException("Matrix dimensions must agree.");
+      }
+      for (int i = 0; i < m; i++) {
+         double s = 0.0;
+         for (int p = ptr[i]; p < ptr[i+1]; p++) {
+            s += val[p]*x[col[p]];
+         }
+         y[i] = s;
+      }
+   }
+
+/* ------------------------
+   Package Methods
+ * ------------------------ */
+
+   /** Positions of the diagonal entries.
+   @return     for each row i < min(m,n), the index of A(i,i) in col and
+               val, or -1 if it is not stored.
+   */
+
+   int[] diagonalIndex () {
+      int[] diag = new int[Math.min(m,n)];
+      for (int i = 0; i < diag.length; i++) {
+         int p = Arrays.binarySearch(col,ptr[i],ptr[i+1],i);
+         diag[i] = (p >= 0 ? p : -1);
+      }
+      return diag;
+   }
+
+   /** Lower triangle, diagonal included.
+   @return     a new sparse matrix with the entries of A on and below the diagonal.
+   */
+
+   SparseMatrix lower () {
+      int[] lptr = new int[m+1];
+      for (int i = 0; i < m; i++) {
+         int p = ptr[i];
+         while (p < ptr[i+1] && col[p] <= i) {
+            p++;
+         }
+         lptr[i+1] = lptr[i]+(p-ptr[i]);
+      }
+      int[] lcol = new int[lptr[m]];
+      double[] lval = new double[lptr[m]];
+      for (int i = 0; i < m; i++) {
+         int len = lptr[i+1]-lptr[i];
+         System.arraycopy(col,ptr[i],lcol,lptr[i],len);
+         System.arraycopy(val,ptr[i],lval,lptr[i],len);
+      }
+      return new SparseMatrix(m,n,lptr,lcol,lval);
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** A + s*B, merging the sorted rows of A and B. **/
+
+   private SparseMatrix combine (double s, SparseMatrix B) {
+      if (B.m != m || B.n != n) {
+         throw new IllegalArgumentException("Matrix dimensions must agree.");
+      }
+      int[] cptr = new int[m+1];
+      for (int i = 0; i < m; i++) {
+         int p = ptr[i], q = B.ptr[i], nz = 0;
+         while (p < ptr[i+1] || q < B.ptr[i+1]) {
+            int j = Math.min(p < ptr[i+1] ? col[p] : n, q < B.ptr[i+1] ? B.col[q] : n);
+            if (p < ptr[i+1] && col[p] == j) {
+               p++;
+            }
+            if (q < B.ptr[i+1] && B.col[q] == j) {
+               q++;
+            }
+            nz++;
+         }
+         cptr[i+1] = cptr[i]+nz;
+      }
+      int[] ccol = new int[cptr[m]];
+      double[] cval = new double[cptr[m]];
+      for (int i = 0; i < m; i++) {
+         int p = ptr[i], q = B.ptr[i], c = cptr[i];
+         while (p < ptr[i+1] || q < B.ptr[i+1]) {
+            int j = Math.min(p < ptr[i+1] ? col[p] : n, q < B.ptr[i+1] ? B.col[q] : n);
+            double v = 0.0;
+            if (p < ptr[i+1] && col[p] == j) {
+               v = val[p++];
+            }
+            if (q < B.ptr[i+1] && B.col[q] == j) {
+               v += s*B.val[q++];
+            }
+            ccol[c] = j;
+            cval[c++] = v;
+         }
+      }
+      return new SparseMatrix(m,n,cptr,ccol,cval);
+   }
+
+/* ------------------------
+   Builder
+ * ------------------------ */
+
+   /** Coordinate (triplet) builder of a sparse matrix.
+   <P>
+   Entries are added one at a time, in any order.  Repeated entries
+   are summed, as in the assembly of finite element matrices, and
+   entries added with a zero value are stored, so the structure of the
+   matrix does not depend on the values.
+   */
+
+   public static class Builder {
+
+      /** Dimensions and number of triplets. */
+      private int m, n, nz;
+
+      /** Triplets. */
+      private int[] rows, cols;
+      private double[] vals;
+
+      /** Start an m-by-n sparse matrix with no entries.
+      @param m    Number of rows.
+      @param n    Number of columns.
+      */
+
+      public Builder (int m, int n) {
+         this.m = m;
+         this.n = n;
+         rows = new int[16];
+         cols = new int[16];
+         vals = new double[16];
+      }
+
+      /** Add a value to an entry.
+      @param i    Row index.
+      @param j    Column index.
+      @param s    Value added to A(i,j).
+      @return     this builder.
+      @exception  ArrayIndexOutOfBoundsException
+      */
+
+      public Builder add (int i, int j, double s) {
+         if (i < 0 || i >= m || j < 0 || j >= n) {
+            throw new ArrayIndexOutOfBoundsException("Index ("+i+","+j+")");
+         }
+         if (nz == rows.length) {
+            int len = 2*nz;
+            rows = Arrays.copyOf(rows,len);
+            cols = Arrays.copyOf(cols,len);
+            vals = Arrays.copyOf(vals,len);
+         }
+         rows[nz] = i;
+         cols[nz] = j;
+         vals[nz++] = s;
+         return this;
+      }
+
+      /** Build the sparse matrix of the entries added so far.
+      <P>
+      The triplets are sorted by column and then, stably, by row, with
+      two counting sorts, so the work is linear in the number of
+      triplets and the dimensions.
+      @return     the sparse matrix.
+      */
+
+      public SparseMatrix build () {
+         // Sort the triplets by column.
+         int[] cptr = new int[n+1];
+         for (int t = 0; t < nz; t++) {
+            cptr[cols[t]+1]++;
+         }
+         for (int j = 0; j < n; j++) {
+            cptr[j+1] += cptr[j];
+         }
+         int[] bycol = new int[nz];
+         for (int t = 0; t < nz; t++) {
+            bycol[cptr[cols[t]]++] = t;
+         }
+
+         // Sort them by row, keeping the column order within each row.
+         int[] rptr = new int[m+1];
+         for (int t = 0; t < nz; t++) {
+            rptr[rows[t]+1]++;
+         }
+         for (int i = 0; i < m; i++) {
+            rptr[i+1] += rptr[i];
+         }
+         int[] next = Arrays.copyOf(rptr,m);
+         int[] order = new int[nz];
+         for (int t : bycol) {
+            order[next[rows[t]]++] = t;
+         }
+
+         // Sum the repeated entries, which are now adjacent.
+         int[] ptr = new int[m+1];
+         int[] col = new int[nz];
+         double[] val = new double[nz];
+         int c = 0;
+         for (int i = 0; i < m; i++) {
+            for (int q = rptr[i]; q < rptr[i+1]; q++) {
+               int t = order[q];
+               if (c > ptr[i] && col[c-1] == cols[t]) {
+                  val[c-1] += vals[t];
+               } else {
+                  col[c] = cols[t];
+                  val[c++] = vals[t];
+               }
+            }
+            ptr[i+1] = c;
+         }
+         return new SparseMatrix(m,n,ptr,Arrays.copyOf(col,c),Arrays.copyOf(val,c));
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+}
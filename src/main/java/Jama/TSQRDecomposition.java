@@ -0,0 +1,221 @@
+package Jama;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Tall-skinny QR Decomposition.
+<P>
+   For an m-by-n matrix A with m >= n, the tall-skinny QR decomposition
+   computes the same n-by-n upper triangular factor R as the QR
+   decomposition, up to the signs of its rows, but splits the work so
+   that it can run in parallel.  The rows of A are divided into chunks
+   that are factored independently; the R factors of pairs of chunks are
+   then stacked and factored again, up a binary tree, until one R remains.
+   Each chunk is read only once, so the decomposition is well suited to
+   very tall, narrow matrices such as least squares design matrices.
+<P>
+   The orthogonal factor is kept implicitly, as the QR decompositions at
+   the nodes of the tree, and is only used to solve least squares problems.
+*/
+
+public class TSQRDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Row and column dimensions.
+   @serial row dimension.
+   @serial column dimension.
+   */
+   private int m, n;
+
+   /** Number of rows of A in a chunk that is factored on its own.
+   @serial rows in a chunk.
+   */
+   private int chunk;
+
+   /** Root of the reduction tree.
+   @serial root of the reduction tree.
+   */
+   private Node root;
+
+   /** Pool that runs the chunks, or null to work serially. */
+   private transient ForkJoinPool pool;
+
+   /** Chunks are made at least this many multiply-adds long. */
+   private static final long LEAF = 1L << 22;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Tall-skinny QR Decomposition, computed in parallel on the default
+       pool of Matrix.
+   @param A    Rectangular matrix with m >= n
+   @exception  IllegalArgumentException  Matrix must have at least as many rows as columns.
+   */
+
+   public TSQRDecomposition (Matrix A) {
+      this(A,Matrix.getDefaultPool());
+   }
+
+   /** Tall-skinny QR Decomposition, with the chunks factored on a pool.
+   @param A    Rectangular matrix with m >= n
+   @param pool Pool that runs the chunks, or null to factor serially.
+   @exception  IllegalArgumentException  Matrix must have at least as many rows as columns.
+   */
+
+   public TSQRDecomposition (Matrix A, ForkJoinPool pool) {
+      m = A.getRowDimension();
+      n = A.getColumnDimension();
+      if (m < n) {
+         throw new IllegalArgumentException("Matrix must have at least as many rows as columns.");
+      }
+      this.pool = pool;
+      chunk = (int) Math.max(2L*n,Math.min(m,LEAF/Math.max((long) n*n,1)));
+      Task factor = new Task(A,0,m);
+      root = (parallel() ? pool.invoke(factor) : factor.compute());
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Is the matrix full rank?
+   @return     true if R, and hence A, has full rank.
+   */
+
+   public boolean isFullRank () {
+      return root.qr.isFullRank();
+   }
+
+   /** Return the upper triangular factor
+   @return     R
+   */
+
+   public Matrix getR () {
+      return root.qr.getR();
+   }
+
+   /** Least squares solution of A*X = B
+   @param B    A Matrix with as many rows as A and any number of columns.
+   @return     X that minimizes the two norm of A*X-B.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is rank deficient.
+   */
+
+   public Matrix solve (Matrix B) {
+      if (B.getRowDimension() != m) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!this.isFullRank()) {
+         throw new RuntimeException("Matrix is rank deficient.");
+      }
+
+      // The least squares problem with the stacked R factors of the
+      // children of the root, and the right hand sides reduced with them,
+      // has the same solution.
+      Solve reduce = new Solve(root,B);
+      return root.qr.solve(parallel() ? pool.invoke(reduce) : reduce.compute());
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   private boolean parallel () {
+      return pool != null && pool.getParallelism() > 1 && m > chunk;
+   }
+
+   /** [X; Y] **/
+
+   private static Matrix stack (Matrix X, Matrix Y) {
+      int mx = X.getRowDimension(), my = Y.getRowDimension(), nx = X.getColumnDimension();
+      Matrix S = new Matrix(mx+my,nx);
+      S.setMatrix(0,mx-1,0,nx-1,X);
+      S.setMatrix(mx,mx+my-1,0,nx-1,Y);
+      return S;
+   }
+
+   /** A node of the reduction tree: the QR decomposition of a chunk of A,
+       or of the stacked R factors of its two children. **/
+
+   private static final class Node implements java.io.Serializable {
+      private final QRDecomposition qr;
+      private final Node left, right;
+      private final int i0, i1;
+
+      Node (QRDecomposition qr, Node left, Node right, int i0, int i1) {
+         this.qr = qr; this.left = left; this.right = right;
+         this.i0 = i0; this.i1 = i1;
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   /** Factor the rows i0:i1-1 of A into a subtree. **/
+
+   private final class Task extends RecursiveTask<Node> {
+      private final Matrix A;
+      private final int i0, i1;
+
+      Task (Matrix A, int i0, int i1) {
+         this.A = A; this.i0 = i0; this.i1 = i1;
+      }
+
+      protected Node compute () {
+         if (i1-i0 <= chunk) {
+            return new Node(new QRDecomposition(A.getView(i0,i1-1,0,n-1)),null,null,i0,i1);
+         }
+         int mid = i0 + (i1-i0)/2;
+         Task left = new Task(A,i0,mid), right = new Task(A,mid,i1);
+         Node l, r;
+         if (parallel()) {
+            invokeAll(left,right);
+            l = left.join();
+            r = right.join();
+         } else {
+            l = left.compute();
+            r = right.compute();
+         }
+         return new Node(new QRDecomposition(stack(l.qr.getR(),r.qr.getR())),l,r,i0,i1);
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   /** Reduce the rows of B belonging to a subtree to n rows, by applying
+       the transposed orthogonal factors of the subtree.  At the root, the
+       right hand side of its least squares problem is returned instead. **/
+
+   private final class Solve extends RecursiveTask<Matrix> {
+      private final Node node;
+      private final Matrix B;
+
+      Solve (Node node, Matrix B) {
+         this.node = node; this.B = B;
+      }
+
+      protected Matrix compute () {
+         Matrix Y;
+         int nx = B.getColumnDimension();
+         if (node.left == null) {
+            Y = B.getView(node.i0,node.i1-1,0,nx-1);
+         } else {
+            Solve left = new Solve(node.left,B), right = new Solve(node.right,B);
+            if (parallel()) {
+               invokeAll(left,right);
+               Y = stack(left.join(),right.join());
+            } else {
+               Y = stack(left.compute(),right.compute());
+            }
+         }
+         return (node == root ? Y : node.qr.transposeQTimes(Y).getMatrix(0,n-1,0,nx-1));
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+  private static final long serialVersionUID = 1;
+}
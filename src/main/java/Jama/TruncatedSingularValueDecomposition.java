@@ -0,0 +1,181 @@
+package Jama;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+   /** Truncated Singular Value Decomposition.
+   <P>
+   For an m-by-n matrix A and a rank k <= min(m,n), the truncated singular
+   value decomposition is an m-by-k matrix U with orthonormal columns, a
+   k-by-k diagonal matrix S, and an n-by-k matrix V with orthonormal columns
+   so that U*S*V' approximates A by its k largest singular triplets.
+   <P>
+   The triplets are computed by a randomized range finder: A is multiplied
+   by a few more than k random vectors, refined by power iterations, and
+   the singular value decomposition of A projected onto the range found is
+   computed.  The work is a handful of matrix products with k columns, so
+   it grows with k rather than min(m,n), and the memory used besides A is
+   O((m+n)k).  The approximation is accurate when the singular values of
+   A decay beyond the k-th; more power iterations help when they decay
+   slowly.
+   */
+
+public class TruncatedSingularValueDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Arrays for internal storage of U and V.
+   @serial internal storage of U.
+   @serial internal storage of V.
+   */
+   private double[][] U, V;
+
+   /** Array for internal storage of singular values.
+   @serial internal storage of singular values.
+   */
+   private double[] s;
+
+   /** Row and column dimensions, and rank.
+   @serial row dimension.
+   @serial column dimension.
+   @serial rank.
+   */
+   private int m, n, k;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Construct the truncated singular value decomposition, with 10
+       extra random vectors and 2 power iterations, using the default
+       pool of Matrix for the matrix products.  The random vectors come
+       from a generator with a fixed seed, so the result is repeatable.
+   @param Arg    Rectangular matrix
+   @param k      Number of singular triplets.
+   @exception  IllegalArgumentException  Rank must be between 1 and min(m,n).
+   */
+
+   public TruncatedSingularValueDecomposition (Matrix Arg, int k) {
+      this(Arg,k,10,2,Matrix.getDefaultPool());
+   }
+
+   /** Construct the truncated singular value decomposition, with random
+       vectors from a generator with a fixed seed.
+   @param Arg             Rectangular matrix
+   @param k               Number of singular triplets.
+   @param oversampling    Number of random vectors beyond k.
+   @param powerIterations Number of multiplications by A*A' refining the range.
+   @param pool            Pool that runs the matrix products, or null to work serially.
+   @exception  IllegalArgumentException  Rank must be between 1 and min(m,n).
+   */
+
+   public TruncatedSingularValueDecomposition (Matrix Arg, int k, int oversampling,
+                                               int powerIterations, ForkJoinPool pool) {
+      this(Arg,k,oversampling,powerIterations,pool,new Random(0));
+   }
+
+   /** Construct the truncated singular value decomposition.
+   @param Arg             Rectangular matrix
+   @param k               Number of singular triplets.
+   @param oversampling    Number of random vectors beyond k.
+   @param powerIterations Number of multiplications by A*A' refining the range.
+   @param pool            Pool that runs the matrix products, or null to work serially.
+   @param random          Generator of the random vectors.
+   @exception  IllegalArgumentException  Rank must be between 1 and min(m,n).
+   */
+
+   public TruncatedSingularValueDecomposition (Matrix Arg, int k, int oversampling,
+                                               int powerIterations, ForkJoinPool pool,
+                                               Random random) {
+      m = Arg.getRowDimension();
+      n = Arg.getColumnDimension();
+      if (k < 1 || k > Math.min(m,n)) {
+         throw new IllegalArgumentException("Rank must be between 1 and min(m,n).");
+      }
+      this.k = k;
+      int l = Math.min(k+Math.max(oversampling,0),Math.min(m,n));
+
+      // Range finder: Q is an orthonormal basis of A*Omega, Omega Gaussian.
+      Matrix Omega = new Matrix(n,l);
+      for (int i = 0; i < n; i++) {
+         for (int j = 0; j < l; j++) {
+            Omega.set(i,j,random.nextGaussian());
+         }
+      }
+      Matrix Q = orth(Matrix.gemm(1.0,Arg,false,Omega,false,0.0,new Matrix(m,l),pool));
+
+      // Power iterations, orthonormalized after each product so that the
+      // directions of the smaller singular values are not lost to rounding.
+      for (int q = 0; q < powerIterations; q++) {
+         Matrix Z = orth(Matrix.gemm(1.0,Arg,true,Q,false,0.0,new Matrix(n,l),pool));
+         Q = orth(Matrix.gemm(1.0,Arg,false,Z,false,0.0,new Matrix(m,l),pool));
+      }
+
+      // A ~ Q*B with B = Q'*A.  The small SVD is of B', which has at least
+      // as many rows as columns: B' = Ub*S*Vb', so A ~ (Q*Vb)*S*Ub'.
+      Matrix Bt = Matrix.gemm(1.0,Arg,true,Q,false,0.0,new Matrix(n,l),pool);
+      SingularValueDecomposition svd = new SingularValueDecomposition(Bt);
+      Matrix Vb = svd.getV().getMatrix(0,l-1,0,k-1);
+      U = Matrix.gemm(1.0,Q,false,Vb,false,0.0,new Matrix(m,k),pool).getArray();
+      V = svd.getU().getMatrix(0,n-1,0,k-1).getArray();
+      s = new double[k];
+      System.arraycopy(svd.getSingularValues(),0,s,0,k);
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Return the left singular vectors
+   @return     U, m-by-k
+   */
+
+   public Matrix getU () {
+      return new Matrix(U,m,k).copy();
+   }
+
+   /** Return the right singular vectors
+   @return     V, n-by-k
+   */
+
+   public Matrix getV () {
+      return new Matrix(V,n,k).copy();
+   }
+
+   /** Return the one-dimensional array of the k largest singular values
+   @return     diagonal of S.
+   */
+
+   public double[] getSingularValues () {
+      double[] sv = new double[k];
+      System.arraycopy(s,0,sv,0,k);
+      return sv;
+   }
+
+   /** Return the diagonal matrix of the k largest singular values
+   @return     S
+   */
+
+   public Matrix getS () {
+      Matrix X = new Matrix(k,k);
+      for (int i = 0; i < k; i++) {
+         X.set(i,i,s[i]);
+      }
+      return X;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Orthonormal basis of the columns of Y, which has at least as many
+       rows as columns. **/
+
+   private static Matrix orth (Matrix Y) {
+      return new QRDecomposition(Y).getQ();
+   }
+
+  private static final long serialVersionUID = 1;
+}
@@ -15,13 +15,17 @@ import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static java.time.Duration.ofSeconds;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
 import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -429,6 +433,170 @@ public class MatrixTest implements MatrixTestHelper {
         }
     }
 
+    @Nested @DisplayName("its contiguous storage")
+    class ContiguousStorage {
+        private Matrix C;
+
+        @BeforeEach
+        public void setUp() {
+            C = B.toContiguous();
+        }
+
+        @Test @DisplayName("should keep the elements in one array")
+        public void testContiguous() {
+            assertThat(C.isContiguous(), is(true));
+            assertThat(B.isContiguous(), is(false));
+            assertNormDifference(C.getContiguousArray(), rowwise);
+            assertNormDifference(C.getArray(), avals);
+        }
+
+        @Test @DisplayName("should wrap part of an array with a leading dimension")
+        public void testWrap() {
+            double[] vals = new double[20];
+            Matrix W = Matrix.wrap(vals,3,5,3,4);
+            W.setMatrix(0,2,0,3,B);
+            assertNormDifference(W,B);
+            assertEquals(B.get(1,2), vals[3+5+2]);
+            assertThrows(iae, () -> Matrix.wrap(vals,3,3,3,4));
+            assertThrows(iae, () -> Matrix.wrap(vals,7,5,3,4));
+            assertThrows(iae, () -> Matrix.wrap(vals,3,7));
+        }
+
+        @Test @DisplayName("should check bounds on element access")
+        public void testBounds() {
+            assertThrows(oob, () -> C.get(0, C.getColumnDimension()));
+            assertThrows(oob, () -> C.set(C.getRowDimension(), 0, 0.));
+        }
+
+        @Test @DisplayName("should return contiguous results from operations")
+        public void testOperations() {
+            Matrix D = R.toContiguous();
+            assertThat(C.plus(D).isContiguous(), is(true));
+            assertNormDifference(C.plus(D),B.plus(R));
+            assertNormDifference(C.arrayTimes(D),B.arrayTimes(R));
+            assertNormDifference(C.transpose(),B.transpose());
+            assertNormDifference(C.times(D.transpose()),B.times(R.transpose()));
+            assertNormDifference(C.times(2.).minusEquals(C),B);
+            assertNormDifference(C.norm1(),B.norm1());
+            assertNormDifference(C.normInf(),B.normInf());
+            assertNormDifference(C.normF(),B.normF());
+        }
+
+        @Test @DisplayName("should be accepted by the decompositions")
+        public void testDecompositions() {
+            Matrix S = new Matrix(new double[][] {{4.,1.,1.},{1.,2.,3.},{1.,3.,6.}});
+            Matrix T = S.toContiguous();
+            assertNormDifference(T.inverse(),S.inverse());
+            assertNormDifference(T.det(),S.det());
+            assertNormDifference(T.chol().getL(),S.chol().getL());
+            assertNormDifference(T.eig().getRealEigenvalues(),S.eig().getRealEigenvalues());
+            assertNormDifference(C.svd().getSingularValues(),B.svd().getSingularValues());
+            assertNormDifference(C.transpose().solve(R.transpose()),B.transpose().solve(R.transpose()));
+        }
+    }
+
+    @Nested @DisplayName("its views")
+    class Views {
+        private Matrix X;
+
+        @BeforeEach
+        public void setUp() {
+            X = Matrix.random(12,10);
+        }
+
+        @Test @DisplayName("should share elements with the viewed matrix")
+        public void testSubmatrixView() {
+            Matrix V = X.getView(2,6,3,8);
+            assertThat(V.isView(), is(true));
+            assertNormDifference(V,X.getMatrix(2,6,3,8));
+            V.set(1,2,42.);
+            assertEquals(42., X.get(3,5));
+            X.set(4,3,-1.);
+            assertEquals(-1., V.get(2,0));
+            assertNormDifference(V.getView(1,3,2,4),X.getMatrix(3,5,5,7));
+            assertThrows(oob, () -> X.getView(0,12,0,9));
+            assertThrows(oob, () -> V.get(5,0));
+        }
+
+        @Test @DisplayName("should share elements through index and transpose views")
+        public void testIndexAndTransposeViews() {
+            int[] r = {5,0,7}, c = {9,1,4,2};
+            Matrix V = X.getView(r,c);
+            assertNormDifference(V,X.getMatrix(r,c));
+            assertNormDifference(X.getView(1,3,c),X.getMatrix(1,3,c));
+            assertNormDifference(X.getView(r,2,5),X.getMatrix(r,2,5));
+            Matrix T = X.transposeView();
+            assertNormDifference(T,X.transpose());
+            assertNormDifference(T.getView(c,r),X.getMatrix(r,c).transpose());
+            T.set(4,7,3.);
+            assertEquals(3., V.get(2,2));
+            assertNormDifference(T.transposeView(),X);
+        }
+
+        @Test @DisplayName("should write through mutators")
+        public void testMutators() {
+            Matrix Y = X.copy();
+            Matrix D = Matrix.random(5,4);
+            X.getView(1,5,2,5).plusEquals(D);
+            Y.setMatrix(1,5,2,5,Y.getMatrix(1,5,2,5).plus(D));
+            assertNormDifference(X,Y);
+            X.getView(0,3,0,3).transposeView().timesEquals(2.);
+            Y.setMatrix(0,3,0,3,Y.getMatrix(0,3,0,3).times(2.));
+            assertNormDifference(X,Y);
+            X.getView(0,3,0,3).minusEquals(X.getView(1,4,0,3));
+            Y.setMatrix(0,3,0,3,Y.getMatrix(0,3,0,3).minus(Y.getMatrix(1,4,0,3)));
+            assertNormDifference(X,Y);
+        }
+
+        @Test @DisplayName("should be accepted by products without copying")
+        public void testProducts() {
+            Matrix Y = Matrix.random(10,12);
+            assertNormDifference(X.transposeView().times(Y.transposeView()),X.transpose().times(Y.transpose()));
+            Matrix C = Matrix.random(20,20);
+            Matrix expected = C.copy();
+            expected.setMatrix(4,15,2,13,X.getMatrix(0,11,0,9).times(Y).plus(C.getMatrix(4,15,2,13)));
+            Matrix.gemm(1.,X,false,Y,false,1.,C.getView(4,15,2,13));
+            assertNormDifference(C,expected);
+            expected.setMatrix(0,9,0,9,expected.getMatrix(0,9,0,9).minus(expected.getMatrix(10,19,0,9).times(expected.getMatrix(10,19,10,19))));
+            Matrix.gemm(-1.,C.getView(10,19,0,9),false,C.getView(10,19,10,19),false,1.,C.getView(0,9,0,9));
+            assertNormDifference(C,expected);
+            Matrix.gemm(1.,X,false,Y,false,0.,C.getView(0,11,0,11).transposeView());
+            assertNormDifference(C.getMatrix(0,11,0,11),X.times(Y).transpose());
+        }
+
+        @Test @DisplayName("should be accepted by the decompositions")
+        public void testDecompositions() {
+            Matrix S = X.getView(1,10,0,9).transposeView();
+            Matrix T = S.copy();
+            assertThat(T.isView(), is(false));
+            assertNormDifference(S.inverse(),T.inverse());
+            assertNormDifference(S.solve(X.getView(0,9,0,1)),T.solve(X.getMatrix(0,9,0,1)));
+            assertNormDifference(S.svd().getSingularValues(),T.svd().getSingularValues());
+        }
+
+        @Test @DisplayName("should serialize as a copy")
+        public void testSerialization() throws IOException, ClassNotFoundException {
+            Matrix V = X.getView(new int[] {3,1},2,4).transposeView();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(baos);
+            out.writeObject(V);
+            out.flush();
+            ObjectInputStream sin = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+            Matrix W = (Matrix) sin.readObject();
+            assertThat(W.isView(), is(false));
+            assertNormDifference(W,V);
+
+            Matrix C = Matrix.contiguous(100,100).getView(0,1,0,1);
+            assertThat(C.isView(), is(true));
+            assertThat(C.isContiguous(), is(true));
+            baos = new ByteArrayOutputStream();
+            out = new ObjectOutputStream(baos);
+            out.writeObject(C);
+            out.flush();
+            assertThat(baos.size() < 1000, is(true));
+        }
+    }
+
     @Nested @DisplayName("its I/O methods")
     class InputOutputMethods {
         @Test @DisplayName("should write and read from a stream")
@@ -504,6 +672,59 @@ public class MatrixTest implements MatrixTestHelper {
             assertNormDifference(A.times(A.transpose()),SQ);
         }
 
+        @Test @DisplayName("should compute blocked Matrix*Matrix calculation")
+        public void testBlockedMatrixTimesMatrix() {
+            Matrix X = Matrix.random(131,67);
+            Matrix Y = Matrix.random(67,261);
+            double[][] expected = new double[131][261];
+            for (int i = 0; i < 131; i++) {
+                for (int j = 0; j < 261; j++) {
+                    for (int k = 0; k < 67; k++) {
+                        expected[i][j] += X.get(i,k)*Y.get(k,j);
+                    }
+                }
+            }
+            assertNormDifference(X.times(Y),new Matrix(expected));
+        }
+
+        @Test @DisplayName("should compute parallel Matrix*Matrix calculation")
+        public void testParallelMatrixTimesMatrix() {
+            Matrix X = Matrix.random(300,200);
+            Matrix Y = Matrix.random(200,250);
+            assertNormDifference(X.times(Y,4),X.times(Y));
+            ForkJoinPool parallel = new ForkJoinPool(3);
+            try {
+                assertNormDifference(X.times(Y,parallel),X.times(Y));
+            } finally {
+                parallel.shutdown();
+            }
+            assertThrows(iae, () -> X.times(Y,0));
+        }
+
+        @Test @DisplayName("should compute gemm with transposed operands into C")
+        public void testGemm() {
+            Matrix X = Matrix.random(70,90);
+            Matrix Y = Matrix.random(110,70);
+            Matrix C = Matrix.random(90,110);
+            Matrix expected = X.transpose().times(Y.transpose()).times(2.).plus(C.times(-.5));
+            assertSame(C, Matrix.gemm(2.,X,true,Y,true,-.5,C));
+            assertNormDifference(C,expected);
+            assertThrows(iae, () -> Matrix.gemm(1.,X,false,Y,false,0.,C));
+            assertThrows(iae, () -> Matrix.gemm(1.,X,true,X,false,0.,C));
+        }
+
+        @Test @DisplayName("should compute gemm when C is also an operand")
+        public void testGemmAliased() {
+            for (int n : new int[] {40, 300}) {
+                Matrix X = Matrix.random(n,n);
+                Matrix expected = X.times(X).plus(X);
+                assertNormDifference(Matrix.gemm(1.,X,false,X,false,1.,X),expected);
+                Matrix Y = Matrix.random(n,n);
+                expected = Y.times(Y);
+                assertNormDifference(Matrix.gemm(1.,Y,false,Y,false,0.,Y),expected);
+            }
+        }
+
         @Test @DisplayName("should multiply by zero")
         public void testMultiplyByZero() {
             assertNormDifference(A.times(0.), Z);
@@ -517,6 +738,102 @@ public class MatrixTest implements MatrixTestHelper {
             assertNormDifference(A,QR.getQ().times(R));
         }
 
+        @Test @DisplayName("should compute blocked QR decomposition")
+        public void testBlockedQRdecomp() {
+            Matrix X = Matrix.random(300,130);
+            QRDecomposition QR = X.qr();
+            Matrix Q = QR.getQ();
+            assertNormDifference(Q.times(QR.getR()),X);
+            assertNormDifference(Q.transpose().times(Q),Matrix.identity(130,130));
+            Matrix B = Matrix.random(300,2);
+            Matrix normal = X.transpose().times(X).solve(X.transpose().times(B));
+            assertThat(QR.solve(B).minus(normal).normF(), is(closeTo(0.,1e-10)));
+        }
+
+        @Test @DisplayName("should compute tall-skinny QR decomposition")
+        public void testTSQRdecomp() {
+            Matrix X = Matrix.random(30000,30);
+            Matrix B = Matrix.random(30000,2);
+            QRDecomposition QR = X.qr();
+            ForkJoinPool parallel = new ForkJoinPool(4);
+            try {
+                for (ForkJoinPool pool : new ForkJoinPool[] {parallel, null}) {
+                    TSQRDecomposition TSQR = new TSQRDecomposition(X,pool);
+                    assertNormDifference(TSQR.getR().transpose().times(TSQR.getR()),QR.getR().transpose().times(QR.getR()));
+                    assertThat(TSQR.solve(B).minus(QR.solve(B)).normF(), is(closeTo(0.,1e-10)));
+                }
+            } finally {
+                parallel.shutdown();
+            }
+            assertThrows(iae, () -> new TSQRDecomposition(X.transpose()));
+        }
+
+        @Test @DisplayName("should compute QR decomposition with column pivoting")
+        public void testPivotedQRdecomp() {
+            Matrix X = Matrix.random(50,8).times(Matrix.random(8,20));
+            PivotedQRDecomposition QR = new PivotedQRDecomposition(X);
+            assertEquals(8, QR.rank());
+            assertEquals(8, X.rank());
+            assertNormDifference(QR.getQ().times(QR.getR()),X.getMatrix(0,49,QR.getPivot()));
+            for (int k = 1; k < 20; k++) {
+                assertThat(Math.abs(QR.getR().get(k,k)) <= Math.abs(QR.getR().get(k-1,k-1)), is(true));
+            }
+            Matrix B = X.times(Matrix.random(20,2));
+            assertThat(X.times(QR.solve(B)).minus(B).normF(), is(closeTo(0.,1e-10)));
+        }
+
+        @Test @DisplayName("should update QR decomposition for added and deleted rows and columns")
+        public void testQRupdate() {
+            Matrix X = Matrix.random(40,6);
+            QRDecomposition QR = X.qr();
+
+            Matrix Y = new Matrix(41,6);
+            Y.setMatrix(0,39,0,5,X);
+            Y.setMatrix(40,40,0,5,Matrix.random(1,6));
+            QR.appendRow(Y.getMatrix(40,40,0,5));
+            assertNormDifference(QR.getQ().times(QR.getR()),Y);
+
+            int[] rows = new int[40];
+            for (int i = 0; i < 40; i++) {
+                rows[i] = (i < 3 ? i : i+1);
+            }
+            QR.deleteRow(3);
+            Y = Y.getMatrix(rows,0,5);
+            assertNormDifference(QR.getQ().times(QR.getR()),Y);
+
+            Matrix Z = new Matrix(40,7);
+            Z.setMatrix(0,39,0,1,Y.getMatrix(0,39,0,1));
+            Z.setMatrix(0,39,2,2,Matrix.random(40,1));
+            Z.setMatrix(0,39,3,6,Y.getMatrix(0,39,2,5));
+            QR.insertColumn(2,Z.getMatrix(0,39,2,2));
+            assertNormDifference(QR.getQ().times(QR.getR()),Z);
+
+            QR.deleteColumn(0);
+            Z = Z.getMatrix(0,39,1,6);
+            assertNormDifference(QR.getQ().times(QR.getR()),Z);
+            assertNormDifference(QR.getQ().transpose().times(QR.getQ()),Matrix.identity(6,6));
+            Matrix R = QR.getR();
+            for (int i = 0; i < 6; i++) {
+                for (int j = 0; j < i; j++) {
+                    assertThat(R.get(i,j) == 0.0, is(true));
+                }
+            }
+            Matrix B = Matrix.random(40,2);
+            assertNormDifference(QR.solve(B),Z.qr().solve(B));
+            assertThrows(RuntimeException.class, () -> QR.getH());
+
+            // A row that alone spans a column leaves A rank deficient.
+            X.set(0,0,1.0);
+            for (int i = 1; i < 40; i++) {
+                X.set(i,0,0.0);
+            }
+            QRDecomposition QR2 = X.qr();
+            QR2.deleteRow(0);
+            assertNormDifference(QR2.getQ().times(QR2.getR()),X.getMatrix(1,39,0,5));
+            assertNormDifference(QR2.getQ().transpose().times(QR2.getQ()),Matrix.identity(6,6));
+            assertThat(QR2.isFullRank(), is(false));
+        }
+
         @Test @DisplayName("should compute SVD")
         public void testSVD() {
             A = new Matrix(columnwise,4);
@@ -524,6 +841,39 @@ public class MatrixTest implements MatrixTestHelper {
             assertNormDifference(A,SVD.getU().times(SVD.getS().times(SVD.getV().transpose())));
         }
 
+        @Test @DisplayName("should compute singular values without singular vectors")
+        public void testSingularValuesOnly() {
+            A = Matrix.random(40,25);
+            SingularValueDecomposition SVD = new SingularValueDecomposition(A,false,false);
+            assertNormDifference(SVD.getSingularValues(),A.svd().getSingularValues());
+            assertThrows(RuntimeException.class, () -> SVD.getU());
+            assertThrows(RuntimeException.class, () -> SVD.getV());
+            assertNormDifference(new SingularValueDecomposition(A,true,false).getU(),A.svd().getU());
+            assertNormDifference(new SingularValueDecomposition(A,false,true).getV(),A.svd().getV());
+            assertNormDifference(A.norm2(),A.svd().norm2());
+        }
+
+        @Test @DisplayName("should compute truncated SVD")
+        public void testTruncatedSVD() {
+            A = Matrix.random(300,10).times(Matrix.random(10,80));
+            double[] s = A.svd().getSingularValues();
+            TruncatedSingularValueDecomposition SVD = new TruncatedSingularValueDecomposition(A,4);
+            double[] sk = SVD.getSingularValues();
+            assertEquals(4, sk.length);
+            for (int i = 0; i < 4; i++) {
+                assertThat(sk[i], is(closeTo(s[i],1e-10*s[0])));
+            }
+            assertNormDifference(SVD.getU().transpose().times(SVD.getU()),Matrix.identity(4,4));
+            assertNormDifference(SVD.getV().transpose().times(SVD.getV()),Matrix.identity(4,4));
+            SVD = new TruncatedSingularValueDecomposition(A,10,5,1,null);
+            assertThat(SVD.getU().times(SVD.getS()).times(SVD.getV().transpose()).minus(A).normF(), is(closeTo(0.,1e-10*A.normF())));
+            assertArrayEquals(new TruncatedSingularValueDecomposition(A,4).getSingularValues(), sk);
+            Matrix U1 = new TruncatedSingularValueDecomposition(A,4,10,2,null,new Random(5)).getU();
+            Matrix U2 = new TruncatedSingularValueDecomposition(A,4,10,2,null,new Random(5)).getU();
+            assertArrayEquals(U1.getRowPackedCopy(), U2.getRowPackedCopy());
+            assertThrows(iae, () -> new TruncatedSingularValueDecomposition(A,81));
+        }
+
         @Test @DisplayName("should compute rank")
         public void testRank() {
             Matrix DEF = new Matrix(avals);
@@ -549,6 +899,65 @@ public class MatrixTest implements MatrixTestHelper {
             assertNormDifference(A.getMatrix(LU.getPivot(),0,n-1),LU.getL().times(LU.getU()));
         }
 
+        @Test @DisplayName("should compute blocked LU decomposition")
+        public void testBlockedLUdecomp() {
+            Matrix X = Matrix.random(230,150);
+            LUDecomposition LU = X.lu();
+            // Backward error bounds, which allow for the pivot growth of random matrices.
+            assertThat(X.getMatrix(LU.getPivot(),0,149).minus(LU.getL().times(LU.getU())).normF(), is(closeTo(0.,1e-12*LU.getL().normF()*LU.getU().normF())));
+            Matrix S = Matrix.random(200,200);
+            LU = S.lu();
+            Matrix P = new Matrix(200,200);
+            int[] piv = LU.getPivot();
+            for (int i = 0; i < 200; i++) {
+                P.set(i,piv[i],1.);
+            }
+            assertThat(P.times(S).minus(LU.getL().times(LU.getU())).normF(), is(closeTo(0.,1e-12*LU.getL().normF()*LU.getU().normF())));
+            double d = P.det();
+            for (int i = 0; i < 200; i++) {
+                d *= LU.getU().get(i,i);
+            }
+            assertNormDifference(LU.det(),d);
+            Matrix B = Matrix.random(200,3);
+            Matrix Y = LU.solve(B);
+            assertThat(S.times(Y).minus(B).normF(), is(closeTo(0.,1e-12*LU.getL().normF()*LU.getU().normF()*Y.normF())));
+        }
+
+        @Test @DisplayName("should compute parallel LU decomposition")
+        public void testParallelLUdecomp() {
+            Matrix S = Matrix.random(330,300);
+            ForkJoinPool parallel = new ForkJoinPool(4);
+            try {
+                LUDecomposition LU = new LUDecomposition(S,parallel);
+                LUDecomposition serial = new LUDecomposition(S,null);
+                assertArrayEquals(serial.getPivot(),LU.getPivot());
+                assertNormDifference(LU.getL(),serial.getL());
+                assertNormDifference(LU.getU(),serial.getU());
+                assertThat(S.getMatrix(LU.getPivot(),0,299).minus(LU.getL().times(LU.getU())).normF(), is(closeTo(0.,1e-12*LU.getL().normF()*LU.getU().normF())));
+            } finally {
+                parallel.shutdown();
+            }
+        }
+
+        @Test @DisplayName("should factor on the default pool")
+        public void testDefaultPool() {
+            Matrix S = Matrix.random(300,300);
+            Matrix B = Matrix.random(300,2);
+            ForkJoinPool old = Matrix.getDefaultPool();
+            ForkJoinPool parallel = new ForkJoinPool(2);
+            try {
+                Matrix.setDefaultPool(null);
+                assertThat(S.times(S.solve(B)).minus(B).normF(), is(closeTo(0.,1e-10*S.normF())));
+                Matrix.setDefaultPool(parallel);
+                assertSame(parallel,Matrix.getDefaultPool());
+                assertThat(S.times(S.solve(B)).minus(B).normF(), is(closeTo(0.,1e-10*S.normF())));
+                assertThat(parallel.getPoolSize() > 0, is(true));
+            } finally {
+                Matrix.setDefaultPool(old);
+                parallel.shutdown();
+            }
+        }
+
         @Test @DisplayName("should compute inverse")
         public void testInverse() {
             A = new Matrix(columnwise,4);
@@ -584,6 +993,46 @@ public class MatrixTest implements MatrixTestHelper {
             assertNormDifference(A.times(X),Matrix.identity(3,3));
         }
 
+        @Test @DisplayName("should compute blocked and parallel Cholesky decomposition")
+        public void testBlockedCholeskyDecomposition() {
+            Matrix X = Matrix.random(300,300);
+            Matrix S = X.transpose().times(X).plus(Matrix.identity(300,300));
+            ForkJoinPool parallel = new ForkJoinPool(4);
+            try {
+                for (ForkJoinPool pool : new ForkJoinPool[] {parallel, null}) {
+                    CholeskyDecomposition Chol = new CholeskyDecomposition(S,pool);
+                    assertThat(Chol.isSPD(), is(true));
+                    Matrix L = Chol.getL();
+                    assertNormDifference(L.times(L.transpose()),S);
+                    assertThat(L.get(0,299), is(0.));
+                }
+            } finally {
+                parallel.shutdown();
+            }
+            S.set(150,150,-1.);
+            assertThat(S.chol().isSPD(), is(false));
+            S.set(150,150,S.get(149,149));
+            S.set(10,250,0.);
+            assertThat(S.chol().isSPD(), is(false));
+        }
+
+        @Test @DisplayName("should update and downdate Cholesky decomposition")
+        public void testCholeskyUpdate() {
+            Matrix X = Matrix.random(80,80);
+            Matrix S = X.transpose().times(X).plus(Matrix.identity(80,80));
+            Matrix V = Matrix.random(80,3);
+            CholeskyDecomposition Chol = S.chol();
+            Chol.update(V);
+            Matrix L = Chol.getL();
+            assertNormDifference(L.times(L.transpose()),S.plus(V.times(V.transpose())));
+            Chol.downdate(V);
+            assertNormDifference(L.times(L.transpose()),S);
+            assertNormDifference(L,S.chol().getL());
+            assertThrows(RuntimeException.class, () -> Chol.downdate(V.times(100.)));
+            assertNormDifference(L,S.chol().getL());
+            assertThrows(iae, () -> Chol.update(Matrix.random(79,1)));
+        }
+
         @Test @DisplayName("should compute symmetric Eigenvalue decomposition")
         public void testEigenvalues() {
             A = new Matrix(pvals);
@@ -603,6 +1052,483 @@ public class MatrixTest implements MatrixTestHelper {
             assertNormDifference(A.times(V),V.times(D));
         }
 
+        @Test @DisplayName("should compute eigenvalues without eigenvectors")
+        public void testEigenvaluesOnly() {
+            Matrix N = Matrix.random(60,60);
+            Matrix S = N.plus(N.transpose());
+            for (Matrix X : new Matrix[] {S,N}) {
+                EigenvalueDecomposition full = X.eig();
+                EigenvalueDecomposition Eig = new EigenvalueDecomposition(X,false);
+                assertNormDifference(Eig.getRealEigenvalues(),full.getRealEigenvalues());
+                assertNormDifference(Eig.getImagEigenvalues(),full.getImagEigenvalues());
+                assertThrows(RuntimeException.class, () -> Eig.getV());
+            }
+        }
+
+        @Test @DisplayName("should compute symmetric eigenvectors by divide and conquer")
+        public void testDivideAndConquerEigenvectors() {
+            Matrix N = Matrix.random(300,300);
+            Matrix S = N.plus(N.transpose());
+            // Repeated eigenvalues 0, 1, 2, exercise the deflation.
+            Matrix Q = S.qr().getQ();
+            Matrix D = new Matrix(300,300);
+            for (int i = 0; i < 300; i++) {
+                D.set(i,i,i%3);
+            }
+            Matrix C = Q.times(D).times(Q.transpose());
+            C = C.plus(C.transpose()).times(0.5);
+            for (Matrix X : new Matrix[] {S,C}) {
+                double[] d = new EigenvalueDecomposition(X,false).getRealEigenvalues();
+                ForkJoinPool parallel = new ForkJoinPool(4);
+                try {
+                    for (ForkJoinPool pool : new ForkJoinPool[] {parallel, null}) {
+                        EigenvalueDecomposition Eig = new EigenvalueDecomposition(X,true,pool);
+                        Matrix V = Eig.getV();
+                        assertThat(X.times(V).minus(V.times(Eig.getD())).normF(), is(closeTo(0.,1e-10*X.normF())));
+                        assertThat(V.transpose().times(V).minus(Matrix.identity(300,300)).normF(), is(closeTo(0.,1e-10)));
+                        double[] e = Eig.getRealEigenvalues();
+                        for (int i = 0; i < 300; i++) {
+                            assertThat(e[i], is(closeTo(d[i],1e-10*X.normF())));
+                        }
+                    }
+                } finally {
+                    parallel.shutdown();
+                }
+            }
+        }
+
+        @Test @DisplayName("should compute divide and conquer eigenvectors of a rank one matrix")
+        public void testDivideAndConquerRankOne() {
+            for (int n : new int[] {100, 256, 300}) {
+                Matrix X = new Matrix(n,n,1.0);
+                EigenvalueDecomposition Eig = new EigenvalueDecomposition(X,true,null);
+                Matrix V = Eig.getV();
+                assertThat(X.times(V).minus(V.times(Eig.getD())).normF(), is(closeTo(0.,1e-10*n)));
+                assertThat(V.transpose().times(V).minus(Matrix.identity(n,n)).normF(), is(closeTo(0.,1e-10)));
+                double[] e = Eig.getRealEigenvalues();
+                for (int i = 0; i < n; i++) {
+                    assertThat(e[i], is(closeTo(i < n-1 ? 0. : n,1e-10*n)));
+                }
+            }
+        }
+
+        @Test @DisplayName("should reduce large nonsymmetric matrices in blocks")
+        public void testBlockedHessenberg() {
+            // Block triangular, so the eigenvalues are those of the two
+            // diagonal blocks, which are small enough for the unblocked path.
+            // Their spectra are kept apart so that the eigenvalues of the
+            // coupled matrix are well conditioned.
+            Matrix B = Matrix.random(100,100).minus(new Matrix(100,100,0.5));
+            Matrix E = Matrix.random(100,100).minus(new Matrix(100,100,0.5)).plus(Matrix.identity(100,100).times(8));
+            Matrix T = Matrix.random(200,200).minus(new Matrix(200,200,0.5));
+            T.setMatrix(0,99,0,99,B);
+            T.setMatrix(100,199,0,99,new Matrix(100,100));
+            T.setMatrix(100,199,100,199,E);
+            Matrix Q = Matrix.random(200,200).qr().getQ();
+            Matrix A = Q.times(T).times(Q.transpose());
+            double[] re = new double[200], im = new double[200];
+            for (int b = 0; b < 2; b++) {
+                EigenvalueDecomposition Eig = new EigenvalueDecomposition(b == 0 ? B : E);
+                System.arraycopy(Eig.getRealEigenvalues(),0,re,100*b,100);
+                System.arraycopy(Eig.getImagEigenvalues(),0,im,100*b,100);
+            }
+            ForkJoinPool parallel = new ForkJoinPool(4);
+            try {
+                for (ForkJoinPool pool : new ForkJoinPool[] {parallel, null}) {
+                    EigenvalueDecomposition Eig = new EigenvalueDecomposition(A,true,pool);
+                    Matrix V = Eig.getV();
+                    assertThat(A.times(V).minus(V.times(Eig.getD())).normF(), is(closeTo(0.,1e-10*A.normF()*V.normF())));
+                    assertSameEigenvalues(re,im,Eig.getRealEigenvalues(),Eig.getImagEigenvalues(),1e-8);
+                }
+            } finally {
+                parallel.shutdown();
+            }
+        }
+
+        @Test @DisplayName("should find large nonsymmetric Schur forms by multishift QR")
+        public void testMultishiftQR() {
+            // Four diagonal blocks small enough for hqr2 give the eigenvalues.
+            // Their spectra are kept apart so that the eigenvalues of the
+            // coupled matrix are well conditioned.
+            Matrix T = Matrix.random(200,200).minus(new Matrix(200,200,0.5));
+            double[] re = new double[200], im = new double[200];
+            for (int b = 0; b < 4; b++) {
+                Matrix B = Matrix.random(50,50).minus(new Matrix(50,50,0.5)).plus(Matrix.identity(50,50).times(4*b));
+                T.setMatrix(50*b,50*b+49,50*b,50*b+49,B);
+                if (b > 0) {
+                    T.setMatrix(50*b,50*b+49,0,50*b-1,new Matrix(50,50*b));
+                }
+                EigenvalueDecomposition Eig = B.eig();
+                System.arraycopy(Eig.getRealEigenvalues(),0,re,50*b,50);
+                System.arraycopy(Eig.getImagEigenvalues(),0,im,50*b,50);
+            }
+            Matrix Q = Matrix.random(200,200).qr().getQ();
+            Matrix A = Q.times(T).times(Q.transpose());
+            ForkJoinPool parallel = new ForkJoinPool(4);
+            try {
+                // Without eigenvectors hqr2 is used, whose order along the
+                // diagonal the multishift path must keep.
+                EigenvalueDecomposition hqr2 = new EigenvalueDecomposition(A,false,null);
+                double[] r = hqr2.getRealEigenvalues(), i = hqr2.getImagEigenvalues();
+                assertSameEigenvalues(re,im,r,i,1e-8*A.normF());
+                for (ForkJoinPool pool : new ForkJoinPool[] {parallel, null}) {
+                    EigenvalueDecomposition Eig = new EigenvalueDecomposition(A,true,pool);
+                    Matrix V = Eig.getV();
+                    assertThat(A.times(V).minus(V.times(Eig.getD())).normF(), is(closeTo(0.,1e-10*A.normF()*V.normF())));
+                    for (int j = 0; j < 200; j++) {
+                        assertThat(Eig.getRealEigenvalues()[j], is(closeTo(r[j],1e-8*A.normF())));
+                        assertThat(Eig.getImagEigenvalues()[j], is(closeTo(i[j],1e-8*A.normF())));
+                    }
+                }
+            } finally {
+                parallel.shutdown();
+            }
+
+            // A cyclic permutation, whose eigenvalues are the roots of unity.
+            Matrix P = new Matrix(120,120);
+            for (int j = 0; j < 120; j++) {
+                P.set(j,(j+1)%120,1.0);
+            }
+            EigenvalueDecomposition Eig = P.eig();
+            Matrix V = Eig.getV();
+            assertThat(P.times(V).minus(V.times(Eig.getD())).normF(), is(closeTo(0.,1e-10*V.normF())));
+            double[] r = Eig.getRealEigenvalues(), i = Eig.getImagEigenvalues();
+            for (int j = 0; j < 120; j++) {
+                assertThat(Math.hypot(r[j],i[j]), is(closeTo(1.,1e-10)));
+            }
+        }
+
+        @Test @DisplayName("should compute extreme eigenpairs by Lanczos")
+        public void testPartialEigenvalues() {
+            Matrix N = Matrix.random(150,150);
+            Matrix S = N.plus(N.transpose());
+            double[] all = S.eig().getRealEigenvalues();
+            double norm2 = Math.max(-all[0],all[149]);
+            for (boolean largest : new boolean[] {true,false}) {
+                PartialEigenvalueDecomposition Eig = new PartialEigenvalueDecomposition(S,4,largest);
+                assertThat(Eig.isConverged(), is(true));
+                double[] d = Eig.getRealEigenvalues();
+                for (int i = 0; i < 4; i++) {
+                    assertThat(d[i], is(closeTo(all[largest ? 146+i : i],1e-8)));
+                }
+                Matrix V = Eig.getV();
+                // Each residual is within 1e-10*norm2(S), the default tolerance.
+                assertThat(S.times(V).minus(V.times(Eig.getD())).normF(), is(closeTo(0.,2e-10*norm2)));
+                assertNormDifference(V.transpose().times(V),Matrix.identity(4,4));
+            }
+
+            // A diagonal operator 1, 2, ..., 5000, never stored as a matrix.
+            LinearOperator D = new LinearOperator() {
+                public int getRowDimension() { return 5000; }
+                public int getColumnDimension() { return 5000; }
+                public void apply(double[] x, double[] y) {
+                    for (int i = 0; i < 5000; i++) {
+                        y[i] = (i+1)*x[i];
+                    }
+                }
+            };
+            Matrix V1 = new PartialEigenvalueDecomposition(D,3,true,20,1e-10,1000,new Random(5)).getV();
+            Matrix V2 = new PartialEigenvalueDecomposition(D,3,true,20,1e-10,1000,new Random(5)).getV();
+            assertArrayEquals(V1.getRowPackedCopy(), V2.getRowPackedCopy());
+            double[] d = new PartialEigenvalueDecomposition(D,3,true).getRealEigenvalues();
+            for (int i = 0; i < 3; i++) {
+                assertThat(d[i], is(closeTo(4998.+i,1e-6)));
+            }
+            assertThrows(iae, () -> new PartialEigenvalueDecomposition(N.getMatrix(0,9,0,19),2,true));
+        }
+
+        @Test @DisplayName("should solve linear systems by Krylov methods")
+        public void testKrylovSolvers() {
+            int n = 100;
+            Matrix N = Matrix.random(n,n);
+            Matrix SPD = N.transpose().times(N).plus(Matrix.identity(n,n).times(n));
+            Matrix SYM = N.plus(N.transpose()).minus(new Matrix(n,n,1.0));
+            Matrix GEN = N.plus(Matrix.identity(n,n).times(n/4));
+            double[] b = Matrix.random(n,1).getColumnPackedCopy();
+            KrylovSolver[] solvers = {
+                new ConjugateGradientSolver(SPD,b),
+                new MINRESSolver(SPD,b),
+                new MINRESSolver(SYM,b),
+                new GMRESSolver(GEN,b),
+                new GMRESSolver(GEN,b,null,1e-10,2*n,5),
+                new BiCGSTABSolver(GEN,b)
+            };
+            Matrix[] systems = {SPD,SPD,SYM,GEN,GEN,GEN};
+            for (int k = 0; k < solvers.length; k++) {
+                KrylovSolver solver = solvers[k];
+                assertThat(solver.isConverged(), is(true));
+                Matrix X = new Matrix(solver.getSolution(),n);
+                assertThat(X.minus(systems[k].solve(new Matrix(b,n))).normF(), is(closeTo(0.,1e-8*X.normF())));
+                double[] history = solver.getResidualHistory();
+                assertEquals(solver.getIterationCount()+1, history.length);
+                assertThat(history[history.length-1], is(closeTo(0.,1e-10*history[0])));
+            }
+
+            // A shifted 1D Laplacian of dimension 10000, never stored as a matrix.
+            LinearOperator L = new LinearOperator() {
+                public int getRowDimension() { return 10000; }
+                public int getColumnDimension() { return 10000; }
+                public void apply(double[] x, double[] y) {
+                    for (int i = 0; i < 10000; i++) {
+                        y[i] = 2.5*x[i]-(i > 0 ? x[i-1] : 0.)-(i < 9999 ? x[i+1] : 0.);
+                    }
+                }
+            };
+            double[] e = new double[10000];
+            Arrays.fill(e,1.);
+            double[] f = new double[10000];
+            L.apply(e,f);
+            for (KrylovSolver solver : new KrylovSolver[] {new ConjugateGradientSolver(L,f),
+                    new MINRESSolver(L,f), new GMRESSolver(L,f), new BiCGSTABSolver(L,f)}) {
+                assertThat(solver.isConverged(), is(true));
+                assertThat(solver.getIterationCount() < 60, is(true));
+                assertThat(new Matrix(solver.getSolution(),10000).minus(new Matrix(e,10000)).normInf(), is(closeTo(0.,1e-8)));
+            }
+            double[] h = new MINRESSolver(L,f).getResidualHistory();
+            for (int i = 1; i < h.length; i++) {
+                assertThat(h[i] <= h[i-1], is(true));
+            }
+            ConjugateGradientSolver limited = new ConjugateGradientSolver(L,f,null,1e-10,3);
+            assertThat(limited.isConverged(), is(false));
+            assertEquals(3, limited.getIterationCount());
+            assertThrows(iae, () -> new ConjugateGradientSolver(N.getMatrix(0,9,0,19),b));
+            assertThrows(iae, () -> new GMRESSolver(GEN,new double[n-1]));
+        }
+
+        @Test @DisplayName("should precondition Krylov methods")
+        public void testPreconditioners() {
+            // Five-point Laplacian on a 30x30 grid, and the same with a
+            // convection term and badly scaled unknowns.
+            int g = 30, n = g*g;
+            Matrix P = new Matrix(n,n);
+            Matrix C = new Matrix(n,n);
+            for (int i = 0; i < g; i++) {
+                for (int j = 0; j < g; j++) {
+                    int k = i*g+j;
+                    P.set(k,k,4.);
+                    C.set(k,k,4.);
+                    if (j > 0) { P.set(k,k-1,-1.); C.set(k,k-1,-1.5); }
+                    if (j < g-1) { P.set(k,k+1,-1.); C.set(k,k+1,-.5); }
+                    if (i > 0) { P.set(k,k-g,-1.); C.set(k,k-g,-1.); }
+                    if (i < g-1) { P.set(k,k+g,-1.); C.set(k,k+g,-1.); }
+                }
+            }
+            Matrix D = new Matrix(n,n);
+            for (int k = 0; k < n; k++) {
+                D.set(k,k,Math.pow(10.,(k%7)-3));
+            }
+            Matrix S = D.times(P).times(D);
+            double[] b = Matrix.random(n,1).getColumnPackedCopy();
+
+            int plain = new ConjugateGradientSolver(P,b).getIterationCount();
+            KrylovSolver[] solvers = {
+                new ConjugateGradientSolver(P,b,new SSORPreconditioner(P,1.5)),
+                new ConjugateGradientSolver(P,b,new IncompleteCholeskyPreconditioner(P)),
+                new MINRESSolver(P,b,new IncompleteCholeskyPreconditioner(P)),
+                new ConjugateGradientSolver(P,b,new BlockJacobiPreconditioner(P,g)),
+                new GMRESSolver(C,b,new IncompleteLUPreconditioner(C)),
+                new GMRESSolver(C,b,null,new IncompleteLUPreconditioner(C),1e-10,2*n,20),
+                new BiCGSTABSolver(C,b,new IncompleteLUPreconditioner(C))
+            };
+            Matrix[] systems = {P,P,P,P,C,C,C};
+            for (int k = 0; k < solvers.length; k++) {
+                KrylovSolver solver = solvers[k];
+                assertThat(solver.isConverged(), is(true));
+                assertThat(solver.getIterationCount() < plain, is(true));
+                Matrix X = new Matrix(solver.getSolution(),n);
+                assertThat(X.minus(systems[k].solve(new Matrix(b,n))).normF(), is(closeTo(0.,1e-6*X.normF())));
+            }
+            // Preconditioned MINRES minimizes another norm, but reports and
+            // stops on the Euclidean residual norm like the other solvers.
+            KrylovSolver minres = solvers[2];
+            double rnorm = P.times(new Matrix(minres.getSolution(),n)).minus(new Matrix(b,n)).normF();
+            double bnorm = new Matrix(b,n).normF();
+            assertThat(minres.getResidualNorm(), is(closeTo(rnorm,1e-12*bnorm)));
+            assertThat(rnorm <= 1e-10*bnorm, is(true));
+            assertThat(new ConjugateGradientSolver(S,b).isConverged(), is(false));
+            assertThat(new ConjugateGradientSolver(S,b,new JacobiPreconditioner(S)).isConverged(), is(true));
+            assertThat(new ConjugateGradientSolver(P,b,new IncompleteCholeskyPreconditioner(P)).getIterationCount() < plain/2, is(true));
+
+            // The factors are exact for a tridiagonal matrix, which has no fill.
+            Matrix T = P.getMatrix(0,g-1,0,g-1);
+            double[] t = Matrix.random(g,1).getColumnPackedCopy();
+            double[] z = new double[g];
+            new IncompleteCholeskyPreconditioner(T).solve(t,z);
+            assertThat(T.times(new Matrix(z,g)).minus(new Matrix(t,g)).normF(), is(closeTo(0.,1e-12)));
+            new IncompleteLUPreconditioner(T).solve(t,z);
+            assertThat(T.times(new Matrix(z,g)).minus(new Matrix(t,g)).normF(), is(closeTo(0.,1e-12)));
+
+            assertThrows(iae, () -> new SSORPreconditioner(P,2.));
+            assertThrows(iae, () -> new BlockJacobiPreconditioner(P,0));
+            assertThrows(RuntimeException.class, () -> new IncompleteLUPreconditioner(new Matrix(new double[][] {{0.,1.},{1.,0.}})));
+            assertThrows(RuntimeException.class, () -> new IncompleteCholeskyPreconditioner(P.times(-1.)));
+        }
+
+        @Test @DisplayName("should assemble and multiply sparse matrices")
+        public void testSparseMatrix() {
+            // Random sparse matrices, assembled from shuffled, partly
+            // repeated triplets.
+            Random random = new Random(7);
+            Matrix[] dense = new Matrix[2];
+            SparseMatrix[] sparse = new SparseMatrix[2];
+            for (int k = 0; k < 2; k++) {
+                Matrix X = new Matrix(40,40);
+                SparseMatrix.Builder builder = new SparseMatrix.Builder(40,40);
+                for (int t = 0; t < 300; t++) {
+                    int i = random.nextInt(40), j = random.nextInt(40);
+                    double v = random.nextGaussian();
+                    X.set(i,j,X.get(i,j)+v);
+                    builder.add(i,j,v);
+                }
+                dense[k] = X;
+                sparse[k] = builder.build();
+                assertNormDifference(sparse[k].toMatrix(),X);
+                assertNormDifference(new SparseMatrix(X).toMatrix(),X);
+                assertEquals(new SparseMatrix(X).getNonzeroCount(), sparse[k].getNonzeroCount());
+            }
+            Matrix X = dense[0], Y = dense[1];
+            SparseMatrix S = sparse[0], T = sparse[1];
+            assertEquals(X.get(3,5), S.get(3,5));
+            assertNormDifference(S.transpose().toMatrix(),X.transpose());
+            assertNormDifference(S.plus(T).toMatrix(),X.plus(Y));
+            assertNormDifference(S.minus(T).toMatrix(),X.minus(Y));
+            assertNormDifference(S.times(2.5).toMatrix(),X.times(2.5));
+            assertNormDifference(S.times(T).toMatrix(),X.times(Y));
+            Matrix B = Matrix.random(40,3);
+            assertNormDifference(S.times(B),X.times(B));
+            double[] x = B.getColumnPackedCopy(), y = new double[40], z = new double[40];
+            x = Arrays.copyOf(x,40);
+            S.apply(x,y);
+            X.apply(x,z);
+            assertNormDifference(y,z);
+            assertNormDifference(SparseMatrix.identity(40).times(S).toMatrix(),X);
+
+            // A 300x300 grid Laplacian, with 90000 unknowns, solved by
+            // preconditioned conjugate gradients.
+            int g = 300, n = g*g;
+            SparseMatrix.Builder builder = new SparseMatrix.Builder(n,n);
+            for (int i = 0; i < g; i++) {
+                for (int j = 0; j < g; j++) {
+                    int k = i*g+j;
+                    builder.add(k,k,4.);
+                    if (j > 0) builder.add(k,k-1,-1.);
+                    if (j < g-1) builder.add(k,k+1,-1.);
+                    if (i > 0) builder.add(k,k-g,-1.);
+                    if (i < g-1) builder.add(k,k+g,-1.);
+                }
+            }
+            SparseMatrix L = builder.build();
+            assertEquals(5*n-4*g, L.getNonzeroCount());
+            double[] e = new double[n], b = new double[n];
+            Arrays.fill(e,1.);
+            L.apply(e,b);
+            ConjugateGradientSolver solver = new ConjugateGradientSolver(L,b,new IncompleteCholeskyPreconditioner(L));
+            assertThat(solver.isConverged(), is(true));
+            double[] u = solver.getSolution();
+            for (int i = 0; i < n; i++) {
+                assertThat(u[i], is(closeTo(1.,1e-6)));
+            }
+
+            assertThrows(iae, () -> S.times(new SparseMatrix(Matrix.random(3,3))));
+            assertThrows(iae, () -> S.plus(new SparseMatrix(Matrix.random(40,3))));
+            assertThrows(iae, () -> S.apply(new double[3],new double[40]));
+            assertThrows(oob, () -> new SparseMatrix.Builder(4,4).add(4,0,1.));
+        }
+
+        @Test @DisplayName("should compute sparse Cholesky decomposition")
+        public void testSparseCholesky() {
+            // A random symmetric, diagonally dominant sparse matrix.
+            Random random = new Random(11);
+            int n = 200;
+            SparseMatrix.Builder builder = new SparseMatrix.Builder(n,n);
+            for (int i = 0; i < n; i++) {
+                builder.add(i,i,20.);
+            }
+            for (int t = 0; t < 3*n; t++) {
+                int i = random.nextInt(n), j = random.nextInt(n);
+                if (i != j) {
+                    double v = random.nextGaussian();
+                    builder.add(i,j,v).add(j,i,v);
+                }
+            }
+            SparseMatrix S = builder.build();
+            Matrix X = S.toMatrix();
+            SparseCholeskyDecomposition Chol = new SparseCholeskyDecomposition(S);
+            assertThat(Chol.isSPD(), is(true));
+            int[] p = Chol.getPermutation();
+            Matrix L = Chol.getL().toMatrix();
+            assertNormDifference(L.times(L.transpose()),X.getMatrix(p,p));
+            assertThat(Chol.getL().getNonzeroCount() < new SparseCholeskyDecomposition(S,null).getL().getNonzeroCount(), is(true));
+            Matrix B = Matrix.random(n,2);
+            assertNormDifference(X.times(Chol.solve(B)),B);
+            double[] b = Arrays.copyOf(B.getColumnPackedCopy(),n);
+            double[] x = Chol.solve(b), y = new double[n];
+            S.apply(x,y);
+            assertThat(new Matrix(y,n).minus(new Matrix(b,n)).normInf(), is(closeTo(0.,1e-12)));
+
+            // Refactor a grid Laplacian with shifts, reusing the analysis.
+            int g = 50;
+            SparseMatrix[] G = new SparseMatrix[2];
+            for (int s = 0; s < 2; s++) {
+                builder = new SparseMatrix.Builder(g*g,g*g);
+                for (int i = 0; i < g; i++) {
+                    for (int j = 0; j < g; j++) {
+                        int k = i*g+j;
+                        builder.add(k,k,4.+s);
+                        if (j > 0) builder.add(k,k-1,-1.);
+                        if (j < g-1) builder.add(k,k+1,-1.);
+                        if (i > 0) builder.add(k,k-g,-1.);
+                        if (i < g-1) builder.add(k,k+g,-1.);
+                    }
+                }
+                G[s] = builder.build();
+            }
+            double[] e = new double[g*g], f = new double[g*g];
+            Arrays.fill(e,1.);
+            SparseCholeskyDecomposition GChol = new SparseCholeskyDecomposition(G[0]);
+            assertThat(GChol.getL().getNonzeroCount() < g*g*g/2, is(true));
+            for (int s : new int[] {1,0,1}) {
+                GChol.refactor(G[s]);
+                G[s].apply(e,f);
+                double[] u = GChol.solve(f);
+                for (int i = 0; i < g*g; i++) {
+                    assertThat(u[i], is(closeTo(1.,1e-10)));
+                }
+            }
+
+            // Many components: isolated nodes, pairs and a path longer than
+            // a leaf.  Ordering them costs linear time, and only the path fills.
+            int nd = 200000;
+            builder = new SparseMatrix.Builder(nd,nd);
+            for (int i = 0; i < nd; i++) {
+                builder.add(i,i,3.);
+            }
+            for (int i = 0; i < nd/2; i += 3) {
+                builder.add(i,i+1,-1.).add(i+1,i,-1.);
+            }
+            for (int i = nd-300; i < nd-1; i++) {
+                builder.add(i,i+1,-1.).add(i+1,i,-1.);
+            }
+            SparseMatrix Dg = builder.build();
+            SparseCholeskyDecomposition[] holder = new SparseCholeskyDecomposition[1];
+            assertTimeout(ofSeconds(10), () -> { holder[0] = new SparseCholeskyDecomposition(Dg); });
+            SparseCholeskyDecomposition DChol = holder[0];
+            assertThat(DChol.getL().getNonzeroCount() < (Dg.getNonzeroCount()+nd)/2+300, is(true));
+            double[] h = new double[nd], k = new double[nd];
+            Arrays.fill(h,1.);
+            Dg.apply(h,k);
+            double[] v = DChol.solve(k);
+            for (int i = 0; i < nd; i++) {
+                assertThat(v[i], is(closeTo(1.,1e-12)));
+            }
+
+            SparseCholeskyDecomposition Neg = new SparseCholeskyDecomposition(S.times(-1.));
+            assertThat(Neg.isSPD(), is(false));
+            assertThrows(RuntimeException.class, () -> Neg.solve(b));
+            assertThrows(iae, () -> GChol.refactor(S));
+            assertThrows(iae, () -> new SparseCholeskyDecomposition(S,new int[n]));
+        }
+
         @Test @DisplayName("should not hang on eigenvalue decompsition")
         public void test() {
             double[][] badeigs = {{0,0,0,0,0}, {0,0,0,0,1},{0,0,0,1,0}, {1,1,0,0,1},{1,0,1,0,1}};
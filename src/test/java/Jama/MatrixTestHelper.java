@@ -29,6 +29,31 @@ public interface MatrixTestHelper {
         assertNormDifference(A,B);
     }
 
+    /** Check that two lists of complex eigenvalues, given by their real and
+        imaginary parts, agree in some order: each expected eigenvalue is
+        matched to the nearest unmatched actual one. **/
+    default void assertSameEigenvalues(double[] re, double[] im, double[] r, double[] i, double tol) {
+        if (re.length != r.length) {
+            throw new AssertionError("Attempt to compare spectra of different sizes");
+        }
+        boolean[] used = new boolean[r.length];
+        for (int j = 0; j < re.length; j++) {
+            int best = -1;
+            double dist = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < r.length; k++) {
+                double d = Math.hypot(r[k]-re[j],i[k]-im[j]);
+                if (!used[k] && d < dist) {
+                    best = k;
+                    dist = d;
+                }
+            }
+            if (dist > tol) {
+                throw new AssertionError("Eigenvalue " + re[j] + " + " + im[j] + "i is too far from " + r[best] + " + " + i[best] + "i");
+            }
+            used[best] = true;
+        }
+    }
+
     /** Check norm of difference of Matrices. **/
     default void assertNormDifference(Matrix X, Matrix Y) {
         double eps = Math.pow(2.0,-52.0);